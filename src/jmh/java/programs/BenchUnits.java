@@ -0,0 +1,21 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.HashMap;
+
+/** Юниты для бенчмарков — как {@code TestHelpers} в тестах. */
+final class BenchUnits {
+    private BenchUnits() {}
+
+    static Unit unit(String name, String type, int x, int y, int hp, int atk, int cost) {
+        return new Unit(
+                name, type,
+                hp, atk, cost,
+                "melee",
+                new HashMap<>(),
+                new HashMap<>(),
+                x, y
+        );
+    }
+}
@@ -0,0 +1,46 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.GeneratePreset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * generate на четырёх прототипах игры: бюджет задания (1500) и большой
+ * (30000 — упирается в лимит 11 копий), жадный и точный генераторы.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratePresetBenchmark {
+
+    @Param({"150", "1500", "30000"})
+    public int maxPoints;
+
+    @Param({"GREEDY", "KNAPSACK"})
+    public String generator;
+
+    private GeneratePreset preset;
+    private List<Unit>     prototypes;
+
+    @Setup
+    public void setUp() {
+        preset = generator.equals("KNAPSACK") ? new KnapsackPresetImpl() : new GeneratePresetImpl();
+        prototypes = List.of(
+                BenchUnits.unit("Archer",    "Archer",    0, 0, 30, 12, 20),
+                BenchUnits.unit("Swordsman", "Swordsman", 0, 0, 60, 20, 40),
+                BenchUnits.unit("Pikeman",   "Pikeman",   0, 0, 35, 15, 30),
+                BenchUnits.unit("Knight",    "Knight",    0, 0, 100, 25, 50));
+    }
+
+    @Benchmark
+    public Army generate() {
+        return preset.generate(prototypes, maxPoints);
+    }
+}
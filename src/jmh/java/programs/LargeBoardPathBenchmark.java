@@ -0,0 +1,62 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getTargetPath на больших полях: BFS с битовыми картами против
+ * иерархического {@link HierarchicalPathFinder}.
+ *
+ * Поле size×size, 20 % клеток заняты случайными юнитами (seed 1),
+ * путь — между двумя случайными юнитами, пары меняются по кругу.
+ * Граф HPA строится в setup; между вызовами занятость не меняется.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeBoardPathBenchmark {
+
+    public enum Engine { BFS, HPA }
+
+    @Param({"100", "500"})
+    public int size;
+
+    @Param({"BFS", "HPA"})
+    public Engine engine;
+
+    private UnitTargetPathFinder finder;
+    private List<Unit> existing;
+    private Unit[][]   pairs;
+    private int        next;
+
+    @Setup
+    public void setUp() {
+        finder = engine == Engine.BFS
+                ? new UnitTargetPathFinderImpl(size, size)
+                : new HierarchicalPathFinder(size, size);
+        Random r = new Random(1);
+        existing = new ArrayList<>();
+        for (int i = 0; i < size * size / 5; i++)
+            existing.add(BenchUnits.unit("u", "Knight", r.nextInt(size), r.nextInt(size), 10, 1, 1));
+        pairs = new Unit[64][];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = new Unit[]{existing.get(r.nextInt(existing.size())), existing.get(r.nextInt(existing.size()))};
+        finder.getTargetPath(pairs[0][0], pairs[0][1], existing);   // граф HPA — до замеров
+    }
+
+    @Benchmark
+    public List<Edge> getTargetPath() {
+        Unit[] p = pairs[next++ & (pairs.length - 1)];
+        return finder.getTargetPath(p[0], p[1], existing);
+    }
+}
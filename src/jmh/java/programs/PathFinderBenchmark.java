@@ -0,0 +1,78 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getTargetPath на поле 27×21 для каждого движка {@link PathFinderEngine}.
+ *
+ *   OPEN    — пустое поле, путь из угла в угол (≈ 600 клеток обхода у BFS);
+ *   MAZE    — «змейка»: стены на каждой 4-й колонке с проходом попеременно
+ *             сверху и снизу, путь ≈ 120 шагов;
+ *   NO_PATH — цель в кольце из 8 юнитов, поиск обходит всё поле впустую.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+
+    public enum Board { OPEN, MAZE, NO_PATH }
+
+    @Param({"OPEN", "MAZE", "NO_PATH"})
+    public Board board;
+
+    @Param({"BFS", "ASTAR", "JPS"})
+    public PathFinderEngine engine;
+
+    private UnitTargetPathFinder finder;
+    private Unit       attacker;
+    private Unit       target;
+    private List<Unit> existing;
+
+    @Setup
+    public void setUp() {
+        finder   = engine.create();
+        existing = new ArrayList<>();
+        switch (board) {
+            case OPEN -> {
+                attacker = BenchUnits.unit("a", "Knight", 0, 0, 10, 1, 1);
+                target   = BenchUnits.unit("t", "Knight", 26, 20, 10, 1, 1);
+            }
+            case MAZE -> {
+                attacker = BenchUnits.unit("a", "Knight", 0, 0, 10, 1, 1);
+                target   = BenchUnits.unit("t", "Knight", 26, 0, 10, 1, 1);
+                boolean gapBelow = true;
+                for (int x = 3; x < 26; x += 4, gapBelow = !gapBelow) {
+                    for (int y = 0; y < 21; y++) {
+                        if (gapBelow ? y == 20 : y == 0) continue;
+                        existing.add(BenchUnits.unit("w", "Knight", x, y, 10, 1, 1));
+                    }
+                }
+            }
+            case NO_PATH -> {
+                attacker = BenchUnits.unit("a", "Knight", 0, 0, 10, 1, 1);
+                target   = BenchUnits.unit("t", "Knight", 20, 10, 10, 1, 1);
+                for (int dx = -1; dx <= 1; dx++)
+                    for (int dy = -1; dy <= 1; dy++)
+                        if (dx != 0 || dy != 0)
+                            existing.add(BenchUnits.unit("r", "Knight", 20 + dx, 10 + dy, 10, 1, 1));
+            }
+        }
+        existing.add(attacker);
+        existing.add(target);
+    }
+
+    @Benchmark
+    public List<Edge> getTargetPath() {
+        return finder.getTargetPath(attacker, target, existing);
+    }
+}
@@ -0,0 +1,77 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Program;
+import com.battle.heroes.util.GameSpeedUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный simulate с программами-заглушками: каждый юнит бьёт первого
+ * живого врага на {@code baseAttack}.  Меряется только симулятор —
+ * очередь ходов, таблица боя, индекс занятости, — без поиска пути
+ * и задержек библиотечных программ.
+ *
+ * Армии пересоздаются перед каждым вызовом (бой их расходует), поэтому
+ * setUp на уровне Invocation; размер — юнитов в каждой армии.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulateBenchmark {
+
+    @Param({"10", "44"})
+    public int unitsPerArmy;
+
+    private final SimulateBattleImpl simulator = new SimulateBattleImpl();
+    private Army player;
+    private Army computer;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        player   = army(0);
+        computer = army(26);
+        GameSpeedUtil noDelay = new GameSpeedUtil(0);
+        for (Unit u : player.getUnits())   u.setProgram(new FirstAliveEnemy(u, player, computer, noDelay));
+        for (Unit u : computer.getUnits()) u.setProgram(new FirstAliveEnemy(u, computer, player, noDelay));
+    }
+
+    @Benchmark
+    public Army simulate() throws InterruptedException {
+        simulator.simulate(player, computer);
+        return player;
+    }
+
+    private Army army(int x) {
+        List<Unit> units = new ArrayList<>(unitsPerArmy);
+        for (int i = 0; i < unitsPerArmy; i++)
+            units.add(BenchUnits.unit("u" + i, "Knight", x + (x == 0 ? i / 21 : -(i / 21)), i % 21,
+                    20 + i % 7, 3 + i % 5, 1));
+        return new Army(units);
+    }
+
+    /** Бьёт первого живого врага; без пути и без задержек. */
+    private static final class FirstAliveEnemy extends Program {
+        FirstAliveEnemy(Unit unit, Army ally, Army enemy, GameSpeedUtil speed) {
+            super(unit, ally, enemy, speed);
+        }
+
+        @Override
+        public Unit attack() {
+            for (Unit e : enemyArmy.getUnits()) {
+                if (!e.isAlive()) continue;
+                e.setHealth(e.getHealth() - unit.getBaseAttack());
+                if (e.getHealth() <= 0) e.setAlive(false);
+                return e;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getSuitableUnits на армии из трёх колонок.
+ *
+ *   SPARSE — по юниту на каждую третью строку, впереди свободно;
+ *   DENSE  — колонки забиты целиком, готов только крайний в каждой.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuitableUnitsBenchmark {
+
+    public enum Rows { SPARSE, DENSE }
+
+    @Param({"SPARSE", "DENSE"})
+    public Rows rows;
+
+    @Param({"true", "false"})
+    public boolean leftArmyTarget;
+
+    private final SuitableForAttackUnitsFinderImpl finder = new SuitableForAttackUnitsFinderImpl();
+    private List<List<Unit>> unitsByRow;
+
+    @Setup
+    public void setUp() {
+        unitsByRow = new ArrayList<>();
+        int step = rows == Rows.DENSE ? 1 : 3;
+        for (int x = 0; x < 3; x++) {
+            List<Unit> column = new ArrayList<>();
+            for (int y = 0; y < 21; y += step) column.add(BenchUnits.unit("u", "Knight", x, y, 10, 1, 1));
+            unitsByRow.add(column);
+        }
+    }
+
+    @Benchmark
+    public List<Unit> getSuitableUnits() {
+        return finder.getSuitableUnits(unitsByRow, leftArmyTarget);
+    }
+}
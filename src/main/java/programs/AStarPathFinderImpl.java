@@ -0,0 +1,250 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+
+import java.util.*;
+
+/**
+ * Альтернативный поиск пути: A* и Jump Point Search (JPS).
+ *
+ * Правила поля те же, что и у {@link UnitTargetPathFinderImpl}:
+ *   поле 27*21 (или заданное в конструкторе), 8 направлений,
+ *   любой шаг стоит 1 (в т.ч. диагональный),
+ *   клетки живых юнитов непроходимы, КРОМЕ стартовой и целевой.
+ * Поэтому длина найденного пути всегда совпадает с длиной пути BFS;
+ * сами клетки могут отличаться — кратчайших путей обычно несколько.
+ *
+ * Эвристика — расстояние Чебышёва max(|dx|,|dy|): при единичной цене
+ *   диагонали это точная длина пути по пустому полю, т.е. она допустима
+ *   и монотонна, и A* раскрывает только клетки «в сторону цели».
+ *
+ * Режим {@link Mode#JUMP_POINT} — JPS (Harabor & Grastien, вариант с
+ *   «срезанием углов», как и у BFS): вместо соседей в кучу попадают
+ *   только точки прыжка, прямые участки между ними проходятся без кучи.
+ *   Выигрыш заметен на открытом поле; результат восстанавливается
+ *   в обычный поклеточный список Edge.
+ *
+ * Буферы — общие с BFS ({@link PathSearchWorkspace}), вызов выделяет
+ * только итоговый список Edge.
+ *
+ * Сложность: O(V log V) в худшем случае (V = W·H, на поле движка ≤ 567), на открытом поле —
+ * O(L log L), где L — длина пути.
+ */
+public class AStarPathFinderImpl implements UnitTargetPathFinder {
+
+    /** Стратегия раскрытия вершин. */
+    public enum Mode { ASTAR, JUMP_POINT }
+
+    /* 8 направлений — тот же порядок, что и у BFS */
+    private static final int[] DX = {-1,-1,-1, 0, 0, 1, 1, 1};
+    private static final int[] DY = {-1, 0, 1,-1, 1,-1, 0, 1};
+
+    private final Mode mode;
+    private final int  width;
+    private final int  height;
+
+    public AStarPathFinderImpl() { this(Mode.ASTAR); }
+
+    public AStarPathFinderImpl(Mode mode) {
+        this(mode, UnitTargetPathFinderImpl.DEFAULT_WIDTH, UnitTargetPathFinderImpl.DEFAULT_HEIGHT);
+    }
+
+    /** Поле {@code width}×{@code height}; число клеток должно помещаться в int. */
+    public AStarPathFinderImpl(Mode mode, int width, int height) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("board " + width + "x" + height);
+        Math.multiplyExact(width, height);
+        this.mode   = Objects.requireNonNull(mode, "mode");
+        this.width  = width;
+        this.height = height;
+    }
+
+    public Mode getMode()  { return mode; }
+    public int getWidth()  { return width; }
+    public int getHeight() { return height; }
+
+    /* ------------------------------------------------------------------  публичный API */
+    @Override
+    public List<Edge> getTargetPath(Unit attacker,
+                                    Unit target,
+                                    List<Unit> allUnits) {
+
+        if (attacker == null || target == null) return Collections.emptyList();
+
+        int sx = attacker.getxCoordinate();
+        int sy = attacker.getyCoordinate();
+        int tx = target.getxCoordinate();
+        int ty = target.getyCoordinate();
+
+        if (!inBounds(sx, sy) || !inBounds(tx, ty)) return Collections.emptyList();
+        if (sx == tx && sy == ty)                   return Collections.emptyList(); // уже на месте
+
+        PathSearchWorkspace ws = PathSearchWorkspace.acquire(width * height);
+        int start = cell(sx, sy);
+        int goal  = cell(tx, ty);
+        ws.markBlocked(allUnits, attacker, width, height, start, goal);
+
+        boolean reached = mode == Mode.JUMP_POINT
+                ? searchJps(ws, start, goal)
+                : searchAStar(ws, start, goal);
+        return reached ? unwind(ws, start, goal) : Collections.emptyList();
+    }
+
+    /* ==================================================================  A* */
+
+    private boolean searchAStar(PathSearchWorkspace ws, int start, int goal) {
+        final int stamp = ws.stamp;
+        final int[] g = ws.g, seen = ws.seen, closed = ws.closed, blocked = ws.blocked;
+
+        ws.open(start, start, 0, chebyshev(start, goal));
+
+        while (ws.heapSize > 0) {
+            int cur = ws.pop();
+            if (cur == goal) return true;
+            closed[cur] = stamp;
+
+            int cx = cur / height, cy = cur % height;
+            int ng = g[cur] + 1;
+            for (int d = 0; d < 8; d++) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (!inBounds(nx, ny))      continue;
+                int n = cell(nx, ny);
+                if (blocked[n] == stamp)    continue;
+                if (closed[n]  == stamp)    continue;
+                if (seen[n] == stamp && g[n] <= ng) continue;
+                ws.open(n, cur, ng, ng + chebyshev(n, goal));
+            }
+        }
+        return false;
+    }
+
+    /* ==================================================================  JPS */
+
+    private boolean searchJps(PathSearchWorkspace ws, int start, int goal) {
+        final int stamp = ws.stamp;
+        final int[] g = ws.g, prev = ws.prev, seen = ws.seen, closed = ws.closed;
+
+        ws.open(start, start, 0, chebyshev(start, goal));
+
+        while (ws.heapSize > 0) {
+            int cur = ws.pop();
+            if (cur == goal) return true;
+            closed[cur] = stamp;
+
+            int cx = cur / height, cy = cur % height;
+            int dx = 0, dy = 0;
+            if (cur != start) {                      // направление прихода
+                int p = prev[cur];
+                dx = Integer.signum(cx - p / height);
+                dy = Integer.signum(cy - p % height);
+            }
+
+            for (int d = 0; d < 8; d++) {
+                int ddx = DX[d], ddy = DY[d];
+                if (cur != start && !isSuccessor(ws, cx, cy, dx, dy, ddx, ddy)) continue;
+
+                int j = jump(ws, goal, cx, cy, ddx, ddy);
+                if (j < 0 || closed[j] == stamp) continue;
+
+                int ng = g[cur] + chebyshev(cur, j);
+                if (seen[j] == stamp && g[j] <= ng) continue;
+                ws.open(j, cur, ng, ng + chebyshev(j, goal));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Направление (ddx,ddy) — «естественный» или «вынужденный» сосед
+     * клетки (x,y), в которую пришли по направлению (dx,dy).
+     */
+    private boolean isSuccessor(PathSearchWorkspace ws, int x, int y,
+                                int dx, int dy, int ddx, int ddy) {
+        if (dx != 0 && dy != 0) {                                    // диагональ
+            if (ddx == dx  && ddy == dy)  return true;
+            if (ddx == dx  && ddy == 0)   return true;
+            if (ddx == 0   && ddy == dy)  return true;
+            if (ddx == -dx && ddy == dy)  return !walkable(ws, x - dx, y);
+            if (ddx == dx  && ddy == -dy) return !walkable(ws, x, y - dy);
+            return false;
+        }
+        if (dy == 0) {                                               // горизонталь
+            if (ddx != dx) return false;
+            if (ddy == 0)  return true;
+            return !walkable(ws, x, y + ddy);
+        }
+        if (ddy != dy) return false;                                 // вертикаль
+        if (ddx == 0)  return true;
+        return !walkable(ws, x + ddx, y);
+    }
+
+    /** Прыжок из (x,y) по (dx,dy); возвращает клетку-точку прыжка или -1. */
+    private int jump(PathSearchWorkspace ws, int goal, int x, int y, int dx, int dy) {
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!walkable(ws, x, y)) return -1;
+            int c = cell(x, y);
+            if (c == goal) return c;
+
+            if (dx != 0 && dy != 0) {
+                if ((!walkable(ws, x - dx, y) && walkable(ws, x - dx, y + dy)) ||
+                    (!walkable(ws, x, y - dy) && walkable(ws, x + dx, y - dy))) return c;
+                if (jump(ws, goal, x, y, dx, 0) >= 0 || jump(ws, goal, x, y, 0, dy) >= 0) return c;
+            } else if (dy == 0) {
+                if ((!walkable(ws, x, y + 1) && walkable(ws, x + dx, y + 1)) ||
+                    (!walkable(ws, x, y - 1) && walkable(ws, x + dx, y - 1))) return c;
+            } else {
+                if ((!walkable(ws, x + 1, y) && walkable(ws, x + 1, y + dy)) ||
+                    (!walkable(ws, x - 1, y) && walkable(ws, x - 1, y + dy))) return c;
+            }
+        }
+    }
+
+    private boolean walkable(PathSearchWorkspace ws, int x, int y) {
+        return inBounds(x, y) && ws.blocked[cell(x, y)] != ws.stamp;
+    }
+
+    /* ==================================================================  восстановление пути */
+
+    /**
+     * Разворачивает цепочку prev от цели к старту в поклеточный путь.
+     * Для A* соседние звенья и так смежны; для JPS отрезок между
+     * точками прыжка прямой (гориз./верт./диаг.) и интерполируется.
+     */
+    private List<Edge> unwind(PathSearchWorkspace ws, int start, int goal) {
+        final int[] prev = ws.prev, back = ws.path;
+        int len = 0;
+        for (int c = goal; c != start; ) {
+            int p = prev[c];
+            int x = c / height, y = c % height;
+            int sx = Integer.signum(p / height - x), sy = Integer.signum(p % height - y);
+            for (int k = chebyshev(c, p); k > 0; k--) {  // саму клетку p не включаем
+                back[len++] = cell(x, y);
+                x += sx;
+                y += sy;
+            }
+            c = p;
+        }
+
+        List<Edge> path = new ArrayList<>(len);
+        for (int i = len - 1; i >= 0; i--) path.add(new Edge(back[i] / height, back[i] % height));
+        return path;
+    }
+
+    /* ==================================================================  утилиты */
+
+    private int chebyshev(int a, int b) {
+        return Math.max(Math.abs(a / height - b / height), Math.abs(a % height - b % height));
+    }
+
+    private int cell(int x, int y) {
+        return x * height + y;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
@@ -0,0 +1,55 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.util.GameSpeedUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Глубокое копирование армий для независимых прогонов боя.
+ *
+ * Бой меняет юнитов на месте (здоровье, координаты, isAlive), поэтому
+ * каждый прогон работает на своей копии.  Программы НЕ копируются —
+ * они ссылаются на исходные армии; их навешивает {@link #arm}.
+ */
+final class ArmyCopier {
+
+    private ArmyCopier() {}
+
+    /** Копия армии: новые Unit с копиями карт бонусов, без программ. */
+    static Army deepCopy(Army src) {
+        Army copy = new Army();
+        List<Unit> units = new ArrayList<>();
+        if (src != null && src.getUnits() != null) {
+            for (Unit u : src.getUnits()) if (u != null) units.add(copyOf(u));
+        }
+        copy.setUnits(units);
+        copy.setPoints(src == null ? 0 : src.getPoints());
+        return copy;
+    }
+
+    static Unit copyOf(Unit u) {
+        Unit c = new Unit(
+                u.getName(),
+                u.getUnitType(),
+                u.getHealth(),
+                u.getBaseAttack(),
+                u.getCost(),
+                u.getAttackType(),
+                u.getAttackBonuses()  == null ? new HashMap<>() : new HashMap<>(u.getAttackBonuses()),
+                u.getDefenceBonuses() == null ? new HashMap<>() : new HashMap<>(u.getDefenceBonuses()),
+                u.getxCoordinate(),
+                u.getyCoordinate()
+        );
+        c.setAlive(u.isAlive());
+        return c;
+    }
+
+    /** Навешивает программы на всех юнитов армии {@code army}. */
+    static void arm(Army army, Army enemy, ProgramFactory factory, GameSpeedUtil speed) {
+        for (Unit u : army.getUnits()) u.setProgram(factory.create(u, army, enemy, speed));
+    }
+}
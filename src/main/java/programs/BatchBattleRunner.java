@@ -0,0 +1,186 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.util.GameSpeedUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Пакетный «безголовый» прогон боёв для оценки методом Монте-Карло.
+ *
+ * Для каждой пары фабрик армий бой повторяется {@code iterations} раз:
+ *   1. фабрики выдают армии, они глубоко копируются ({@link ArmyCopier}) —
+ *      прогоны не делят между собой ни одного юнита;
+ *   2. на копии навешиваются программы ({@link ProgramFactory}),
+ *      скорость игры 0 — никаких задержек;
+ *   3. бой идёт в {@link SimulateBattleImpl} без лога.
+ *
+ * Прогоны независимы и раздаются по ядрам через собственный
+ * {@link ForkJoinPool}; каждый поток работает на своих буферах поиска
+ * пути и своём индексе занятости, общих блокировок нет.
+ *
+ * Бой, не закончившийся за {@code maxRounds} раундов (никто ни до кого
+ * не дотягивается), считается незавершённым.
+ */
+public final class BatchBattleRunner implements AutoCloseable {
+
+    /** Предел раундов одного боя по умолчанию. */
+    public static final int DEFAULT_MAX_ROUNDS = 1_000;
+
+    /** Пара фабрик армий; каждая фабрика вызывается на каждый прогон. */
+    public record Matchup(String name, Supplier<Army> player, Supplier<Army> computer) {
+        public Matchup {
+            Objects.requireNonNull(player, "player");
+            Objects.requireNonNull(computer, "computer");
+        }
+    }
+
+    /**
+     * Итог серии боёв.  HP — суммарное здоровье выживших в конце боя,
+     * усреднённое по всем прогонам.
+     */
+    public record Result(String name,
+                         int battles,
+                         int playerWins,
+                         int computerWins,
+                         int unfinished,
+                         double meanRounds,
+                         double meanPlayerHp,
+                         double meanComputerHp) {
+
+        /** Доля побед игрока среди всех прогонов. */
+        public double playerWinRate() {
+            return battles == 0 ? 0.0 : (double) playerWins / battles;
+        }
+    }
+
+    private final ForkJoinPool   pool;
+    private final ProgramFactory playerPrograms;
+    private final ProgramFactory computerPrograms;
+    private final int            maxRounds;
+
+    /** Все ядра, библиотечные программы игрока и компьютера. */
+    public BatchBattleRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchBattleRunner(int parallelism) {
+        this(parallelism, ProgramFactory.user(), ProgramFactory.computer(), DEFAULT_MAX_ROUNDS);
+    }
+
+    public BatchBattleRunner(int parallelism,
+                             ProgramFactory playerPrograms,
+                             ProgramFactory computerPrograms,
+                             int maxRounds) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1");
+        if (maxRounds   < 1) throw new IllegalArgumentException("maxRounds < 1");
+        this.pool             = new ForkJoinPool(parallelism);
+        this.playerPrograms   = Objects.requireNonNull(playerPrograms, "playerPrograms");
+        this.computerPrograms = Objects.requireNonNull(computerPrograms, "computerPrograms");
+        this.maxRounds        = maxRounds;
+    }
+
+    /* ------------------------------------------------------------------  публичный API */
+
+    /** {@code iterations} боёв одной пары, параллельно. */
+    public Result run(Matchup matchup, int iterations) throws InterruptedException {
+        if (iterations < 0) throw new IllegalArgumentException("iterations < 0");
+        try {
+            Tally t = pool.submit(() -> IntStream.range(0, iterations)
+                            .parallel()
+                            .collect(Tally::new, (acc, i) -> acc.add(playOne(matchup)), Tally::merge))
+                    .get();
+            return t.toResult(matchup.name());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ce && ce.getCause() != null
+                    ? ce.getCause() : e.getCause();
+            if (cause instanceof InterruptedException ie) throw ie;
+            if (cause instanceof RuntimeException re)     throw re;
+            if (cause instanceof Error er)                throw er;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Серия для каждой пары по очереди; каждая серия — параллельно. */
+    public List<Result> runAll(List<Matchup> matchups, int iterations) throws InterruptedException {
+        List<Result> out = new ArrayList<>(matchups.size());
+        for (Matchup m : matchups) out.add(run(m, iterations));
+        return out;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /* ------------------------------------------------------------------  один прогон */
+
+    private Outcome playOne(Matchup m) {
+        Army player   = ArmyCopier.deepCopy(m.player().get());
+        Army computer = ArmyCopier.deepCopy(m.computer().get());
+
+        GameSpeedUtil noDelay = new GameSpeedUtil(0);
+        ArmyCopier.arm(player,   computer, playerPrograms,   noDelay);
+        ArmyCopier.arm(computer, player,   computerPrograms, noDelay);
+
+        int rounds;
+        try {
+            rounds = new SimulateBattleImpl().run(player, computer, maxRounds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        return new Outcome(rounds,
+                SimulateBattleImpl.hasAlive(player), SimulateBattleImpl.hasAlive(computer),
+                survivingHp(player), survivingHp(computer));
+    }
+
+    private static long survivingHp(Army a) {
+        long hp = 0;
+        for (Unit u : a.getUnits()) if (u.isAlive()) hp += Math.max(0, u.getHealth());
+        return hp;
+    }
+
+    private record Outcome(int rounds, boolean playerAlive, boolean computerAlive,
+                           long playerHp, long computerHp) {}
+
+    /** Изменяемый аккумулятор для параллельной свёртки. */
+    private static final class Tally {
+        int  battles, playerWins, computerWins, unfinished;
+        long rounds, playerHp, computerHp;
+
+        void add(Outcome o) {
+            battles++;
+            rounds     += o.rounds();
+            playerHp   += o.playerHp();
+            computerHp += o.computerHp();
+            if      (o.playerAlive() && !o.computerAlive()) playerWins++;
+            else if (!o.playerAlive() && o.computerAlive()) computerWins++;
+            else if (o.playerAlive())                        unfinished++;
+        }
+
+        void merge(Tally t) {
+            battles      += t.battles;
+            playerWins   += t.playerWins;
+            computerWins += t.computerWins;
+            unfinished   += t.unfinished;
+            rounds       += t.rounds;
+            playerHp     += t.playerHp;
+            computerHp   += t.computerHp;
+        }
+
+        Result toResult(String name) {
+            double n = Math.max(1, battles);
+            return new Result(name, battles, playerWins, computerWins, unfinished,
+                    rounds / n, playerHp / n, computerHp / n);
+        }
+    }
+}
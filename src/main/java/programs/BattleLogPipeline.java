@@ -0,0 +1,300 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.PrintBattleLog;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный лог боя: симуляция пишет, отдельный поток печатает.
+ *
+ * {@link SimulateBattleImpl} вызывает лог после каждого удара; если
+ * настоящий {@link PrintBattleLog} медленный (консоль, UI), весь бой
+ * ждёт его.  Конвейер разрывает эту связь:
+ *
+ *   1. {@link #printBattleLog} лишь копирует событие — ссылки на юнитов,
+ *      их клетки, HP и флаг жизни на момент удара — в заранее выделенное
+ *      кольцо (параллельные массивы, ёмкость — степень двойки).
+ *      Без аллокаций и блокировок: один писатель, один читатель.
+ *   2. Поток-потребитель забирает события пачками (не больше batchSize за проход)
+ *      и отдаёт их настоящему логу.  Юниты к этому времени уже изменились,
+ *      поэтому лог получает снимки — копии юнитов с состоянием из события.
+ *
+ * Ожидание без опроса: потребитель на пустом кольце спит в
+ * {@link LockSupport#park}, писатель будит его, только если видит флаг
+ * «потребитель спит» (на быстром пути — одно чтение volatile).  Кто ждёт
+ * продвижения головы (писатель на полном кольце, {@link #flush()}), тоже
+ * паркуется, и потребитель будит его после каждой пачки.
+ *
+ * Кольцо заполнено (лог не успевает) — поведение задаёт {@link Overflow}:
+ * BLOCK ждёт свободного места (ни одно событие не теряется), DROP
+ * отбрасывает событие и считает его в {@link #dropped()}.
+ *
+ * {@link #flush()} ждёт, пока потребитель напечатает всё опубликованное;
+ * {@link #awaitClosed()} — то же плюс остановка потока.  Оба прерываемы;
+ * {@link #close()} — тот же awaitClosed() без InterruptedException:
+ * прерванный close() восстанавливает флаг interrupt и возвращается,
+ * а поток-демон допечатывает очередь сам.  Исключение из настоящего
+ * лога останавливает потребителя и пробрасывается писателю при
+ * следующем вызове.
+ *
+ * Лог получает не исходных юнитов, а их копии на момент удара — новые
+ * объекты на каждое событие.  Приёмник, который сопоставляет юнитов по
+ * ссылке (например, UI: юнит → спрайт), должен сопоставлять по имени.
+ * Программа у копии — та же, что у оригинала.
+ *
+ * Писатель — ровно один поток (тот, где идёт бой).
+ */
+public final class BattleLogPipeline implements PrintBattleLog, AutoCloseable {
+
+    /** Что делать, когда кольцо заполнено. */
+    public enum Overflow { BLOCK, DROP }
+
+    /** Имя системного свойства: {@code -Dheroes.log.async=block|drop}. */
+    public static final String PROPERTY = "heroes.log.async";
+
+    public static final int DEFAULT_CAPACITY   = 4_096;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Предел сна того, кто ждёт голову: будит потребитель, а таймаут —
+     * страховка на случай двух ждущих потоков сразу (запомнен только один).
+     */
+    private static final long HEAD_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /* ------------------------------------------------------------------  кольцо */
+    // событие i лежит в слоте (i & mask): units[2s] — атакующий, units[2s+1] — цель,
+    // state[STRIDE*s ...] — x, y, hp атакующего, x, y, hp цели, флаги жизни.
+    private static final int STRIDE         = 7;
+    private static final int ATTACKER_ALIVE = 1;
+    private static final int TARGET_ALIVE   = 2;
+
+    private final Unit[] units;
+    private final int[]  state;
+    private final int    mask;
+    private final int    batchSize;
+    private final Overflow overflow;
+
+    /** следующее событие, которое запишет писатель */
+    private final AtomicLong tail = new AtomicLong();
+    /** следующее событие, которое прочитает потребитель */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final PrintBattleLog sink;
+    private final Thread consumer;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    /** потребитель спит (или собирается) на пустом кольце — писатель должен его разбудить */
+    private volatile boolean consumerParked;
+    /** поток, который ждёт продвижения головы; потребитель будит его после пачки */
+    private volatile Thread headWaiter;
+
+    /** Ёмкость, пачка и политика по умолчанию ({@link Overflow#BLOCK}). */
+    public BattleLogPipeline(PrintBattleLog sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, Overflow.BLOCK);
+    }
+
+    /**
+     * @param capacity  число событий в кольце; округляется вверх до степени двойки
+     * @param batchSize сколько событий потребитель отдаёт логу за один проход
+     */
+    public BattleLogPipeline(PrintBattleLog sink, int capacity, int batchSize, Overflow overflow) {
+        if (capacity  < 1) throw new IllegalArgumentException("capacity < 1");
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize < 1");
+        if (capacity > 1 << 24) throw new IllegalArgumentException("capacity > 2^24");
+        this.sink      = Objects.requireNonNull(sink, "sink");
+        this.overflow  = Objects.requireNonNull(overflow, "overflow");
+        int size       = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask      = size - 1;
+        this.units     = new Unit[2 * size];
+        this.state     = new int[STRIDE * size];
+        this.batchSize = Math.min(batchSize, size);
+
+        this.consumer = new Thread(this::drainLoop, "battle-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /** Политика из {@link #PROPERTY} или {@code null}, если асинхронный лог выключен. */
+    public static Overflow fromSystemProperty() {
+        String v = System.getProperty(PROPERTY);
+        if (v == null) return null;
+        try {
+            return Overflow.valueOf(v.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /* ------------------------------------------------------------------  писатель */
+
+    /** Публикует событие удара; при BLOCK может ждать освобождения места. */
+    @Override
+    public void printBattleLog(Unit attacker, Unit target) {
+        if (closed) throw new IllegalStateException("pipeline closed");
+        rethrowFailure();
+
+        long t = tail.get();
+        while (t - head.get() > mask) {                 // кольцо заполнено
+            if (overflow == Overflow.DROP) {
+                dropped.incrementAndGet();
+                return;
+            }
+            parkUntilHead(t - mask);
+            rethrowFailure();
+        }
+
+        int s = (int) t & mask;
+        int o = STRIDE * s;
+        units[2 * s]     = attacker;
+        units[2 * s + 1] = target;
+        int flags = 0;
+        if (attacker != null) {
+            state[o]     = attacker.getxCoordinate();
+            state[o + 1] = attacker.getyCoordinate();
+            state[o + 2] = attacker.getHealth();
+            if (attacker.isAlive()) flags |= ATTACKER_ALIVE;
+        }
+        if (target != null) {
+            state[o + 3] = target.getxCoordinate();
+            state[o + 4] = target.getyCoordinate();
+            state[o + 5] = target.getHealth();
+            if (target.isAlive()) flags |= TARGET_ALIVE;
+        }
+        state[o + 6] = flags;
+        // volatile-запись, а не lazySet: иначе чтение флага ниже может обогнать
+        // публикацию, и уснувший потребитель пропустит событие
+        tail.set(t + 1);
+        if (consumerParked) LockSupport.unpark(consumer);
+    }
+
+    /** Ждёт, пока все опубликованные события будут отданы настоящему логу. */
+    public void flush() throws InterruptedException {
+        long t = tail.get();
+        while (head.get() < t) {
+            if (failure != null || !consumer.isAlive()) break;
+            if (Thread.interrupted()) throw new InterruptedException();
+            parkUntilHead(t);
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Один сон до того, как голова дойдёт до {@code need} (или потребитель
+     * остановится).  Флаг ставится до проверки — пачка, освобождённая
+     * между проверкой и park, всё равно разбудит.
+     */
+    private void parkUntilHead(long need) {
+        headWaiter = Thread.currentThread();
+        if (head.get() < need && failure == null && consumer.isAlive()) {
+            LockSupport.parkNanos(this, HEAD_WAIT_NANOS);
+        }
+        headWaiter = null;
+    }
+
+    /** Допечатывает очередь и останавливает поток потребителя; ждёт прерываемо. */
+    public void awaitClosed() throws InterruptedException {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(consumer);
+        }
+        consumer.join();
+        rethrowFailure();
+    }
+
+    /**
+     * {@link #awaitClosed()} без InterruptedException: при прерывании
+     * восстанавливает флаг interrupt и возвращается, не дождавшись
+     * потребителя.
+     */
+    @Override
+    public void close() {
+        try {
+            awaitClosed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ------------------------------------------------------------------  статистика */
+
+    /** Опубликовано событий (без отброшенных). */
+    public long published() {
+        return tail.get();
+    }
+
+    /** Отброшено событий по политике {@link Overflow#DROP}. */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /** Событий в кольце, ещё не отданных логу. */
+    public int pending() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /* ------------------------------------------------------------------  потребитель */
+
+    private void drainLoop() {
+        try {
+            long h = head.get();
+            while (true) {
+                long available = tail.get() - h;
+                if (available == 0) {
+                    if (closed && tail.get() == h) return;   // писатель закончил, всё напечатано
+                    // флаг — до повторной проверки: событие после неё писатель увидит с флагом
+                    consumerParked = true;
+                    if (tail.get() == h && !closed) LockSupport.park(this);
+                    consumerParked = false;
+                    continue;
+                }
+                int n = (int) Math.min(available, batchSize);
+                for (int i = 0; i < n; i++) emit((int) (h + i) & mask);
+                h += n;
+                head.set(h);                                // пачка освобождена целиком
+                wakeHeadWaiter();
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            wakeHeadWaiter();                               // ждущий увидит ошибку или остановку
+        }
+    }
+
+    private void wakeHeadWaiter() {
+        Thread w = headWaiter;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    private void emit(int s) {
+        int o = STRIDE * s;
+        int flags = state[o + 6];
+        Unit attacker = snapshot(units[2 * s],     state[o],     state[o + 1], state[o + 2], (flags & ATTACKER_ALIVE) != 0);
+        Unit target   = snapshot(units[2 * s + 1], state[o + 3], state[o + 4], state[o + 5], (flags & TARGET_ALIVE)   != 0);
+        units[2 * s] = units[2 * s + 1] = null;             // не держим юнитов после печати
+        sink.printBattleLog(attacker, target);
+    }
+
+    /** Копия юнита с состоянием на момент удара; карты бонусов общие, только для чтения. */
+    private static Unit snapshot(Unit u, int x, int y, int hp, boolean alive) {
+        if (u == null) return null;
+        Unit c = new Unit(u.getName(), u.getUnitType(), hp, u.getBaseAttack(), u.getCost(),
+                u.getAttackType(), u.getAttackBonuses(), u.getDefenceBonuses(), x, y);
+        c.setAlive(alive);
+        c.setProgram(u.getProgram());
+        return c;
+    }
+
+    private void rethrowFailure() {
+        Throwable f = failure;
+        if (f == null) return;
+        if (f instanceof RuntimeException re) throw re;
+        if (f instanceof Error er)            throw er;
+        throw new IllegalStateException(f);
+    }
+}
@@ -0,0 +1,135 @@
+package programs;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Метрики горячего пути боя — включаются по желанию.
+ *
+ * Что собирается (все распределения — {@link LogHistogram}):
+ *   roundsPerBattle — раундов в бою ({@link SimulateBattleImpl});
+ *   attacksPerRound — вызовов attack() за раунд;
+ *   attackNanos     — время внутри {@code Program.attack()};
+ *   pathSearchNanos — время {@link UnitTargetPathFinderImpl#getTargetPath},
+ *                     число поисков = count этой гистограммы;
+ *   cellsExpanded   — клеток, снятых с очереди BFS за поиск;
+ *   suitableNanos   — время {@link SuitableForAttackUnitsFinderImpl#getSuitableUnits}.
+ *
+ * Выключено — по умолчанию: каждое место замера стоит одно чтение
+ * volatile-флага {@link #isEnabled()}, поэтому код остаётся в сборке.
+ * Включение — {@code -Dheroes.metrics=true}, {@link #setEnabled} или
+ * атрибут Enabled в JMX.  Запись не выделяет памяти и безопасна из
+ * нескольких потоков (пакетные прогоны пишут параллельно).
+ *
+ * Чтение — {@link #snapshot()} или MXBean {@code programs:type=BattleMetrics}
+ * после {@link #registerMBean()}.
+ */
+public final class BattleMetrics {
+
+    /** Имя системного свойства, включающего сбор при старте. */
+    public static final String PROPERTY = "heroes.metrics";
+
+    /** Имя MXBean в платформенном MBeanServer. */
+    public static final String OBJECT_NAME = "programs:type=BattleMetrics";
+
+    private static final BattleMetrics GLOBAL = new BattleMetrics();
+    private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    /** Все распределения на момент снимка. */
+    public record Snapshot(LogHistogram.Snapshot roundsPerBattle,
+                           LogHistogram.Snapshot attacksPerRound,
+                           LogHistogram.Snapshot attackNanos,
+                           LogHistogram.Snapshot pathSearchNanos,
+                           LogHistogram.Snapshot cellsExpanded,
+                           LogHistogram.Snapshot suitableNanos) {}
+
+    private final LogHistogram roundsPerBattle = new LogHistogram();
+    private final LogHistogram attacksPerRound = new LogHistogram();
+    private final LogHistogram attackNanos     = new LogHistogram();
+    private final LogHistogram pathSearchNanos = new LogHistogram();
+    private final LogHistogram cellsExpanded   = new LogHistogram();
+    private final LogHistogram suitableNanos   = new LogHistogram();
+
+    private BattleMetrics() {}
+
+    /* ------------------------------------------------------------------  включение */
+
+    /** Общий для процесса набор метрик. */
+    public static BattleMetrics global() {
+        return GLOBAL;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /* ------------------------------------------------------------------  запись (без аллокаций) */
+
+    void recordBattle(int rounds)         { roundsPerBattle.record(rounds); }
+    void recordRound(int attacks)         { attacksPerRound.record(attacks); }
+    void recordAttack(long nanos)         { attackNanos.record(nanos); }
+    void recordPathSearch(long nanos)     { pathSearchNanos.record(nanos); }
+    void recordCellsExpanded(int cells)   { cellsExpanded.record(cells); }
+    void recordSuitable(long nanos)       { suitableNanos.record(nanos); }
+
+    /* ------------------------------------------------------------------  чтение */
+
+    public Snapshot snapshot() {
+        return new Snapshot(roundsPerBattle.snapshot(), attacksPerRound.snapshot(),
+                attackNanos.snapshot(), pathSearchNanos.snapshot(),
+                cellsExpanded.snapshot(), suitableNanos.snapshot());
+    }
+
+    public void reset() {
+        roundsPerBattle.reset();
+        attacksPerRound.reset();
+        attackNanos.reset();
+        pathSearchNanos.reset();
+        cellsExpanded.reset();
+        suitableNanos.reset();
+    }
+
+    /* ------------------------------------------------------------------  JMX */
+
+    /** Регистрирует {@link BattleMetricsMXBean} в платформенном MBeanServer; повторный вызов — no-op. */
+    public static synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName  name   = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) server.registerMBean(new Bean(), name);
+        } catch (InstanceAlreadyExistsException ignored) {
+            // зарегистрировали параллельно из другого загрузчика — это тот же бин по смыслу
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /** Плоское JMX-представление {@link #global()}: числа, понятные jconsole. */
+    private static final class Bean implements BattleMetricsMXBean {
+        private static LogHistogram.Snapshot s(LogHistogram h) { return h.snapshot(); }
+
+        @Override public boolean isEnabled()                { return BattleMetrics.isEnabled(); }
+        @Override public void    setEnabled(boolean on)     { BattleMetrics.setEnabled(on); }
+        @Override public void    reset()                    { GLOBAL.reset(); }
+
+        @Override public long   getBattles()                { return GLOBAL.roundsPerBattle.count(); }
+        @Override public double getRoundsPerBattleMean()    { return s(GLOBAL.roundsPerBattle).mean(); }
+        @Override public double getAttacksPerRoundMean()    { return s(GLOBAL.attacksPerRound).mean(); }
+        @Override public long   getAttackP50Nanos()         { return s(GLOBAL.attackNanos).p50(); }
+        @Override public long   getAttackP99Nanos()         { return s(GLOBAL.attackNanos).p99(); }
+        @Override public long   getPathSearches()           { return GLOBAL.pathSearchNanos.count(); }
+        @Override public long   getPathSearchP50Nanos()     { return s(GLOBAL.pathSearchNanos).p50(); }
+        @Override public long   getPathSearchP99Nanos()     { return s(GLOBAL.pathSearchNanos).p99(); }
+        @Override public long   getPathSearchMaxNanos()     { return s(GLOBAL.pathSearchNanos).max(); }
+        @Override public double getCellsExpandedMean()      { return s(GLOBAL.cellsExpanded).mean(); }
+        @Override public long   getSuitableCalls()          { return GLOBAL.suitableNanos.count(); }
+        @Override public long   getSuitableP99Nanos()       { return s(GLOBAL.suitableNanos).p99(); }
+    }
+}
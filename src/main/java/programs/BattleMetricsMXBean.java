@@ -0,0 +1,39 @@
+package programs;
+
+/**
+ * JMX-вид {@link BattleMetrics}: {@code programs:type=BattleMetrics}.
+ * Времена — в наносекундах, квантили — с точностью корзины ≈ 3 %.
+ */
+public interface BattleMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean on);
+
+    /** Обнуляет все распределения. */
+    void reset();
+
+    long getBattles();
+
+    double getRoundsPerBattleMean();
+
+    double getAttacksPerRoundMean();
+
+    long getAttackP50Nanos();
+
+    long getAttackP99Nanos();
+
+    long getPathSearches();
+
+    long getPathSearchP50Nanos();
+
+    long getPathSearchP99Nanos();
+
+    long getPathSearchMaxNanos();
+
+    double getCellsExpandedMean();
+
+    long getSuitableCalls();
+
+    long getSuitableP99Nanos();
+}
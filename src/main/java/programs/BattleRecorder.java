@@ -0,0 +1,252 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запись боёв в компактный двоичный файл — для воспроизведения
+ * и регрессионных сравнений ({@link BattleReplay}).
+ *
+ * Файл — последовательность записей боёв (big-endian):
+ *
+ *   заголовок, {@link #HEADER_BYTES} байт:
+ *     int  MAGIC "HBR1" | short FORMAT | short 0 | int units | int tableBytes
+ *     long events | int rounds | int turns
+ *     (rounds — раундов, в которых был хоть один ход: столько же
+ *     событий ROUND, последнее из них — номер rounds)
+ *   таблица юнитов (tableBytes), по юниту в порядке id (сначала армия
+ *     игрока, затем компьютера, как в {@link BattleState}):
+ *     byte side | byte alive | short 0 | int x | int y | int hp |
+ *     int baseAttack | int cost | str name | str type | str attackType |
+ *     bonuses attack | bonuses defence
+ *     (str — short длина + UTF-8; bonuses — short n + n × (str, double));
+ *   события, по {@link #EVENT_BYTES} байт:
+ *     int turn | byte kind | byte 0 | short 0 | int actor | int arg.
+ *
+ * Виды событий:
+ *   ROUND  — начало раунда, actor = номер раунда; turn — его первый ход;
+ *   ATTACK — ход: actor — атакующий, arg — цель или -1;
+ *   HP     — новое hp юнита actor = arg;
+ *   MOVE   — юнит actor стоит в новой клетке, arg = x << 16 | (y & 0xFFFF);
+ *   ALIVE  — флаг жизни юнита actor стал arg (0 / 1).
+ * turn — номер хода (1…turns), к которому относится событие; состояние
+ * «после хода t» — все события с turn ≤ t.  Перемещения и hp пишутся
+ * итоговые за ход (подход к цели и возврат не видны), смерти «не цели»
+ * — по сверке в конце раунда.
+ *
+ * Каждый бой пишет свой {@link Session}: события копятся в ByteBuffer
+ * сессии, а в {@link FileChannel} бой уходит целиком при
+ * {@link Session#close()} — под монитором, поэтому параллельные бои
+ * пакетного прогона могут писать в один файл.
+ */
+public final class BattleRecorder implements AutoCloseable {
+
+    public static final int MAGIC        = 0x48425231;   // "HBR1"
+    public static final int FORMAT       = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int EVENT_BYTES  = 16;
+
+    public static final byte ROUND  = 1;
+    public static final byte ATTACK = 2;
+    public static final byte HP     = 3;
+    public static final byte MOVE   = 4;
+    public static final byte ALIVE  = 5;
+
+    private final FileChannel channel;
+    private final AtomicLong  battles = new AtomicLong();
+
+    private BattleRecorder(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Новый файл записи (существующий перезаписывается). */
+    public static BattleRecorder create(Path file) throws IOException {
+        return new BattleRecorder(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /** Дописывать бои в конец файла. */
+    public static BattleRecorder append(Path file) throws IOException {
+        return new BattleRecorder(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+    }
+
+    /** Записано боёв этим экземпляром. */
+    public long battles() {
+        return battles.get();
+    }
+
+    /** Начинает запись боя: снимок юнитов в порядке id. */
+    Session begin(Unit[] units, byte[] side) {
+        return new Session(units, side);
+    }
+
+    private synchronized void write(ByteBuffer battle) {
+        try {
+            while (battle.hasRemaining()) channel.write(battle);
+        } catch (IOException e) {
+            throw new UncheckedIOException("battle recording", e);
+        }
+        battles.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /* ==================================================================  один бой */
+
+    /**
+     * Запись одного боя.  Последнее известное состояние каждого юнита
+     * хранится у сессии: после хода {@link #turn} сверяет атакующего и
+     * цель, в конце раунда {@link #endRound()} — всех, и пишет разницу.
+     * Один бой — один поток.
+     */
+    final class Session implements AutoCloseable {
+        private final Unit[]    units;
+        private final int[]     x, y, hp;
+        private final boolean[] alive;
+        private final int       tableBytes;
+        private ByteBuffer buf;
+        private long events;
+        private int  rounds, turns, pendingRound;
+        private boolean closed;
+
+        private Session(Unit[] units, byte[] side) {
+            int n = units.length;
+            this.units = units;
+            x = new int[n];
+            y = new int[n];
+            hp = new int[n];
+            alive = new boolean[n];
+
+            buf = ByteBuffer.allocate(HEADER_BYTES + 64 * n + 64 * EVENT_BYTES);
+            buf.position(HEADER_BYTES);                       // заголовок — в close(), когда известны счётчики
+            for (int id = 0; id < n; id++) {
+                Unit u = units[id];
+                x[id] = u.getxCoordinate();
+                y[id] = u.getyCoordinate();
+                hp[id] = u.getHealth();
+                alive[id] = u.isAlive();
+                ensure(32);
+                buf.put(side[id]).put((byte) (alive[id] ? 1 : 0)).putShort((short) 0)
+                   .putInt(x[id]).putInt(y[id]).putInt(hp[id])
+                   .putInt(u.getBaseAttack()).putInt(u.getCost());
+                putString(u.getName());
+                putString(u.getUnitType());
+                putString(u.getAttackType());
+                putBonuses(u.getAttackBonuses());
+                putBonuses(u.getDefenceBonuses());
+            }
+            tableBytes = buf.position() - HEADER_BYTES;
+        }
+
+        /**
+         * Начало раунда {@code round}.  Событие ROUND пишется вместе с
+         * первым ходом раунда и несёт его номер — так ход, закрывающий
+         * раунд, не «видит» следующий; раунд без ходов (бой закрыт сразу
+         * после его открытия) не попадает ни в поток, ни в счётчик rounds.
+         */
+        void round(int round) {
+            pendingRound = round;
+        }
+
+        /** Ход юнита {@code attacker} по цели {@code target} (-1 — без цели) и его итог. */
+        void turn(int attacker, int target) {
+            turns++;
+            if (pendingRound > 0) {
+                event(ROUND, pendingRound, 0);
+                rounds = pendingRound;
+                pendingRound = 0;
+            }
+            event(ATTACK, attacker, target);
+            diff(attacker);
+            if (target >= 0 && target != attacker) diff(target);
+        }
+
+        /** Сверка всех юнитов в конце раунда. */
+        void endRound() {
+            for (int id = 0; id < units.length; id++) diff(id);
+        }
+
+        private void diff(int id) {
+            Unit u = units[id];
+            int ux = u.getxCoordinate(), uy = u.getyCoordinate(), uh = u.getHealth();
+            boolean ua = u.isAlive();
+            if (uh != hp[id])                  { hp[id] = uh; event(HP, id, uh); }
+            if (ux != x[id] || uy != y[id])    { x[id] = ux; y[id] = uy; event(MOVE, id, packXY(ux, uy)); }
+            if (ua != alive[id])               { alive[id] = ua; event(ALIVE, id, ua ? 1 : 0); }
+        }
+
+        private void event(byte kind, int actor, int arg) {
+            ensure(EVENT_BYTES);
+            buf.putInt(turns).put(kind).put((byte) 0).putShort((short) 0).putInt(actor).putInt(arg);
+            events++;
+        }
+
+        /** Дописывает бой в файл.  Повторный вызов — no-op. */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            buf.putInt(0, MAGIC).putShort(4, (short) FORMAT).putShort(6, (short) 0)
+               .putInt(8, units.length).putInt(12, tableBytes)
+               .putLong(16, events).putInt(24, rounds).putInt(28, turns);
+            buf.flip();
+            write(buf);
+            buf = null;
+        }
+
+        /* ---------------------------------------------------------------  буфер */
+
+        private void ensure(int bytes) {
+            if (buf.remaining() >= bytes) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+
+        private void putString(String s) {
+            byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            if (b.length > Short.MAX_VALUE) throw new IllegalArgumentException("string too long: " + b.length);
+            ensure(2 + b.length);
+            buf.putShort((short) b.length).put(b);
+        }
+
+        private void putBonuses(Map<String, Double> m) {
+            int n = m == null ? 0 : m.size();
+            ensure(2);
+            buf.putShort((short) n);
+            if (n == 0) return;
+            for (Map.Entry<String, Double> e : m.entrySet()) {
+                putString(e.getKey());
+                ensure(8);
+                buf.putDouble(e.getValue() == null ? 1.0 : e.getValue());
+            }
+        }
+    }
+
+    /** Клетка в одном int: x — старшие 16 бит, y — младшие (со знаком). */
+    static int packXY(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    static int unpackX(int xy) {
+        return xy >> 16;
+    }
+
+    static int unpackY(int xy) {
+        return (short) xy;
+    }
+}
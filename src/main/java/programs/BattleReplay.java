@@ -0,0 +1,323 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение файла {@link BattleRecorder}: файл проецируется в память
+ * ({@link FileChannel#map}, только чтение), состояние на любом ходу
+ * восстанавливается применением событий к снимку — программы юнитов
+ * не запускаются.
+ *
+ * При открытии файл проходится по заголовкам (по 32 байта на бой) и
+ * делится на окна не больше {@link #MAX_WINDOW} байт из целых боёв.
+ * Окно отображается лениво при первом обращении к его бою; бой — срез
+ * окна, отдельного отображения на бой нет, так что файл с миллионами
+ * боёв стоит нескольких отображений, а не миллионов.  {@link Battle}
+ * не кешируется: {@link #battle(int)} каждый раз разбирает таблицу
+ * юнитов заново (O(N)).
+ *
+ * События фиксированной ширины и упорядочены по turn, поэтому граница
+ * «все события хода ≤ t» находится двоичным поиском, а {@link Battle#stateAt}
+ * стоит O(N + событий до хода t).
+ *
+ * Экземпляр можно читать из нескольких потоков: у каждого {@link Battle}
+ * свой срез окна.
+ */
+public final class BattleReplay implements AutoCloseable {
+
+    /** Наибольшее окно отображения — предел индекса ByteBuffer. */
+    static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long[]      offsets;           // начало боя i в файле
+    private final int[]       windowOf;          // окно боя i
+    private final long[]      windowStart;       // начало окна в файле
+    private final long[]      windowEnd;
+    private final MappedByteBuffer[] windows;
+
+    private BattleReplay(FileChannel channel, long[] offsets, long[] ends, long maxWindow) {
+        this.channel  = channel;
+        this.offsets  = offsets;
+        this.windowOf = new int[offsets.length];
+
+        List<long[]> bounds = new ArrayList<>();
+        long start = -1, end = -1;
+        for (int i = 0; i < offsets.length; i++) {
+            if (start < 0 || ends[i] - start > maxWindow) {
+                if (start >= 0) bounds.add(new long[] {start, end});
+                start = offsets[i];
+            }
+            end = ends[i];
+            windowOf[i] = bounds.size();
+        }
+        if (start >= 0) bounds.add(new long[] {start, end});
+        windowStart = new long[bounds.size()];
+        windowEnd   = new long[bounds.size()];
+        for (int w = 0; w < windowStart.length; w++) {
+            windowStart[w] = bounds.get(w)[0];
+            windowEnd[w]   = bounds.get(w)[1];
+        }
+        windows = new MappedByteBuffer[windowStart.length];
+    }
+
+    /** Открывает запись и индексирует бои; битый заголовок — IOException. */
+    public static BattleReplay open(Path file) throws IOException {
+        return open(file, MAX_WINDOW);
+    }
+
+    /** То же с окнами не больше {@code maxWindow} байт. */
+    static BattleReplay open(Path file, long maxWindow) throws IOException {
+        if (maxWindow < 1 || maxWindow > MAX_WINDOW) throw new IllegalArgumentException("window " + maxWindow);
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            List<Long> offs = new ArrayList<>(), ends = new ArrayList<>();
+            ByteBuffer header = ByteBuffer.allocate(BattleRecorder.HEADER_BYTES);
+            long pos = 0, size = ch.size();
+            while (pos < size) {
+                header.clear();
+                while (header.hasRemaining() && ch.read(header, pos + header.position()) >= 0) { }
+                if (header.hasRemaining())                                throw new IOException("truncated header at " + pos);
+                if (header.getInt(0) != BattleRecorder.MAGIC)             throw new IOException("bad magic at " + pos);
+                if (header.getShort(4) != BattleRecorder.FORMAT)          throw new IOException("unsupported format " + header.getShort(4));
+                long length = battleBytes(header.getInt(12), header.getLong(16));
+                if (pos + length > size)                                  throw new IOException("truncated battle at " + pos);
+                if (length > maxWindow)                                   throw new IOException("battle at " + pos + " is larger than the map window");
+                offs.add(pos);
+                ends.add(pos + length);
+                pos += length;
+            }
+            long[] offsets = new long[offs.size()], endsArr = new long[offs.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = offs.get(i);
+                endsArr[i] = ends.get(i);
+            }
+            return new BattleReplay(ch, offsets, endsArr, maxWindow);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private static long battleBytes(int tableBytes, long events) {
+        return BattleRecorder.HEADER_BYTES + (long) tableBytes + events * BattleRecorder.EVENT_BYTES;
+    }
+
+    public int battles() {
+        return offsets.length;
+    }
+
+    /** Число окон отображения. */
+    int windows() {
+        return windows.length;
+    }
+
+    /** Бой {@code index} (0…battles()-1) — срез своего окна; окно отображается при первом обращении. */
+    public Battle battle(int index) throws IOException {
+        int w = windowOf[index];
+        int from = (int) (offsets[index] - windowStart[w]);
+        int to   = index + 1 < offsets.length && windowOf[index + 1] == w
+                 ? (int) (offsets[index + 1] - windowStart[w])
+                 : (int) (windowEnd[w] - windowStart[w]);
+        return new Battle(window(w).slice(from, to - from));
+    }
+
+    private synchronized MappedByteBuffer window(int w) throws IOException {
+        MappedByteBuffer m = windows[w];
+        if (m == null)
+            m = windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, windowStart[w], windowEnd[w] - windowStart[w]);
+        return m;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();                      // отображения остаются валидны до сборки мусора
+    }
+
+    /* ==================================================================  один бой */
+
+    /** Бой — срез окна: снимок юнитов и поток событий. */
+    public static final class Battle {
+        private final ByteBuffer map;
+        private final int  units, rounds, turns, eventsAt;
+        private final long events;
+
+        /* снимок в SoA, как в CompactBattle */
+        private final byte[]    side;
+        private final boolean[] alive0;
+        private final int[]     x0, y0, hp0, attack, cost;
+        private final String[]  name, type, attackType;
+        private final List<Map<String, Double>> attackBonuses, defenceBonuses;
+
+        private Battle(ByteBuffer map) {
+            this.map = map;
+            units  = map.getInt(8);
+            events = map.getLong(16);
+            rounds = map.getInt(24);
+            turns  = map.getInt(28);
+            eventsAt = BattleRecorder.HEADER_BYTES + map.getInt(12);
+
+            side = new byte[units];
+            alive0 = new boolean[units];
+            x0 = new int[units]; y0 = new int[units]; hp0 = new int[units];
+            attack = new int[units]; cost = new int[units];
+            name = new String[units]; type = new String[units]; attackType = new String[units];
+            attackBonuses  = new ArrayList<>(units);
+            defenceBonuses = new ArrayList<>(units);
+
+            ByteBuffer in = map.duplicate();
+            in.position(BattleRecorder.HEADER_BYTES);
+            for (int id = 0; id < units; id++) {
+                side[id]   = in.get();
+                alive0[id] = in.get() != 0;
+                in.getShort();
+                x0[id] = in.getInt();
+                y0[id] = in.getInt();
+                hp0[id] = in.getInt();
+                attack[id] = in.getInt();
+                cost[id] = in.getInt();
+                name[id] = string(in);
+                type[id] = string(in);
+                attackType[id] = string(in);
+                attackBonuses.add(bonuses(in));
+                defenceBonuses.add(bonuses(in));
+            }
+        }
+
+        public int  units()  { return units; }
+        public int  rounds() { return rounds; }
+        /** Число ходов (вызовов attack()) в бою. */
+        public int  turns()  { return turns; }
+        public long events() { return events; }
+
+        /* ---------------------------------------------------------------  события */
+
+        public int  eventTurn(long e)  { return map.getInt(eventAt(e)); }
+        public byte eventKind(long e)  { return map.get(eventAt(e) + 4); }
+        public int  eventActor(long e) { return map.getInt(eventAt(e) + 8); }
+        public int  eventArg(long e)   { return map.getInt(eventAt(e) + 12); }
+
+        private int eventAt(long e) {
+            if (e < 0 || e >= events) throw new IndexOutOfBoundsException("event " + e);
+            return eventsAt + (int) e * BattleRecorder.EVENT_BYTES;
+        }
+
+        /** Число событий с turn ≤ {@code turn} — двоичный поиск. */
+        long eventsUpTo(int turn) {
+            long lo = 0, hi = events;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (eventTurn(mid) <= turn) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+
+        /* ---------------------------------------------------------------  состояние */
+
+        /** Состояние после хода {@code turn} (0 — начальный снимок, turns() — конец боя). */
+        public Frame stateAt(int turn) {
+            Frame f = new Frame(this, Math.max(0, Math.min(turn, turns)));
+            long end = eventsUpTo(f.turn);
+            for (long e = 0; e < end; e++) {
+                int at = eventAt(e), id = map.getInt(at + 8), arg = map.getInt(at + 12);
+                switch (map.get(at + 4)) {
+                    case BattleRecorder.ROUND:  f.round = id; break;
+                    case BattleRecorder.HP:     f.hp[id] = arg; break;
+                    case BattleRecorder.MOVE:   f.x[id] = BattleRecorder.unpackX(arg);
+                                                f.y[id] = BattleRecorder.unpackY(arg); break;
+                    case BattleRecorder.ALIVE:  f.alive[id] = arg != 0; break;
+                    default: break;                         // ATTACK — только для чтения потока
+                }
+            }
+            return f;
+        }
+
+        public Frame finalState() {
+            return stateAt(turns);
+        }
+
+        private static String string(ByteBuffer in) {
+            byte[] b = new byte[in.getShort()];
+            in.get(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        private static Map<String, Double> bonuses(ByteBuffer in) {
+            int n = in.getShort();
+            Map<String, Double> m = new HashMap<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                String k = string(in);
+                m.put(k, in.getDouble());
+            }
+            return m;
+        }
+    }
+
+    /**
+     * Состояние боя после хода {@link #turn()}: координаты, hp и жизнь
+     * каждого юнита по id.  {@link #army(int)} собирает из него свежие
+     * {@link Unit} без программ — например, для сравнения с живым боем.
+     */
+    public static final class Frame {
+        private final Battle battle;
+        private final int turn;
+        private int round;
+        private final int[]     x, y, hp;
+        private final boolean[] alive;
+
+        private Frame(Battle b, int turn) {
+            this.battle = b;
+            this.turn   = turn;
+            x = b.x0.clone();
+            y = b.y0.clone();
+            hp = b.hp0.clone();
+            alive = b.alive0.clone();
+        }
+
+        public int     turn()       { return turn; }
+        /** Раунд, в котором сделан ход {@link #turn()}; 0 — до начала боя. */
+        public int     round()      { return round; }
+        public int     size()       { return x.length; }
+        public int     side(int id) { return battle.side[id]; }
+        public String  name(int id) { return battle.name[id]; }
+        public int     x(int id)    { return x[id]; }
+        public int     y(int id)    { return y[id]; }
+        public int     hp(int id)   { return hp[id]; }
+        public boolean isAlive(int id) { return alive[id]; }
+
+        public int aliveCount(int side) {
+            int n = 0;
+            for (int id = 0; id < alive.length; id++) if (alive[id] && battle.side[id] == side) n++;
+            return n;
+        }
+
+        /** Армия стороны {@code side} ({@link BattleState#PLAYER} / {@link BattleState#COMPUTER}) в этом состоянии. */
+        public Army army(int side) {
+            List<Unit> list = new ArrayList<>();
+            for (int id = 0; id < alive.length; id++) {
+                if (battle.side[id] != side) continue;
+                Unit u = new Unit(battle.name[id], battle.type[id], battle.hp0[id], battle.attack[id],
+                        battle.cost[id], battle.attackType[id],
+                        battle.attackBonuses.get(id), battle.defenceBonuses.get(id), x[id], y[id]);
+                u.setHealth(hp[id]);
+                u.setAlive(alive[id]);
+                list.add(u);
+            }
+            Army a = new Army();
+            a.setUnits(list);
+            return a;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Снимок состояния боя с дешёвым {@link #fork()} — для просмотра
+ * вперёд (lookahead / MCTS) без глубоких копий армий.
+ *
+ * База — неизменяемые массивы по id (сначала армия игрока, затем
+ * компьютера, как в {@link BattleState}): ссылки на Unit, армия, hp,
+ * клетка и жизнь на момент {@link #of}.  Карты бонусов, имена и
+ * программы юнитов не копируются никогда.
+ *
+ * Поверх базы — дельта: открытая адресация id → (hp, клетка, жизнь)
+ * только для изменённых юнитов.  {@link #fork()} — O(1): новый снимок
+ * делит дельту с родителем, и тот из двух, кто пишет первым, копирует
+ * её (O(изменённых), не O(N)).  Чтение — O(1): дельта, затем база.
+ *
+ * Связь с настоящими юнитами:
+ *   {@link #applyTo()} — записывает состояние снимка в Unit базы (hp,
+ *                        клетка, жизнь) — «сделать форк реальностью»
+ *                        или откатить юнитов к корню перед новым прогоном;
+ *   {@link #capture()} — обратное: дельта := отличия текущих Unit от базы.
+ * Так прогон может идти и настоящими программами ({@link BattleStepper}):
+ * root.applyTo() → ходы → root.fork().capture().
+ *
+ * Каждая запись правит и {@link ZobristHash} снимка ({@link #hash()}),
+ * так что одинаковые позиции разных прогонов узнаются в
+ * {@link TranspositionTable}.
+ *
+ * Снимок не потокобезопасен, но разные форки одной базы можно
+ * читать и менять из разных потоков: общего изменяемого у них нет.
+ */
+public final class BattleSnapshot {
+
+    public static final int PLAYER   = BattleState.PLAYER;
+    public static final int COMPUTER = BattleState.COMPUTER;
+
+    /* ==================================================================  база */
+
+    private static final class Base {
+        final Unit[]    units;
+        final byte[]    side;
+        final int[]     hp, pos;
+        final boolean[] alive;
+        final int[]     aliveCount = new int[2];
+        final long[]    typeKey;
+        final long      hash;
+        final Map<Unit, Integer> ids;
+
+        Base(BattleState s) {
+            int n = s.size();
+            units = s.units.clone();
+            side  = s.side.clone();
+            hp    = new int[n];
+            pos   = new int[n];
+            alive = new boolean[n];
+            ids   = new IdentityHashMap<>(n * 2);
+            typeKey = new long[n];
+            long h = 0;
+            for (int id = 0; id < n; id++) {
+                Unit u = units[id];
+                hp[id]    = u.getHealth();
+                pos[id]   = BattleRecorder.packXY(u.getxCoordinate(), u.getyCoordinate());
+                alive[id] = u.isAlive();
+                if (alive[id]) aliveCount[side[id]]++;
+                ids.put(u, id);
+                typeKey[id] = ZobristHash.typeKey(u.getUnitType());
+                h += ZobristHash.unit(typeKey[id], side[id], u);
+            }
+            hash = h;
+        }
+    }
+
+    /* ==================================================================  дельта */
+
+    /** id → состояние юнита; keys[i] = id + 1, 0 — пустая ячейка. */
+    private static final class Delta {
+        int[]     keys;
+        int[]     hp, pos;
+        boolean[] alive;
+        int       size;
+
+        Delta(int capacity) {
+            keys  = new int[capacity];
+            hp    = new int[capacity];
+            pos   = new int[capacity];
+            alive = new boolean[capacity];
+        }
+
+        private Delta(Delta d) {
+            keys  = d.keys.clone();
+            hp    = d.hp.clone();
+            pos   = d.pos.clone();
+            alive = d.alive.clone();
+            size  = d.size;
+        }
+
+        Delta copy() {
+            return new Delta(this);
+        }
+
+        /** Ячейка id или -(свободная ячейка) - 1. */
+        int find(int id) {
+            int mask = keys.length - 1;
+            for (int i = mix(id) & mask; ; i = (i + 1) & mask) {
+                int k = keys[i];
+                if (k == id + 1) return i;
+                if (k == 0)      return -i - 1;
+            }
+        }
+
+        /** Ячейка id, при отсутствии — новая, заполненная из базы. */
+        int slot(int id, Base base) {
+            int i = find(id);
+            if (i >= 0) return i;
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                i = find(id);
+            }
+            i = -i - 1;
+            keys[i]  = id + 1;
+            hp[i]    = base.hp[id];
+            pos[i]   = base.pos[id];
+            alive[i] = base.alive[id];
+            size++;
+            return i;
+        }
+
+        private void grow() {
+            int[] k0 = keys, h0 = hp, p0 = pos;
+            boolean[] a0 = alive;
+            int cap = k0.length * 2;
+            keys  = new int[cap];
+            hp    = new int[cap];
+            pos   = new int[cap];
+            alive = new boolean[cap];
+            for (int j = 0; j < k0.length; j++) {
+                if (k0[j] == 0) continue;
+                int i = -find(k0[j] - 1) - 1;
+                keys[i] = k0[j]; hp[i] = h0[j]; pos[i] = p0[j]; alive[i] = a0[j];
+            }
+        }
+
+        private static int mix(int id) {
+            return id * 0x9E3779B9 >>> 7;
+        }
+    }
+
+    private static final int INITIAL_DELTA = 8;
+
+    private final Base  base;
+    private Delta       delta;
+    /** дельта разделена с родителем / форком — перед записью копируем */
+    private boolean     shared;
+    private final int[] aliveCount = new int[2];
+    /** {@link ZobristHash} позиции — правится на каждую запись */
+    private long        hash;
+
+    private BattleSnapshot(Base base, Delta delta, int[] aliveCount, long hash) {
+        this.base  = base;
+        this.delta = delta;
+        this.hash  = hash;
+        System.arraycopy(aliveCount, 0, this.aliveCount, 0, 2);
+    }
+
+    /** Снимок текущего состояния армий — новая база. O(N). */
+    public static BattleSnapshot of(Army player, Army computer) {
+        Base b = new Base(BattleState.of(player, computer));
+        return new BattleSnapshot(b, null, b.aliveCount, b.hash);
+    }
+
+    /** Независимая копия за O(1): дельта общая до первой записи. */
+    public BattleSnapshot fork() {
+        BattleSnapshot f = new BattleSnapshot(base, delta, aliveCount, hash);
+        if (delta != null) {
+            shared   = true;
+            f.shared = true;
+        }
+        return f;
+    }
+
+    /* ------------------------------------------------------------------  чтение */
+
+    public int size() {
+        return base.units.length;
+    }
+
+    /** id юнита базы или -1. */
+    public int idOf(Unit u) {
+        Integer id = base.ids.get(u);
+        return id == null ? -1 : id;
+    }
+
+    public Unit unit(int id) {
+        return base.units[id];
+    }
+
+    public int side(int id) {
+        return base.side[id];
+    }
+
+    public int hp(int id) {
+        int i = delta == null ? -1 : delta.find(id);
+        return i >= 0 ? delta.hp[i] : base.hp[id];
+    }
+
+    public int x(int id) {
+        return BattleRecorder.unpackX(pos(id));
+    }
+
+    public int y(int id) {
+        return BattleRecorder.unpackY(pos(id));
+    }
+
+    private int pos(int id) {
+        int i = delta == null ? -1 : delta.find(id);
+        return i >= 0 ? delta.pos[i] : base.pos[id];
+    }
+
+    public boolean isAlive(int id) {
+        int i = delta == null ? -1 : delta.find(id);
+        return i >= 0 ? delta.alive[i] : base.alive[id];
+    }
+
+    public int aliveCount(int side) {
+        return aliveCount[side];
+    }
+
+    /** {@link ZobristHash} позиции снимка — ключ для {@link TranspositionTable}. */
+    public long hash() {
+        return hash;
+    }
+
+    /** Юнитов, отличающихся от базы (размер дельты). */
+    public int changed() {
+        return delta == null ? 0 : delta.size;
+    }
+
+    /* ------------------------------------------------------------------  запись */
+
+    /** Урон {@code amount}; при hp ≤ 0 юнит погибает. */
+    public void damage(int id, int amount) {
+        int i = writable(id);
+        hash -= contribution(i, id);
+        delta.hp[i] -= amount;
+        if (delta.hp[i] <= 0) markDead(i, id);
+        hash += contribution(i, id);
+    }
+
+    /** hp без смерти / воскрешения — жизнь меняют {@link #damage} и {@link #kill}. */
+    public void setHp(int id, int hp) {
+        int i = writable(id);
+        hash -= contribution(i, id);
+        delta.hp[i] = hp;
+        hash += contribution(i, id);
+    }
+
+    public void moveTo(int id, int x, int y) {
+        int i = writable(id);
+        hash -= contribution(i, id);
+        delta.pos[i] = BattleRecorder.packXY(x, y);
+        hash += contribution(i, id);
+    }
+
+    public void kill(int id) {
+        int i = writable(id);
+        hash -= contribution(i, id);
+        markDead(i, id);
+    }
+
+    /** Вклад юнита из ячейки дельты {@code i} в хеш; погибший — 0. */
+    private long contribution(int i, int id) {
+        if (!delta.alive[i]) return 0L;
+        int p = delta.pos[i];
+        return ZobristHash.unit(base.typeKey[id], base.side[id],
+                BattleRecorder.unpackX(p), BattleRecorder.unpackY(p), delta.hp[i]);
+    }
+
+    private void markDead(int i, int id) {
+        if (!delta.alive[i]) return;
+        delta.alive[i] = false;
+        aliveCount[base.side[id]]--;
+    }
+
+    /** Ячейка дельты под запись: копия общей дельты, если нужно. */
+    private int writable(int id) {
+        if (delta == null) {
+            delta = new Delta(INITIAL_DELTA);
+        } else if (shared) {
+            delta  = delta.copy();
+            shared = false;
+        }
+        return delta.slot(id, base);
+    }
+
+    /* ------------------------------------------------------------------  Unit */
+
+    /**
+     * Записывает состояние снимка в юнитов базы: hp, клетку и жизнь
+     * каждого.  O(N), без аллокаций.
+     */
+    public void applyTo() {
+        for (int id = 0; id < base.units.length; id++) {
+            Unit u = base.units[id];
+            int p = pos(id);
+            u.setHealth(hp(id));
+            u.setxCoordinate(BattleRecorder.unpackX(p));
+            u.setyCoordinate(BattleRecorder.unpackY(p));
+            u.setAlive(isAlive(id));
+        }
+    }
+
+    /**
+     * Дельта := отличия текущего состояния юнитов базы от базы
+     * (то, что сделали с ними настоящие программы).  O(N).
+     */
+    public void capture() {
+        delta  = null;
+        shared = false;
+        hash   = base.hash;
+        System.arraycopy(base.aliveCount, 0, aliveCount, 0, 2);
+        for (int id = 0; id < base.units.length; id++) {
+            Unit u = base.units[id];
+            int h = u.getHealth(), p = BattleRecorder.packXY(u.getxCoordinate(), u.getyCoordinate());
+            boolean a = u.isAlive();
+            if (h == base.hp[id] && p == base.pos[id] && a == base.alive[id]) continue;
+            int i = writable(id);
+            hash -= contribution(i, id);
+            delta.hp[i]  = h;
+            delta.pos[i] = p;
+            if (a != delta.alive[i]) {
+                delta.alive[i] = a;
+                aliveCount[base.side[id]] += a ? 1 : -1;
+            }
+            hash += contribution(i, id);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BattleSnapshot{units=" + size() + ", changed=" + changed()
+                + ", alive=" + Arrays.toString(aliveCount) + '}';
+    }
+}
@@ -0,0 +1,191 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Таблица юнитов одного боя.
+ *
+ * Каждый юнит обеих армий получает id — индекс в плоских массивах
+ * (сначала армия игрока, затем компьютера, в порядке списков):
+ *   side[id]  — армия юнита ({@link #PLAYER} / {@link #COMPUTER});
+ *   alive[id] — последнее известное состояние isAlive;
+ *   aliveCount[side] — сколько живых в армии.
+ *
+ * Вместо линейных contains() и hasAlive() по спискам армий перед
+ * каждым ударом симулятор спрашивает эту таблицу — O(1).
+ *
+ * Очередь ходов {@link #turnOrder} сортируется один раз на бой:
+ * baseAttack DESC, при равенстве — по id, т.е. в порядке «армия игрока,
+ * затем компьютера, как в списках» (ровно как устойчивая сортировка
+ * прежней очереди).  baseAttack в бою не меняется, поэтому между
+ * раундами из очереди достаточно выбросить погибших — O(N) на месте.
+ *
+ * Актуальность: бой меняет юнитов через их программы, поэтому после
+ * хода симулятор вызывает {@link #sync(int)} для атакующего и цели;
+ * на границе раундов — {@link #resync()} по всем (O(N), как и сам раунд),
+ * чтобы не пропустить юнита, убитого «не целью».
+ *
+ * Там же поддерживается {@link ZobristHash} позиции ({@link #hash}):
+ * sync пересчитывает вклад юнита и прибавляет разницу.
+ *
+ * Не потокобезопасна: один бой — один поток.
+ */
+final class BattleState {
+
+    static final int PLAYER   = 0;
+    static final int COMPUTER = 1;
+
+    final Unit[]    units;
+    final byte[]    side;
+    final boolean[] alive;
+    final int[]     aliveCount = new int[2];
+
+    /** ids в порядке ходов; живые — в префиксе длины {@link #turnCount} */
+    final int[] turnOrder;
+    int turnCount;
+
+    /** занятость поля, синхронизируется вместе с alive */
+    final OccupancyIndex occupancy;
+
+    /** {@link ZobristHash} позиции и вклад в него каждого юнита — обновляются в sync */
+    long hash;
+    private final long[] typeKey, contribution;
+
+    private final Map<Unit, Integer> ids;
+
+    private BattleState(List<Unit> all, List<Integer> sides) {
+        int n = all.size();
+        units = all.toArray(new Unit[0]);
+        side  = new byte[n];
+        alive = new boolean[n];
+        ids   = new IdentityHashMap<>(n * 2);
+        typeKey      = new long[n];
+        contribution = new long[n];
+        for (int id = 0; id < n; id++) {
+            ids.put(units[id], id);
+            side[id]         = (byte) (int) sides.get(id);
+            typeKey[id]      = ZobristHash.typeKey(units[id].getUnitType());
+            contribution[id] = ZobristHash.unit(typeKey[id], side[id], units[id]);
+            hash += contribution[id];
+            if (units[id].isAlive()) {
+                alive[id] = true;
+                aliveCount[side[id]]++;
+            }
+        }
+        turnOrder = sortedByAttack(units);
+        turnCount = n;
+        occupancy = new OccupancyIndex(this);
+    }
+
+    private static int[] sortedByAttack(Unit[] units) {
+        int[] attack = new int[units.length];
+        for (int id = 0; id < units.length; id++) attack[id] = units[id].getBaseAttack();
+        return sortedByAttack(attack);
+    }
+
+    /**
+     * ids по attack[id] DESC, при равенстве — по id ASC; общий порядок
+     * ходов для {@link BattleState} и {@link CompactBattleSimulator}.
+     * Ключ long: старшие 32 бита — (-attack), младшие — id,
+     * поэтому хватает примитивной Arrays.sort без компаратора.
+     */
+    static int[] sortedByAttack(int[] attack) {
+        long[] keys = new long[attack.length];
+        for (int id = 0; id < attack.length; id++)
+            keys[id] = (-(long) attack[id] << 32) | id;
+        Arrays.sort(keys);
+        int[] order = new int[attack.length];
+        for (int i = 0; i < order.length; i++) order[i] = (int) keys[i];
+        return order;
+    }
+
+    /** Таблица по текущему составу армий.  O(N). */
+    static BattleState of(Army player, Army computer) {
+        List<Unit>    all   = new ArrayList<>();
+        List<Integer> sides = new ArrayList<>();
+        enlist(player, computer, all, sides);
+        return new BattleState(all, sides);
+    }
+
+    /**
+     * Юниты обеих армий в порядке id — сначала игрока, затем компьютера —
+     * в {@code all}, их стороны — в {@code sides}.  null пропускаются;
+     * юнит, попавший в обе армии, учитывается один раз — за первой.
+     * Нумерация общая для {@link BattleState} и {@link CompactBattle}.
+     */
+    static void enlist(Army player, Army computer, List<Unit> all, List<Integer> sides) {
+        Map<Unit, Boolean> seen = new IdentityHashMap<>();
+        for (int s = PLAYER; s <= COMPUTER; s++) {
+            Army a = s == PLAYER ? player : computer;
+            if (a == null || a.getUnits() == null) continue;
+            for (Unit u : a.getUnits()) {
+                if (u == null || seen.put(u, Boolean.TRUE) != null) continue; // юнит в двух армиях — первая
+                all.add(u);
+                sides.add(s);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------------  чтение */
+
+    int size() {
+        return units.length;
+    }
+
+    /** id юнита или -1, если юнит не участвует в бою. */
+    int idOf(Unit u) {
+        Integer id = ids.get(u);
+        return id == null ? -1 : id;
+    }
+
+    boolean hasAlive(int s) {
+        return aliveCount[s] > 0;
+    }
+
+    /** У юнита {@code id} остались живые противники. */
+    boolean hasEnemy(int id) {
+        return aliveCount[1 - side[id]] > 0;
+    }
+
+    /* ------------------------------------------------------------------  обновление */
+
+    /** Подтягивает состояние юнита {@code id} (жив/мёртв, клетка, hp в хеше).  O(1). */
+    void sync(int id) {
+        boolean now = units[id].isAlive();
+        if (now != alive[id]) {
+            alive[id] = now;
+            aliveCount[side[id]] += now ? 1 : -1;
+        }
+        occupancy.sync(id);
+        long c = ZobristHash.unit(typeKey[id], side[id], units[id]);
+        hash += c - contribution[id];
+        contribution[id] = c;
+    }
+
+    /**
+     * Начало раунда: выбрасывает из очереди ходов погибших, сохраняя
+     * порядок остальных.  Без аллокаций, O(N).
+     *
+     * @return число живых в очереди — они лежат в turnOrder[0..count)
+     */
+    int compactTurnOrder() {
+        int w = 0;
+        for (int i = 0; i < turnCount; i++) {
+            int id = turnOrder[i];
+            if (alive[id]) turnOrder[w++] = id;
+        }
+        return turnCount = w;
+    }
+
+    /** Полная сверка со всеми юнитами.  O(N). */
+    void resync() {
+        for (int id = 0; id < units.length; id++) sync(id);
+    }
+}
@@ -0,0 +1,331 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.PrintBattleLog;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Пошаговый бой: тот же раунд и та же очередь ходов, что у
+ * {@link SimulateBattleImpl}, но ход делает вызывающий.
+ *
+ *   {@link #step()}      — один вызов attack(), результат — {@link Turn};
+ *   {@link #stepRound()} — ходы до конца текущего раунда;
+ *   {@link #runUntil}    — до конца боя или до условия остановки
+ *                          (например, решающего перевеса по hp);
+ *   {@link #close()}     — прекратить бой досрочно.
+ * Шаги ленивые: ни один attack() не вызывается, пока его не попросили,
+ * поэтому экземпляр — это и {@link Iterator}, и {@link #stream()}.
+ *
+ * {@link SimulateBattleImpl#run} — просто проход по всем шагам, так что
+ * порядок ходов, лог, метрики и запись боя у обоих путей одинаковы.
+ * {@link OccupancyIndex} боя ставится в поток только на время attack(),
+ * поэтому шаги можно делать из разных потоков — по одному за раз.
+ *
+ * Конец боя ({@link #hasNext()} == false): у одной из армий нет живых,
+ * у ходящего не осталось противников или исчерпан лимит раундов.
+ * Тогда дописывается запись боя и в метрики уходит число раундов;
+ * досрочный {@link #close()} тоже дописывает запись, но бой в метрики
+ * не пишет.  Закрывать экземпляр нужно всегда (try-with-resources):
+ * close() допечатывает асинхронный лог.  Прерывание во время close()
+ * не бросается, а восстанавливает флаг interrupt; дождаться лога
+ * прерываемо — {@link #awaitClosed()}.
+ *
+ * Не потокобезопасен: один шаг за раз.
+ */
+public final class BattleStepper implements Iterator<BattleStepper.Turn>, AutoCloseable {
+
+    public static final int PLAYER   = BattleState.PLAYER;
+    public static final int COMPUTER = BattleState.COMPUTER;
+
+    /** Итог одного хода — снимок на момент сразу после attack(). */
+    public static final class Turn {
+        private final int  round;
+        private final Unit attacker, target;
+        private final int  targetHp;
+        private final boolean killed;
+
+        Turn(int round, Unit attacker, Unit target) {
+            this.round    = round;
+            this.attacker = attacker;
+            this.target   = target;
+            this.targetHp = target == null ? 0 : target.getHealth();
+            this.killed   = target != null && !target.isAlive();
+        }
+
+        public int     round()    { return round; }
+        public Unit    attacker() { return attacker; }
+        /** Цель хода или null, если атаковать было некого. */
+        public Unit    target()   { return target; }
+        /** hp цели сразу после удара. */
+        public int     targetHp() { return targetHp; }
+        /** Цель погибла этим ходом (или уже была мертва). */
+        public boolean killed()   { return killed; }
+    }
+
+    private final BattleState            state;
+    private final int                    maxRounds;
+    private final PrintBattleLog         log;
+    private final BattleLogPipeline      pipeline;
+    private final BattleRecorder.Session rec;
+    private final boolean                metered;
+    private final BattleMetrics          metrics;
+
+    private int     rounds;
+    private boolean inRound, over, ended;
+    private int     count, pos, attacks;
+
+    BattleStepper(BattleState state, int maxRounds, PrintBattleLog printBattleLog,
+                  BattleLogPipeline.Overflow asyncLog, BattleRecorder recorder) {
+        this.state     = state;
+        this.maxRounds = maxRounds;
+        // Медленный лог не должен тормозить бой — печать в отдельном потоке.
+        this.pipeline  = (printBattleLog != null && asyncLog != null)
+                ? new BattleLogPipeline(printBattleLog, BattleLogPipeline.DEFAULT_CAPACITY,
+                                        BattleLogPipeline.DEFAULT_BATCH_SIZE, asyncLog)
+                : null;
+        this.log       = pipeline != null ? pipeline : printBattleLog;
+        // Метрики: флаг читаем один раз на бой; выключены — ни одного nanoTime.
+        this.metered   = BattleMetrics.isEnabled();
+        this.metrics   = BattleMetrics.global();
+        this.rec       = recorder != null ? recorder.begin(state.units, state.side) : null;
+    }
+
+    /* ------------------------------------------------------------------  шаги */
+
+    /** Есть ещё ход.  Может закрыть раунд (сверка таблицы) и начать следующий. */
+    @Override
+    public boolean hasNext() {
+        return advance();
+    }
+
+    /**
+     * Один ход: следующий живой юнит очереди вызывает attack().
+     *
+     * @throws NoSuchElementException бой окончен
+     */
+    public Turn step() throws InterruptedException {
+        if (!advance()) throw new NoSuchElementException("battle is over");
+        int  id       = state.turnOrder[pos++];
+        Unit attacker = state.units[id];
+
+        OccupancyIndex outer = OccupancyIndex.current();
+        OccupancyIndex.setCurrent(state.occupancy);   // finder'ы читают её вместо списков армий
+        Unit target;
+        try {
+            long t0 = metered ? System.nanoTime() : 0L;
+            target = attacker.getProgram().attack();
+            if (metered) metrics.recordAttack(System.nanoTime() - t0);
+        } catch (InterruptedException | RuntimeException | Error e) {
+            close();
+            throw e;
+        } finally {
+            OccupancyIndex.setCurrent(outer);
+        }
+        attacks++;
+
+        // Ход мог сдвинуть атакующего и убить цель — обновляем таблицу.
+        state.sync(id);
+        int tid = state.idOf(target);
+        if (tid >= 0) state.sync(tid);
+        if (rec != null) rec.turn(id, tid);
+
+        if (log != null) log.printBattleLog(attacker, target);
+        return new Turn(rounds, attacker, target);
+    }
+
+    /**
+     * Ходы до конца текущего раунда (или боя).  Следующий раунд не
+     * открывается: после возврата {@link #rounds()} — номер сыгранного
+     * раунда, даже если дальше вызывают только {@link #close()}.
+     *
+     * @return сделано ходов
+     */
+    public int stepRound() throws InterruptedException {
+        if (!advance()) return 0;
+        int n = 0;
+        do {
+            step();
+            n++;
+        } while (inRound && seekInRound());
+        if (!ended && battleOver()) advance();           // бой решён — закрываем его, как доигранный
+        return n;
+    }
+
+    /**
+     * Ходы до конца боя, пока {@code stop} не скажет «хватит» (проверяется
+     * перед каждым ходом).  Остановленный бой закрывается.
+     *
+     * @return true — бой остановлен условием, false — доигран
+     */
+    public boolean runUntil(Predicate<? super BattleStepper> stop) throws InterruptedException {
+        while (advance()) {
+            if (stop.test(this)) {
+                close();
+                return true;
+            }
+            step();
+        }
+        return false;
+    }
+
+    /**
+     * {@link Iterator#next()} поверх {@link #step()}: прерывание потока
+     * закрывает бой, восстанавливает флаг interrupt и бросает
+     * {@link CancellationException}.
+     */
+    @Override
+    public Turn next() {
+        try {
+            return step();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException ce = new CancellationException("battle interrupted");
+            ce.initCause(e);
+            throw ce;
+        }
+    }
+
+    /** Ленивый поток ходов; закрытие потока закрывает бой. */
+    public Stream<Turn> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * Ставит очередь на следующий ход: пропускает погибших, закрывает
+     * раунд и открывает новый.  Идемпотентен, пока ход не сделан.
+     */
+    private boolean advance() {
+        while (!ended) {
+            if (!inRound) {
+                if (battleOver()) {
+                    if (metered) metrics.recordBattle(rounds);
+                    end();
+                    return false;
+                }
+                rounds++;
+                if (rec != null) rec.round(rounds);
+                /* Очередь — живые из заранее отсортированного порядка. */
+                count   = state.compactTurnOrder();
+                pos     = 0;
+                attacks = 0;
+                inRound = true;
+            }
+            if (seekInRound()) return true;
+        }
+        return false;
+    }
+
+    /** Между раундами: нового раунда не будет. */
+    private boolean battleOver() {
+        return over || rounds >= maxRounds
+                || !state.hasAlive(BattleState.PLAYER) || !state.hasAlive(BattleState.COMPUTER);
+    }
+
+    /**
+     * Следующий ход текущего раунда, без открытия нового: пропускает
+     * погибших; раунд кончился — закрывает его (сверка таблицы).
+     *
+     * @return true — ход готов, false — раунд закрыт
+     */
+    private boolean seekInRound() {
+        while (pos < count) {
+            int id = state.turnOrder[pos];
+            if (!state.units[id].isAlive()) { pos++; continue; }
+            // Если противников больше нет – бой окончен.  O(1) по счётчикам.
+            if (!state.hasEnemy(id)) { over = true; break; }
+            return true;
+        }
+        if (metered) metrics.recordRound(attacks);
+        // конец раунда: сверяем таблицу целиком, следующий advance соберёт новую очередь.
+        if (!over) state.resync();
+        if (rec != null) rec.endRound();
+        inRound = false;
+        return false;
+    }
+
+    /* ------------------------------------------------------------------  состояние */
+
+    /** Номер текущего (последнего начатого) раунда. */
+    public int rounds() {
+        return rounds;
+    }
+
+    /** Бой окончен или закрыт. */
+    public boolean isFinished() {
+        return ended;
+    }
+
+    /**
+     * {@link ZobristHash} текущей позиции — обновляется после каждого хода
+     * и сверки раунда; ключ для {@link TranspositionTable}.
+     */
+    public long hash() {
+        return state.hash;
+    }
+
+    /** Живых в армии {@code side} ({@link #PLAYER} / {@link #COMPUTER}). */
+    public int aliveCount(int side) {
+        return state.aliveCount[side];
+    }
+
+    /** Суммарное hp живых армии {@code side}.  O(N). */
+    public long totalHp(int side) {
+        long hp = 0;
+        for (int id = 0; id < state.units.length; id++)
+            if (state.side[id] == side && state.alive[id]) hp += Math.max(0, state.units[id].getHealth());
+        return hp;
+    }
+
+    /**
+     * Условие «исход ясен»: у одной армии не осталось живых или её hp
+     * меньше {@code ratio}-й доли hp другой.  Для {@link #runUntil}.
+     */
+    public static Predicate<BattleStepper> decisiveLead(double ratio) {
+        return s -> {
+            long p = s.totalHp(PLAYER), c = s.totalHp(COMPUTER);
+            return p == 0 || c == 0 || p < ratio * c || c < ratio * p;
+        };
+    }
+
+    /** Сторона с большим hp: {@link #PLAYER}, {@link #COMPUTER} или -1 при равенстве. */
+    public int leader() {
+        long p = totalHp(PLAYER), c = totalHp(COMPUTER);
+        return p > c ? PLAYER : c > p ? COMPUTER : -1;
+    }
+
+    /**
+     * Завершает бой: дописывает запись и допечатывает лог (ждёт поток
+     * {@link BattleLogPipeline}); ожидание прерываемо.  Повторный вызов —
+     * no-op.
+     */
+    public void awaitClosed() throws InterruptedException {
+        end();
+        if (pipeline != null) pipeline.awaitClosed();   // допечатываем лог до возврата
+    }
+
+    /**
+     * {@link #awaitClosed()} без InterruptedException: при прерывании
+     * флаг interrupt восстанавливается, лог допечатывается в фоне.
+     */
+    @Override
+    public void close() {
+        end();
+        if (pipeline != null) pipeline.close();
+    }
+
+    /** Бой окончен: больше ни одного хода, запись боя уходит в файл целиком. */
+    private void end() {
+        if (ended) return;
+        ended = true;
+        if (rec != null) rec.close();
+    }
+}
@@ -0,0 +1,240 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.GeneratePreset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш пресетов поверх любого {@link GeneratePreset}.
+ *
+ * Сервер подбора игр зовёт генератор на каждое лобби почти всегда с
+ * одними и теми же прототипами и парой бюджетов — пересчитывать каждый
+ * раз незачем.  Декоратор хранит ограниченный LRU-кэш:
+ *
+ *   ключ — 64-битный отпечаток характеристик прототипов + maxPoints.
+ *          В отпечаток входят первые прототипы каждого типа в порядке
+ *          списка (генераторы берут именно их): тип, health, baseAttack,
+ *          cost, attackType и обе карты бонусов.  Имя прототипа не входит.
+ *   значение — компактный план: для каждого юнита индекс прототипа,
+ *          имя и клетка, плюс потраченные очки.  При попадании прототипы
+ *          вызова сверяются с сохранёнными копиями (коллизия отпечатка →
+ *          промах), а армия собирается заново из свежих копий Unit —
+ *          вызывающий волен менять их, кэш это не затронет.
+ *
+ * Потокобезопасен: LRU под монитором, генерация при промахе — вне его
+ * (два потока с одним промахом посчитают дважды, результат одинаковый).
+ *
+ *   Попадание: O(U) — только сборка юнитов, без сортировок и отбора.
+ */
+public final class CachingGeneratePreset implements GeneratePreset {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final GeneratePreset delegate;
+    private final int            capacity;
+    private final LinkedHashMap<Key, Plan> lru;
+
+    private final AtomicLong hits      = new AtomicLong();
+    private final AtomicLong misses    = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Кэш на {@link #DEFAULT_CAPACITY} записей поверх {@link GeneratePresetImpl}. */
+    public CachingGeneratePreset() {
+        this(new GeneratePresetImpl(), DEFAULT_CAPACITY);
+    }
+
+    public CachingGeneratePreset(GeneratePreset delegate, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.capacity = capacity;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {       // accessOrder — порядок LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Plan> eldest) {
+                if (size() <= CachingGeneratePreset.this.capacity) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------ public
+    @Override
+    public Army generate(List<Unit> prototypes, int maxPoints) {
+        if (prototypes == null || prototypes.isEmpty() || maxPoints <= 0) {
+            return delegate.generate(prototypes, maxPoints);
+        }
+
+        List<Unit> distinct = firstOfEachType(prototypes);
+        Key key = new Key(fingerprint(distinct), maxPoints);
+
+        Plan plan;
+        synchronized (lru) {
+            plan = lru.get(key);
+        }
+        if (plan != null && plan.matches(distinct)) {
+            hits.incrementAndGet();
+            return plan.build(distinct);
+        }
+
+        misses.incrementAndGet();
+        Army army = delegate.generate(prototypes, maxPoints);
+        Plan fresh = Plan.of(army, distinct);
+        if (fresh != null) {
+            synchronized (lru) {
+                lru.put(key, fresh);
+            }
+        }
+        return army;
+    }
+
+    /* ------------------------------------------------------------------  статистика */
+
+    public long hits()      { return hits.get(); }
+    public long misses()    { return misses.get(); }
+    public long evictions() { return evictions.get(); }
+
+    /** Записей в кэше сейчас. */
+    public int size() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (lru) {
+            lru.clear();
+        }
+    }
+
+    /* ------------------------------------------------------------------  ключ */
+
+    private record Key(long fingerprint, int maxPoints) {}
+
+    /** Первый прототип каждого типа, в порядке списка. */
+    private static List<Unit> firstOfEachType(List<Unit> prototypes) {
+        Map<String, Unit> byType = new LinkedHashMap<>();
+        for (Unit u : prototypes) if (u != null) byType.putIfAbsent(u.getUnitType(), u);
+        return new ArrayList<>(byType.values());
+    }
+
+    /** Устойчивый отпечаток: зависит только от значений, не от адресов и порядка в картах. */
+    private static long fingerprint(List<Unit> distinct) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (Unit u : distinct) {
+            h = mix(h, Objects.hashCode(u.getUnitType()));
+            h = mix(h, u.getHealth());
+            h = mix(h, u.getBaseAttack());
+            h = mix(h, u.getCost());
+            h = mix(h, Objects.hashCode(u.getAttackType()));
+            h = mix(h, mapHash(u.getAttackBonuses()));
+            h = mix(h, mapHash(u.getDefenceBonuses()));
+        }
+        return h;
+    }
+
+    /** Сумма по записям — не зависит от порядка обхода карты. */
+    private static long mapHash(Map<String, Double> m) {
+        if (m == null) return 0;
+        long s = 0;
+        for (Map.Entry<String, Double> e : m.entrySet()) {
+            s += mix(Objects.hashCode(e.getKey()),
+                     e.getValue() == null ? 0 : Double.doubleToLongBits(e.getValue()));
+        }
+        return s;
+    }
+
+    /** Перемешивание 64 бит (финализатор splitmix64). */
+    private static long mix(long h, long v) {
+        long z = h * 31 + v + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /* ------------------------------------------------------------------  план */
+
+    /**
+     * Компактный результат генерации.
+     * protos — копии прототипов на момент записи (для сверки при попадании);
+     * bonuses — их неизменяемые карты бонусов, общие для всех армий плана.
+     */
+    private record Plan(Unit[] protos, PresetLayout.Bonuses[] bonuses, int[] protoIdx,
+                        String[] names, int[] xs, int[] ys, int points) {
+
+        /** План по армии генератора; null, если юнит не сводится к прототипу. */
+        static Plan of(Army army, List<Unit> distinct) {
+            List<Unit> units = army.getUnits() == null ? Collections.emptyList() : army.getUnits();
+            int n = units.size();
+            int[] idx = new int[n], xs = new int[n], ys = new int[n];
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                Unit u = units.get(i);
+                idx[i] = indexOfType(distinct, u.getUnitType());
+                if (idx[i] < 0 || !sameStats(u, distinct.get(idx[i]))) return null;
+                names[i] = u.getName();
+                xs[i]    = u.getxCoordinate();
+                ys[i]    = u.getyCoordinate();
+            }
+            Unit[] protos = new Unit[distinct.size()];
+            PresetLayout.Bonuses[] bonuses = new PresetLayout.Bonuses[protos.length];
+            for (int i = 0; i < protos.length; i++) {
+                protos[i]  = ArmyCopier.copyOf(distinct.get(i));
+                bonuses[i] = PresetLayout.Bonuses.of(protos[i]);
+            }
+            return new Plan(protos, bonuses, idx, names, xs, ys, army.getPoints());
+        }
+
+        boolean matches(List<Unit> distinct) {
+            if (distinct.size() != protos.length) return false;
+            for (int i = 0; i < protos.length; i++) if (!sameStats(protos[i], distinct.get(i))) return false;
+            return true;
+        }
+
+        Army build(List<Unit> distinct) {
+            List<Unit> units = new ArrayList<>(protoIdx.length);
+            for (int i = 0; i < protoIdx.length; i++) {
+                Unit p = distinct.get(protoIdx[i]);
+                PresetLayout.Bonuses b = bonuses[protoIdx[i]];
+                units.add(new Unit(
+                        names[i],
+                        p.getUnitType(),
+                        p.getHealth(),
+                        p.getBaseAttack(),
+                        p.getCost(),
+                        p.getAttackType(),
+                        b.attack(),                      // неизменяемые, общие для плана
+                        b.defence(),
+                        xs[i], ys[i]
+                ));
+            }
+            Army army = new Army();
+            army.setUnits(units);
+            army.setPoints(points);
+            return army;
+        }
+
+        private static int indexOfType(List<Unit> distinct, String type) {
+            for (int i = 0; i < distinct.size(); i++) if (Objects.equals(distinct.get(i).getUnitType(), type)) return i;
+            return -1;
+        }
+    }
+
+    /** Совпадают все характеристики, входящие в отпечаток. */
+    private static boolean sameStats(Unit a, Unit b) {
+        return Objects.equals(a.getUnitType(), b.getUnitType())
+                && a.getHealth() == b.getHealth()
+                && a.getBaseAttack() == b.getBaseAttack()
+                && a.getCost() == b.getCost()
+                && Objects.equals(a.getAttackType(), b.getAttackType())
+                && Objects.equals(a.getAttackBonuses(), b.getAttackBonuses())
+                && Objects.equals(a.getDefenceBonuses(), b.getDefenceBonuses());
+    }
+}
@@ -0,0 +1,215 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш путей поверх любого {@link UnitTargetPathFinder} — по желанию.
+ *
+ * За раунд один и тот же юнит часто снова ищет путь к той же цели по
+ * полю, которое с прошлого поиска не менялось (в бою клетки меняются
+ * только при смерти юнитов — атакующий возвращается на место).
+ * Декоратор хранит ограниченный LRU-кэш:
+ *
+ *   ключ — (клетка старта, клетка цели); в записи — версия занятости
+ *          ({@link OccupancyIndex#id()}, {@link OccupancyIndex#version()}),
+ *          для которой путь посчитан, и сам путь клетками;
+ *   попадание — та же версия: путь собирается из свежих Edge (вызывающий
+ *          волен их менять), поиск не запускается.
+ *
+ * Версию даёт индекс занятости текущего боя ({@link OccupancyIndex#current()}),
+ * поэтому сигнатура {@code getTargetPath} прежняя.  Вне боя, или если
+ * атакующий / цель стоят не там, где их помнит индекс, кэш не
+ * участвует — вызов уходит в делегат (счётчик bypasses).  Так же —
+ * всегда, если поле делегата не 27×21 (у finder'ов этого пакета оно
+ * известно; про чужой делегат предполагается поле боя).
+ *
+ * Аргумент {@code allUnits} кэш не читает: он считается полным списком
+ * юнитов боя, чью занятость и ведёт индекс.  Вызов с другим списком
+ * (подмножество, лишние препятствия) может получить путь, посчитанный
+ * для занятости боя, — такие вызовы стоит направлять прямо в делегат.
+ *
+ * Инвалидация ({@link Invalidation}):
+ *   STRICT — запись годна только для своей версии; результат всегда тот
+ *            же, что у делегата (по умолчанию);
+ *   REPAIR — запись переживает изменения, не задевшие путь: по журналу
+ *            индекса проверяется, что ни одна изменённая клетка не лежит
+ *            на пути и не соседствует с ним.  Путь остаётся допустимым,
+ *            но может перестать быть кратчайшим (освободилась клетка
+ *            вдали от него).  Записи «пути нет» — только STRICT.
+ *
+ * Потокобезопасен: LRU под монитором, поиск при промахе — вне его.
+ * Память: ≤ capacity записей по O(L) int.
+ */
+public final class CachingPathFinder implements UnitTargetPathFinder {
+
+    /** Когда запись считается устаревшей. */
+    public enum Invalidation { STRICT, REPAIR }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int HEIGHT = OccupancyIndex.HEIGHT;
+
+    private final UnitTargetPathFinder delegate;
+    private final int                  capacity;
+    private final Invalidation         invalidation;
+    /** поле делегата — поле боя; иначе кэш всегда в обход */
+    private final boolean              gameBoard;
+    private final LinkedHashMap<Integer, Entry> lru;
+
+    private final AtomicLong hits      = new AtomicLong();
+    private final AtomicLong repairs   = new AtomicLong();
+    private final AtomicLong misses    = new AtomicLong();
+    private final AtomicLong bypasses  = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Путь клетками (без старта, с целью) и версия занятости, для которой он верен. */
+    private static final class Entry {
+        final long  indexId;
+        long        version;
+        final int[] cells;
+
+        Entry(long indexId, long version, int[] cells) {
+            this.indexId = indexId;
+            this.version = version;
+            this.cells   = cells;
+        }
+    }
+
+    /** STRICT-кэш на {@link #DEFAULT_CAPACITY} путей поверх {@link UnitTargetPathFinderImpl}. */
+    public CachingPathFinder() {
+        this(new UnitTargetPathFinderImpl(), DEFAULT_CAPACITY, Invalidation.STRICT);
+    }
+
+    public CachingPathFinder(UnitTargetPathFinder delegate, int capacity, Invalidation invalidation) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1");
+        this.delegate     = Objects.requireNonNull(delegate, "delegate");
+        this.invalidation = Objects.requireNonNull(invalidation, "invalidation");
+        this.capacity     = capacity;
+        this.gameBoard    = onGameBoard(delegate);
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {       // accessOrder — порядок LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() <= CachingPathFinder.this.capacity) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Поле делегата 27×21: у finder'ов пакета — по их размеру, у чужих — предполагается. */
+    private static boolean onGameBoard(UnitTargetPathFinder d) {
+        int w, h;
+        if      (d instanceof UnitTargetPathFinderImpl f) { w = f.getWidth(); h = f.getHeight(); }
+        else if (d instanceof AStarPathFinderImpl f)      { w = f.getWidth(); h = f.getHeight(); }
+        else if (d instanceof HierarchicalPathFinder f)   { w = f.getWidth(); h = f.getHeight(); }
+        else return true;
+        return w == OccupancyIndex.WIDTH && h == OccupancyIndex.HEIGHT;
+    }
+
+    /* ------------------------------------------------------------------  поиск */
+
+    @Override
+    public List<Edge> getTargetPath(Unit attacker, Unit target, List<Unit> allUnits) {
+        OccupancyIndex idx = OccupancyIndex.current();
+        if (!gameBoard || attacker == null || target == null || idx == null
+                || !idx.isTracked(attacker) || !idx.isTracked(target)) {
+            bypasses.incrementAndGet();
+            return delegate.getTargetPath(attacker, target, allUnits);
+        }
+
+        int start = OccupancyIndex.cell(attacker.getxCoordinate(), attacker.getyCoordinate());
+        int goal  = OccupancyIndex.cell(target.getxCoordinate(),   target.getyCoordinate());
+        Integer key = start * OccupancyIndex.CELLS + goal;
+        long id = idx.id(), version = idx.version();
+
+        synchronized (lru) {
+            Entry e = lru.get(key);
+            if (e != null && e.indexId == id) {
+                if (e.version == version) {
+                    hits.incrementAndGet();
+                    return edges(e.cells);
+                }
+                if (invalidation == Invalidation.REPAIR && untouched(e, idx, start)) {
+                    e.version = version;
+                    hits.incrementAndGet();
+                    repairs.incrementAndGet();
+                    return edges(e.cells);
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        List<Edge> path = delegate.getTargetPath(attacker, target, allUnits);
+        int[] cells = new int[path.size()];
+        for (int i = 0; i < cells.length; i++) cells[i] = OccupancyIndex.cell(path.get(i).getX(), path.get(i).getY());
+        synchronized (lru) {
+            lru.put(key, new Entry(id, version, cells));
+        }
+        return path;
+    }
+
+    /**
+     * true, если ни одна клетка, изменившаяся после версии записи,
+     * не лежит на пути (включая старт) и не соседствует с ним.
+     */
+    private static boolean untouched(Entry e, OccupancyIndex idx, int start) {
+        if (e.cells.length == 0 || !idx.canReplay(e.version)) return false;
+        for (long v = e.version + 1; v <= idx.version(); v++) {
+            int c = idx.changedCell(v);
+            if (near(c, start)) return false;
+            for (int p : e.cells) if (near(c, p)) return false;
+        }
+        return true;
+    }
+
+    /** Клетки совпадают или соседние (8 направлений). */
+    private static boolean near(int a, int b) {
+        return Math.abs(a / HEIGHT - b / HEIGHT) <= 1 && Math.abs(a % HEIGHT - b % HEIGHT) <= 1;
+    }
+
+    private static List<Edge> edges(int[] cells) {
+        if (cells.length == 0) return Collections.emptyList();
+        List<Edge> path = new ArrayList<>(cells.length);
+        for (int c : cells) path.add(new Edge(c / HEIGHT, c % HEIGHT));
+        return path;
+    }
+
+    /* ------------------------------------------------------------------  статистика */
+
+    /** Попадания, включая сохранённые «ремонтом» записи. */
+    public long hits()      { return hits.get(); }
+    /** Попадания REPAIR: версия сменилась, но путь не задет. */
+    public long repairs()   { return repairs.get(); }
+    public long misses()    { return misses.get(); }
+    /** Вызовы мимо кэша: вне боя или старт / цель не совпадают с индексом. */
+    public long bypasses()  { return bypasses.get(); }
+    public long evictions() { return evictions.get(); }
+
+    /** Доля попаданий среди вызовов, прошедших через кэш; 0, если их не было. */
+    public double hitRate() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (lru) {
+            lru.clear();
+        }
+    }
+}
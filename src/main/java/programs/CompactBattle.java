@@ -0,0 +1,212 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактное состояние боя — «структура массивов» вместо {@code List<Unit>}.
+ *
+ * Unit — объект с двумя HashMap бонусов, строковым типом и геттерами;
+ * на тысячах юнитов каждый проход по спискам упирается в разыменования.
+ * Здесь всё, что нужно движку, лежит в параллельных массивах по id
+ * (сначала армия игрока, затем компьютера, в порядке списков — та же
+ * нумерация, что у {@link BattleState}, см. {@link BattleState#enlist}):
+ *
+ *   x[], y[], hp[], attack[] — int;
+ *   type[] — порядковый номер типа (интернированная строка unitType),
+ *   side[] — {@link #PLAYER} / {@link #COMPUTER};
+ *   alive[];
+ *   bonuses — {@link DamageMatrix}: бонусы T×T по номерам типов
+ *       (из карт бонусов первого юнита каждого типа, нет ключа — 1.0).
+ *
+ * Занятость поля — счётчики живых по стороне и клетке ({@code occupancy})
+ * и их объединение битовой картой ({@code occupiedBits}) для общего BFS;
+ * плотный список живых каждой стороны — для случайного выбора цели за O(1).
+ *
+ * Строится один раз из армий ({@link #of}); движок
+ * ({@link CompactBattleSimulator}) работает только с массивами, а в
+ * объекты Unit состояние возвращает {@link #syncBack()} — в конце боя
+ * или перед каждым событием лога.  Размер поля задаётся: по умолчанию
+ * 27×21, юниты вне поля не занимают клеток и недостижимы для ближнего боя.
+ *
+ * Не потокобезопасно: один бой — один поток.
+ */
+public final class CompactBattle {
+
+    public static final int PLAYER   = BattleState.PLAYER;
+    public static final int COMPUTER = BattleState.COMPUTER;
+
+    final int width, height;
+
+    /* ------------------------------------------------------------------  юниты по id */
+    final Unit[]    units;
+    final int[]     x, y, hp, attack;
+    final byte[]    type, side;
+    final boolean[] alive;
+
+    /* ------------------------------------------------------------------  типы */
+    /** номера типов (type[]) и бонусы тип×тип — общие для всех юнитов типа */
+    final DamageMatrix bonuses;
+
+    /* ------------------------------------------------------------------  живые и занятость */
+    final int[]   aliveCount = new int[2];
+    /** aliveIds[side][0..aliveCount) — плотный список живых; posOf[id] — индекс в нём */
+    final int[][] aliveIds;
+    final int[]   posOf;
+    /** occupancy[side][cell] — живых юнитов стороны в клетке, cell = x*height + y */
+    final int[][] occupancy;
+    /** бит c → в клетке c есть живой юнит любой стороны (для BFS {@link UnitTargetPathFinderImpl#search}) */
+    final long[]  occupiedBits;
+
+    private CompactBattle(List<Unit> all, List<Integer> sides, int width, int height, DamageMatrix bonuses) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("board " + width + "x" + height);
+        this.width  = width;
+        this.height = height;
+
+        int n = all.size();
+        units  = all.toArray(new Unit[0]);
+        x      = new int[n];
+        y      = new int[n];
+        hp     = new int[n];
+        attack = new int[n];
+        type   = new byte[n];
+        side   = new byte[n];
+        alive  = new boolean[n];
+        posOf  = new int[n];
+        aliveIds  = new int[][]{new int[n], new int[n]};
+        occupancy = new int[2][Math.multiplyExact(width, height)];
+        occupiedBits = new long[(width * height + 63) >>> 6];
+
+        // типы → порядковые номера; бонусы — общая матрица типов (чужую сверяем с юнитами боя)
+        this.bonuses = bonuses != null ? bonuses : DamageMatrix.of(all);
+        for (int id = 0; id < n; id++) {
+            Unit u = units[id];
+            if (bonuses != null) bonuses.check(u);
+            int t = this.bonuses.ordinal(u.getUnitType());
+            type[id]   = (byte) t;
+            side[id]   = (byte) (int) sides.get(id);
+            x[id]      = u.getxCoordinate();
+            y[id]      = u.getyCoordinate();
+            hp[id]     = u.getHealth();
+            attack[id] = u.getBaseAttack();
+            if (u.isAlive()) {
+                alive[id] = true;
+                int s = side[id];
+                posOf[id] = aliveCount[s];
+                aliveIds[s][aliveCount[s]++] = id;
+                if (inBounds(x[id], y[id])) {
+                    int c = cell(x[id], y[id]);
+                    occupancy[s][c]++;
+                    occupiedBits[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+    }
+
+    /** Бой на стандартном поле 27×21. */
+    public static CompactBattle of(Army player, Army computer) {
+        return of(player, computer, OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT);
+    }
+
+    /** Бой на поле {@code width}×{@code height}.  O(N·T + W·H + T²). */
+    public static CompactBattle of(Army player, Army computer, int width, int height) {
+        return of(player, computer, width, height, null);
+    }
+
+    /**
+     * То же с готовой матрицей бонусов — её можно строить один раз на
+     * много боёв с теми же типами; null — построить по юнитам боя.
+     *
+     * @throws IllegalArgumentException тип юнита не входит в матрицу или его
+     *                                  бонусы расходятся со строкой типа
+     */
+    public static CompactBattle of(Army player, Army computer, int width, int height, DamageMatrix bonuses) {
+        List<Unit>    all   = new ArrayList<>();
+        List<Integer> sides = new ArrayList<>();
+        BattleState.enlist(player, computer, all, sides);
+        return new CompactBattle(all, sides, width, height, bonuses);
+    }
+
+    /* ------------------------------------------------------------------  чтение */
+
+    public int size() {
+        return units.length;
+    }
+
+    public int width()  { return width; }
+    public int height() { return height; }
+
+    public int aliveCount(int side) {
+        return aliveCount[side];
+    }
+
+    /** Юнит по id — тот самый объект из армии. */
+    public Unit unit(int id) {
+        return units[id];
+    }
+
+    public int     hp(int id)      { return hp[id]; }
+    public boolean isAlive(int id) { return alive[id]; }
+    public int     sideOf(int id)  { return side[id]; }
+
+    /** Номер типа по имени или -1. */
+    int typeOrdinal(String name) {
+        return bonuses.ordinal(name);
+    }
+
+    /* ------------------------------------------------------------------  изменение */
+
+    /** Наносит урон; при hp ≤ 0 юнит погибает и освобождает клетку.  O(1). */
+    void damage(int id, int amount) {
+        hp[id] -= amount;
+        if (hp[id] <= 0 && alive[id]) kill(id);
+    }
+
+    private void kill(int id) {
+        alive[id] = false;
+        int s = side[id];
+        // swap-remove из плотного списка живых
+        int last = aliveIds[s][--aliveCount[s]];
+        aliveIds[s][posOf[id]] = last;
+        posOf[last] = posOf[id];
+        if (inBounds(x[id], y[id])) {
+            int c = cell(x[id], y[id]);
+            occupancy[s][c]--;
+            if (!occupied(c)) occupiedBits[c >>> 6] &= ~(1L << c);
+        }
+    }
+
+    /* ------------------------------------------------------------------  обратно в Unit */
+
+    /** Переносит hp, клетку и флаг жизни юнита {@code id} в его Unit. */
+    public void syncBack(int id) {
+        Unit u = units[id];
+        u.setHealth(hp[id]);
+        u.setxCoordinate(x[id]);
+        u.setyCoordinate(y[id]);
+        u.setAlive(alive[id]);
+    }
+
+    /** То же для всех юнитов.  O(N). */
+    public void syncBack() {
+        for (int id = 0; id < units.length; id++) syncBack(id);
+    }
+
+    /* ------------------------------------------------------------------  поле */
+
+    int cell(int cx, int cy) {
+        return cx * height + cy;
+    }
+
+    boolean inBounds(int cx, int cy) {
+        return cx >= 0 && cx < width && cy >= 0 && cy < height;
+    }
+
+    /** Клетка занята живым юнитом любой стороны. */
+    boolean occupied(int c) {
+        return occupancy[PLAYER][c] != 0 || occupancy[COMPUTER][c] != 0;
+    }
+}
@@ -0,0 +1,405 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.programs.PrintBattleLog;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Симуляция боя поверх {@link CompactBattle} — для массовых прогонов
+ * с тысячами юнитов, где {@link SimulateBattleImpl} упирается в объекты Unit.
+ *
+ * Это отдельная, упрощённая модель боя, а не ускоренный SimulateBattleImpl.
+ * Программы юнитов из библиотеки работают только с Unit и списками армий,
+ * поэтому здесь их правила приближены над массивами:
+ *   • лучник (тип "Archer") бьёт случайного живого врага;
+ *   • остальные выбирают случайного «готового» врага из трёх крайних
+ *     колонок его армии (армия компьютера — X 0..2, игрока — X W-3..W-1;
+ *     готов — клетка перед ним по Y не занята его же армией, как в
+ *     {@link SuitableForAttackUnitsFinderImpl}) и бьют, только если до
+ *     него есть путь; пути нет — ход пропущен;
+ *   • урон — baseAttack; {@link #withTypeBonuses} включает свою формулу
+ *     по {@link DamageMatrix}, которой программы библиотеки не пользуются;
+ *     hp ≤ 0 — юнит погиб;
+ *   • подход к цели и возврат на место, как у программ, итогово клеток
+ *     не меняют, поэтому юниты стоят на месте весь бой.
+ * С {@link SimulateBattleImpl} общий код, а не копии: нумерация юнитов
+ * ({@link BattleState#enlist}), очередь ходов ({@link BattleState#sortedByAttack}:
+ * baseAttack DESC, при равенстве — id) и BFS пути
+ * ({@link UnitTargetPathFinderImpl#search}).  Бой кончается перед ходом,
+ * если у атакующего не осталось врагов.
+ *
+ * Случайность своя — счётчиковая: выбор хода зависит только от
+ * (seed, раунд, id атакующего), поэтому бой воспроизводим по seed, но
+ * цели выбираются не так, как у программ библиотеки с их Random.
+ * Исход совпадает с SimulateBattleImpl, только когда случайный выбор
+ * цели на него не влияет (например, лучники против одного врага или
+ * врагов, гибнущих от одного удара); в остальных боях модели расходятся.
+
+ * Лог: перед каждым событием атакующий и цель переносятся в свои Unit
+ * ({@link CompactBattle#syncBack(int)}); в конце боя — все юниты.
+ *
+ * Сложность раунда: O(N + A·(E + W·H)) — A ближних атак, E живых
+ * врагов на выбор цели, BFS до цели с ранним выходом (и очистка
+ * битовой карты посещённых, O(W·H/64)).
+ * Память: O(W·H) — буферы {@link PathSearchWorkspace} потока (≈ 5.3 байта
+ * на клетку, переиспользуются между боями) и битовая карта занятости боя.
+ *
+ * Параллельное планирование ({@link #withParallelPlanning}, по желанию):
+ *   очередь раунда режется на пачки; для пачки ходов цель и BFS до неё
+ *   считаются параллельно на {@link ForkJoinPool} по состоянию на начало
+ *   пачки (оно в это время не меняется), а урон применяется
+ *   последовательно в исходном порядке baseAttack.  При применении
+ *   цель выбирается заново (дёшево, без пути) и план принимается, только
+ *   если он заведомо тот же, что дал бы последовательный ход:
+ *     • юниты не двигаются, смерти только освобождают клетки — найденный
+ *       путь остаётся путём;
+ *     • «пути нет» верно, пока ни одна смерть пачки не случилась рядом
+ *       с клетками, которые просмотрел BFS: поле поделено на регионы
+ *       {@link #REGION}×{@link #REGION}, план помнит регионы своего BFS;
+ *     • иначе (другая цель, смерть рядом) — BFS заново, последовательно.
+ *   Поэтому бой совпадает с последовательным ход в ход; выигрыш — когда
+ *   BFS дорогой (большие поля), а враги гибнут реже, чем ходят.
+ *   Совпадение — с последовательным боем этой же модели: от
+ *   {@link SimulateBattleImpl} параллельный режим расходится так же,
+ *   как и последовательный.
+ *
+ * Не потокобезопасен: один симулятор — один поток (параллелизм
+ * планирования — внутри run()).
+ */
+public final class CompactBattleSimulator {
+
+    /** Тип, который бьёт любого живого врага без поиска пути. */
+    static final String RANGED_TYPE = "Archer";
+
+    /** Колонок с краю поля, из которых программы выбирают цели ближнего боя. */
+    static final int FRONT_COLUMNS = 3;
+
+    private final long seed;
+    private boolean typeBonuses;
+    private PrintBattleLog printBattleLog;
+
+    /** Сторона региона параллельного планирования, клеток. */
+    static final int REGION = 16;
+
+    /** Кандидаты в цели одного потока; буферы BFS — {@link PathSearchWorkspace} того же потока. */
+    private static final class Workspace {
+        int[] candidates = new int[0];
+
+        Workspace ensure(int units) {
+            if (candidates.length < units) candidates = new int[units];
+            return this;
+        }
+    }
+
+    /** буферы потоков-планировщиков пула */
+    private static final ThreadLocal<Workspace> WORKERS = ThreadLocal.withInitial(Workspace::new);
+
+    /** буферы последовательных ходов */
+    private final Workspace local = new Workspace();
+    /** номер типа лучника в текущем бою или -1 */
+    private int rangedType;
+
+    /* параллельное планирование: пул (null — выключено) и планы пачки */
+    private ForkJoinPool pool;
+    private int          batchSize;
+    private int[]        batch      = new int[0];
+    private int[]        planTarget = new int[0];
+    private boolean[]    planReach  = new boolean[0];
+    private long[][]     planTiles  = new long[0][];
+    private int[]        deathCells = new int[0];
+    private int          boardHeight, tilesX, tilesY, tileWords;
+    private long         planned, replanned;
+
+    public CompactBattleSimulator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Урон с учётом бонусов по типам: baseAttack · attackBonus / defenceBonus, округлённо. */
+    public CompactBattleSimulator withTypeBonuses(boolean on) {
+        this.typeBonuses = on;
+        return this;
+    }
+
+    public void setPrintBattleLog(PrintBattleLog log) { this.printBattleLog = log; }
+
+    /**
+     * Планировать ходы ближнего боя пачками по {@code batchSize} параллельно
+     * на {@code pool}; null — последовательно (по умолчанию).  Бой тот же,
+     * что последовательный бой этого симулятора (не {@link SimulateBattleImpl}).
+     */
+    public CompactBattleSimulator withParallelPlanning(ForkJoinPool pool, int batchSize) {
+        if (pool != null && batchSize < 1) throw new IllegalArgumentException("batchSize < 1");
+        this.pool      = pool;
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /** Ходов ближнего боя, спланированных параллельно. */
+    public long plannedTurns()   { return planned; }
+    /** Из них пересчитаны при применении (другая цель или смерть рядом с BFS). */
+    public long replannedTurns() { return replanned; }
+
+    /**
+     * Строит компактный бой из армий, проводит его и переносит результат
+     * в юнитов армий.
+     *
+     * @return число начатых раундов
+     */
+    public int simulate(Army player, Army computer, int maxRounds) {
+        if (player == null || computer == null) return 0;
+        return run(CompactBattle.of(player, computer), maxRounds);
+    }
+
+    /**
+     * Проводит бой над готовым состоянием, не дольше {@code maxRounds}
+     * раундов; в конце переносит его в Unit.
+     *
+     * @return число начатых раундов
+     */
+    public int run(CompactBattle b, int maxRounds) {
+        int n = b.size();
+        int[] order = BattleState.sortedByAttack(b.attack);
+        int   count = n;
+
+        local.ensure(n);
+        rangedType = b.bonuses.ordinal(RANGED_TYPE);
+        if (pool != null) preparePlans(b);
+
+        boolean       metered = BattleMetrics.isEnabled();
+        BattleMetrics metrics = BattleMetrics.global();
+
+        int rounds = 0;
+        boolean over = false;
+        while (!over && rounds < maxRounds
+                && b.aliveCount[CompactBattle.PLAYER] > 0 && b.aliveCount[CompactBattle.COMPUTER] > 0) {
+            rounds++;
+
+            // живые — в префикс очереди, порядок сохраняется
+            int live = 0;
+            for (int i = 0; i < count; i++) if (b.alive[order[i]]) order[live++] = order[i];
+            count = live;
+
+            int attacks = 0;
+            if (pool == null) {
+                for (int i = 0; i < count; i++) {
+                    int id = order[i];
+                    if (!b.alive[id]) continue;
+                    int enemy = 1 - b.side[id];
+                    if (b.aliveCount[enemy] == 0) { over = true; break; }
+
+                    int target = chooseTarget(b, id, enemy, mix(seed, rounds, id));
+                    attacks++;
+                    commit(b, id, target);
+                }
+            } else {
+                for (int i = 0; i < count && !over; ) {
+                    // пачка — следующие живые из очереди; план по замороженному состоянию
+                    int m = 0;
+                    for (; i < count && m < batchSize; i++) if (b.alive[order[i]]) batch[m++] = order[i];
+                    planBatch(b, m, rounds);
+
+                    int deaths = 0;
+                    for (int k = 0; k < m; k++) {
+                        int id = batch[k];
+                        if (!b.alive[id]) continue;
+                        int enemy = 1 - b.side[id];
+                        if (b.aliveCount[enemy] == 0) { over = true; break; }
+
+                        int target = plannedTarget(b, k, id, enemy, mix(seed, rounds, id), deaths);
+                        attacks++;
+                        if (commit(b, id, target)) deathCells[deaths++] = b.cell(b.x[target], b.y[target]);
+                    }
+                }
+            }
+            if (metered) metrics.recordRound(attacks);
+        }
+        if (metered) metrics.recordBattle(rounds);
+        b.syncBack();
+        return rounds;
+    }
+
+    /* ------------------------------------------------------------------  ход */
+
+    /**
+     * Урон по цели и событие лога.
+     *
+     * @return true, если цель этим ударом погибла
+     */
+    private boolean commit(CompactBattle b, int id, int target) {
+        boolean killed = false;
+        if (target >= 0) {
+            b.damage(target, damageOf(b, id, target));
+            killed = !b.alive[target];
+        }
+        if (printBattleLog != null) {
+            b.syncBack(id);
+            if (target >= 0) b.syncBack(target);
+            printBattleLog.printBattleLog(b.units[id], target >= 0 ? b.units[target] : null);
+        }
+        return killed;
+    }
+
+    /** Цель хода юнита {@code id} или -1, если атаковать некого. */
+    private int chooseTarget(CompactBattle b, int id, int enemy, long rnd) {
+        if (b.type[id] == rangedType) {
+            return b.aliveIds[enemy][pick(rnd, b.aliveCount[enemy])];
+        }
+        int target = frontTarget(b, enemy, rnd, local);
+        return target >= 0 && reachable(b, id, target, null) ? target : -1;
+    }
+
+    /**
+     * Случайный «готовый» враг ближнего боя — без проверки пути; -1 — нет таких.
+     * Только читает состояние, буфер кандидатов — из {@code ws}.
+     */
+    private static int frontTarget(CompactBattle b, int enemy, long rnd, Workspace ws) {
+        // «готовые» враги в крайних колонках их армии
+        int lo = enemy == CompactBattle.COMPUTER ? 0 : b.width - FRONT_COLUMNS;
+        int hi = lo + FRONT_COLUMNS - 1;
+        int dy = enemy == CompactBattle.COMPUTER ? -1 : +1;   // isLeftArmyTarget ⇔ цель — армия компьютера
+        int[] occ = b.occupancy[enemy];
+        int[] candidates = ws.candidates;
+        int k = 0;
+        int[] ids = b.aliveIds[enemy];
+        for (int j = 0, m = b.aliveCount[enemy]; j < m; j++) {
+            int e = ids[j], ex = b.x[e], ey = b.y[e] + dy;
+            if (ex < lo || ex > hi) continue;
+            if (b.inBounds(ex, ey) && occ[b.cell(ex, ey)] != 0) continue;   // впереди свой
+            candidates[k++] = e;
+        }
+        return k == 0 ? -1 : candidates[pick(rnd, k)];
+    }
+
+    private int damageOf(CompactBattle b, int attacker, int target) {
+        if (!typeBonuses) return b.attack[attacker];
+        return b.bonuses.damage(b.attack[attacker], b.type[attacker], b.type[target]);
+    }
+
+    /* ------------------------------------------------------------------  путь */
+
+    /**
+     * Есть ли путь от атакующего до цели — тот же BFS, что у
+     * {@link UnitTargetPathFinderImpl} ({@link UnitTargetPathFinderImpl#search}),
+     * по битовой карте занятости боя; вне поля или в одной клетке — пути нет.
+     * {@code tiles} (если не null) — отметить регионы клеток, снятых с очереди:
+     * их соседей BFS и просмотрел.
+     */
+    private boolean reachable(CompactBattle b, int from, int to, long[] tiles) {
+        int sx = b.x[from], sy = b.y[from], tx = b.x[to], ty = b.y[to];
+        if (!b.inBounds(sx, sy) || !b.inBounds(tx, ty)) return false;
+        if (sx == tx && sy == ty)                       return false;
+
+        int h = b.height;
+        PathSearchWorkspace ws = PathSearchWorkspace.acquireBits(b.width * h);
+        boolean found = UnitTargetPathFinderImpl.search(ws, b.occupiedBits, b.width, h,
+                b.cell(sx, sy), b.cell(tx, ty));
+        if (tiles != null) {
+            int[] queue = ws.queue;
+            for (int i = 0; i < ws.expanded; i++) {
+                int c = queue[i], t = (c / h / REGION) * tilesY + c % h / REGION;
+                tiles[t >>> 6] |= 1L << t;
+            }
+        }
+        return found;
+    }
+
+    /* ------------------------------------------------------------------  параллельное планирование */
+
+    private void preparePlans(CompactBattle b) {
+        int n = b.size();
+        boardHeight = b.height;
+        tilesX      = (b.width  + REGION - 1) / REGION;
+        tilesY      = (b.height + REGION - 1) / REGION;
+        tileWords   = (tilesX * tilesY + 63) >>> 6;
+        if (batch.length < batchSize) {
+            batch      = new int[batchSize];
+            planTarget = new int[batchSize];
+            planReach  = new boolean[batchSize];
+            deathCells = new int[batchSize];
+        }
+        if (planTiles.length < batchSize || planTiles[0].length < tileWords)
+            planTiles = new long[batchSize][tileWords];
+        // буферы потоков пула — заранее, чтобы планирование не выделяло память
+        int cells = b.width * b.height;
+        pool.submit(() -> IntStream.range(0, pool.getParallelism() * 4).parallel()
+                .forEach(i -> {
+                    WORKERS.get().ensure(n);
+                    PathSearchWorkspace.acquireBits(cells);
+                })).join();
+    }
+
+    /** Планы пачки batch[0..m): цель и BFS до неё, параллельно; состояние только читается. */
+    private void planBatch(CompactBattle b, int m, int round) {
+        boolean melee = false;
+        for (int k = 0; k < m && !melee; k++) melee = b.type[batch[k]] != rangedType;
+        if (!melee) {                                     // одни лучники — планировать нечего
+            Arrays.fill(planTarget, 0, m, -1);
+            return;
+        }
+        pool.submit(() -> IntStream.range(0, m).parallel().forEach(k -> {
+            int id = batch[k], enemy = 1 - b.side[id];
+            planTarget[k] = -1;
+            planReach[k]  = false;
+            if (b.type[id] == rangedType || b.aliveCount[enemy] == 0) return;
+            long[] tiles = planTiles[k];
+            Arrays.fill(tiles, 0, tileWords, 0L);
+            Workspace ws = WORKERS.get().ensure(b.size());
+            int t = frontTarget(b, enemy, mix(seed, round, id), ws);
+            planTarget[k] = t;
+            if (t >= 0) planReach[k] = reachable(b, id, t, tiles);
+        })).join();
+    }
+
+    /**
+     * Цель хода k пачки — та же, что выбрал бы последовательный ход:
+     * цель выбирается заново по текущему состоянию, план пути берётся,
+     * только если он заведомо не устарел.
+     */
+    private int plannedTarget(CompactBattle b, int k, int id, int enemy, long rnd, int deaths) {
+        if (b.type[id] == rangedType) return b.aliveIds[enemy][pick(rnd, b.aliveCount[enemy])];
+        planned++;
+        int t = frontTarget(b, enemy, rnd, local);
+        if (t < 0) return -1;
+        if (t == planTarget[k]) {
+            if (planReach[k]) return t;                     // клетки только освобождались — путь есть
+            if (!touched(planTiles[k], deaths)) return -1;  // рядом с BFS никто не погиб — пути нет
+        }
+        replanned++;
+        return reachable(b, id, t, null) ? t : -1;
+    }
+
+    /** Погиб ли кто-то из deathCells[0..deaths) в регионе плана или соседнем с ним. */
+    private boolean touched(long[] tiles, int deaths) {
+        for (int i = 0; i < deaths; i++) {
+            int c = deathCells[i];
+            int tx = c / boardHeight / REGION, ty = c % boardHeight / REGION;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int x = tx + dx, y = ty + dy;
+                    if (x < 0 || x >= tilesX || y < 0 || y >= tilesY) continue;
+                    int t = x * tilesY + y;
+                    if ((tiles[t >>> 6] & (1L << t)) != 0) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /* ------------------------------------------------------------------  очередь и случайность */
+
+    /** Хеш SplitMix64 от (seed, раунд, id): независимое «случайное» число на каждый ход. */
+    static long mix(long seed, int round, int id) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) round << 32) | (id & 0xffffffffL)) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Равномерный индекс в [0, bound) из старших бит. */
+    private static int pick(long rnd, int bound) {
+        return (int) (((rnd >>> 32) * bound) >>> 32);
+    }
+}
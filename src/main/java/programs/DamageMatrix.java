@@ -0,0 +1,158 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бонусы урона «тип против типа», скомпилированные в плотные матрицы.
+ *
+ * У каждого Unit две карты {@code Map<String, Double>}: attackBonuses
+ * (множитель атаки против типа цели) и defenceBonuses (делитель урона
+ * от типа атакующего).  Юниты одного типа обязаны нести одинаковые
+ * бонусы (это проверяется при построении), поэтому при подготовке боя
+ * типы интернируются в номера 0…T-1 (в порядке первого появления), а
+ * карты первого юнита каждого типа переписываются в матрицы T×T — одни
+ * на все юниты типа:
+ *
+ *   attack [a][t] — множитель атаки типа a по типу t;
+ *   defence[t][a] — делитель урона типа t от атакующего типа a;
+ *   нет ключа в карте — 1.0.
+ *
+ * Урон {@link #damage(int, int, int)} — два индекса в массивах вместо
+ * хеширования строк и распаковки Double; формула и порядок операций
+ * те же, что у {@link #mapDamage} по картам, поэтому числа совпадают
+ * бит в бит.  {@link #multiplier(int, int)} — готовое attack / defence
+ * для оценок, где округление не важно.
+ *
+ * Неизменяема после построения; один экземпляр можно делить между
+ * боями и потоками.
+ */
+public final class DamageMatrix {
+
+    /** Больше типов не влезает в byte-номера {@link CompactBattle}. */
+    public static final int MAX_TYPES = Byte.MAX_VALUE + 1;
+
+    private final String[]             typeNames;
+    private final Map<String, Integer> ordinals;
+    private final double[][]           attack, defence;
+
+    private DamageMatrix(List<Unit> firstOfType, Map<String, Integer> ordinals) {
+        int types = firstOfType.size();
+        this.ordinals = ordinals;
+        typeNames = new String[types];
+        attack    = new double[types][types];
+        defence   = new double[types][types];
+        for (int t = 0; t < types; t++) typeNames[t] = firstOfType.get(t).getUnitType();
+        for (int a = 0; a < types; a++) {
+            Map<String, Double> atk = firstOfType.get(a).getAttackBonuses();
+            Map<String, Double> def = firstOfType.get(a).getDefenceBonuses();
+            for (int t = 0; t < types; t++) {
+                attack [a][t] = bonus(atk, typeNames[t]);
+                defence[a][t] = bonus(def, typeNames[t]);
+            }
+        }
+    }
+
+    /**
+     * Матрица по юнитам {@code units} (null пропускаются): номера типов —
+     * в порядке первого появления, бонусы — карты первого юнита типа.
+     * Остальные юниты сверяются со строкой своего типа по всем типам боя:
+     * юнит с другими бонусами получил бы урон не тот, что {@link #mapDamage}.
+     * O(N·T + T²).
+     *
+     * @throws IllegalArgumentException бонусы юнита расходятся с его типом
+     *                                  или типов больше {@link #MAX_TYPES}
+     */
+    public static DamageMatrix of(Iterable<Unit> units) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        List<Unit> firstOfType = new ArrayList<>();
+        for (Unit u : units) {
+            if (u == null || ordinals.containsKey(u.getUnitType())) continue;
+            if (ordinals.size() == MAX_TYPES) throw new IllegalArgumentException("too many unit types");
+            ordinals.put(u.getUnitType(), ordinals.size());
+            firstOfType.add(u);
+        }
+        DamageMatrix m = new DamageMatrix(firstOfType, ordinals);
+        for (Unit u : units) {
+            if (u != null) m.check(u);
+        }
+        return m;
+    }
+
+    /**
+     * Бонусы {@code u} против всех типов матрицы — те же, что в строке его
+     * типа (карты сверяются по значениям: их могли поменять после
+     * построения).  O(T).
+     *
+     * @throws IllegalArgumentException тип не в матрице или бонусы расходятся
+     */
+    void check(Unit u) {
+        int a = ordinal(u.getUnitType());
+        if (a < 0) throw new IllegalArgumentException("unit type not in damage matrix: " + u.getUnitType());
+        Map<String, Double> atk = u.getAttackBonuses(), def = u.getDefenceBonuses();
+        for (int t = 0; t < typeNames.length; t++) {
+            if (Double.compare(bonus(atk, typeNames[t]), attack [a][t]) != 0
+                    || Double.compare(bonus(def, typeNames[t]), defence[a][t]) != 0)
+                throw new IllegalArgumentException("unit " + u.getName() + " has bonuses against "
+                        + typeNames[t] + " that differ from its type " + u.getUnitType());
+        }
+    }
+
+    private static double bonus(Map<String, Double> m, String key) {
+        if (m == null) return 1.0;
+        Double v = m.get(key);
+        return v == null ? 1.0 : v;
+    }
+
+    /* ------------------------------------------------------------------  типы */
+
+    public int types() {
+        return typeNames.length;
+    }
+
+    /** Номер типа или -1, если тип в матрицу не попал. */
+    public int ordinal(String unitType) {
+        Integer t = ordinals.get(unitType);
+        return t == null ? -1 : t;
+    }
+
+    public String typeName(int t) {
+        return typeNames[t];
+    }
+
+    /* ------------------------------------------------------------------  урон */
+
+    /** Множитель атаки типа {@code a} против типа {@code t}. */
+    public double attackBonus(int a, int t) {
+        return attack[a][t];
+    }
+
+    /** Делитель урона типа {@code t} от атакующего типа {@code a}. */
+    public double defenceBonus(int t, int a) {
+        return defence[t][a];
+    }
+
+    /** attackBonus / defenceBonus — итоговый множитель удара a по t. */
+    public double multiplier(int a, int t) {
+        return attack[a][t] / defence[t][a];
+    }
+
+    /** Урон удара {@code baseAttack} типа {@code a} по типу {@code t}, округлённо. */
+    public int damage(int baseAttack, int a, int t) {
+        return (int) Math.round(baseAttack * attack[a][t] / defence[t][a]);
+    }
+
+    /**
+     * Тот же урон напрямую по картам юнитов — эталон для сверки
+     * (строковые ключи и Double на каждый удар).
+     */
+    public static int mapDamage(Unit attacker, Unit target) {
+        return (int) Math.round(attacker.getBaseAttack()
+                * bonus(attacker.getAttackBonuses(), target.getUnitType())
+                / bonus(target.getDefenceBonuses(), attacker.getUnitType()));
+    }
+}
@@ -0,0 +1,170 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+
+import java.util.*;
+
+/**
+ * Поле расстояний «один ко многим».
+ *
+ * Один BFS от атакующего по всему полю 27*21 (8 направлений) вместо
+ * отдельного {@link UnitTargetPathFinderImpl#getTargetPath} на каждого
+ * кандидата-врага: K поисков превращаются в один.
+ *
+ * Правила те же, что и у BFS одной цели:
+ *   клетка живого юнита непроходима, но сама может быть КОНЕЧНОЙ точкой
+ *   пути — она получает расстояние и «откуда пришли», однако из неё
+ *   обход не продолжается.  Порядок соседей тот же, поэтому путь до
+ *   любого юнита совпадает клетка в клетку с результатом getTargetPath.
+ *
+ * После {@link #compute} запросы дешёвые:
+ *   {@link #distanceTo} — O(1), {@link #pathTo} — O(L), L — длина пути.
+ *
+ * Экземпляр переиспользуемый: повторный compute не выделяет память
+ * (поколения как в {@link PathSearchWorkspace}).  Не потокобезопасен.
+ */
+public final class DistanceField {
+
+    /* ------------------------------------------------------------------  конфигурация поля */
+    private static final int WIDTH  = 27;   // X: 0..26
+    private static final int HEIGHT = 21;   // Y: 0..20
+    private static final int CELLS  = WIDTH * HEIGHT;
+
+    /* 8 направлений — тот же порядок, что и у BFS */
+    private static final int[] DX = {-1,-1,-1, 0, 0, 1, 1, 1};
+    private static final int[] DY = {-1, 0, 1,-1, 1,-1, 0, 1};
+
+    /** Значение {@link #distanceTo} для недостижимой клетки. */
+    public static final int UNREACHABLE = -1;
+
+    private final int[] blocked = new int[CELLS];
+    private final int[] seen    = new int[CELLS];
+    private final int[] dist    = new int[CELLS];
+    private final int[] prev    = new int[CELLS];
+    private final int[] queue   = new int[CELLS];
+    private final int[] back    = new int[CELLS];
+
+    private int stamp;
+    private int source = -1;      // клетка источника; -1 — поле не построено
+
+    /** Строит новое поле от {@code source}. */
+    public static DistanceField from(Unit source, List<Unit> allUnits) {
+        return new DistanceField().compute(source, allUnits);
+    }
+
+    /**
+     * Пересчитывает поле от юнита {@code source} с учётом занятости
+     * {@code allUnits}.  Возвращает {@code this} для цепочек вызовов.
+     */
+    public DistanceField compute(Unit source, List<Unit> allUnits) {
+        nextStamp();
+        this.source = -1;
+        if (source == null) return this;
+
+        int sx = source.getxCoordinate();
+        int sy = source.getyCoordinate();
+        if (!inBounds(sx, sy)) return this;
+
+        int start = cell(sx, sy);
+        this.source = start;
+
+        /* 1. занятость: все живые юниты, кроме клетки источника */
+        if (allUnits != null) {
+            for (Unit u : allUnits) {
+                if (u == null || !u.isAlive()) continue;
+                int x = u.getxCoordinate();
+                int y = u.getyCoordinate();
+                if (!inBounds(x, y)) continue;
+                int c = cell(x, y);
+                if (c != start) blocked[c] = stamp;
+            }
+        }
+
+        /* 2. BFS по всему полю; занятые клетки — только «листья» */
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        seen[start]   = stamp;
+        dist[start]   = 0;
+
+        while (head < tail) {
+            int cur = queue[head++];
+            int cx = cur / HEIGHT, cy = cur % HEIGHT;
+            int nd = dist[cur] + 1;
+
+            for (int d = 0; d < 8; d++) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (!inBounds(nx, ny))   continue;
+                int n = cell(nx, ny);
+                if (seen[n] == stamp)    continue;
+
+                seen[n] = stamp;
+                dist[n] = nd;
+                prev[n] = cur;
+                if (blocked[n] != stamp) queue[tail++] = n; // из занятой клетки не идём дальше
+            }
+        }
+        return this;
+    }
+
+    /* ------------------------------------------------------------------  запросы */
+
+    /** Число шагов до клетки (x,y) или {@link #UNREACHABLE}. */
+    public int distanceTo(int x, int y) {
+        if (source < 0 || !inBounds(x, y)) return UNREACHABLE;
+        int c = cell(x, y);
+        return seen[c] == stamp ? dist[c] : UNREACHABLE;
+    }
+
+    /** Число шагов до клетки юнита или {@link #UNREACHABLE}. */
+    public int distanceTo(Unit target) {
+        return target == null ? UNREACHABLE
+                : distanceTo(target.getxCoordinate(), target.getyCoordinate());
+    }
+
+    public boolean isReachable(Unit target) {
+        return distanceTo(target) != UNREACHABLE;
+    }
+
+    /**
+     * Путь до клетки (x,y) в формате {@link UnitTargetPathFinderImpl}:
+     * без стартовой клетки, с конечной.  Пустой список — пути нет
+     * (или это клетка источника).
+     */
+    public List<Edge> pathTo(int x, int y) {
+        int d = distanceTo(x, y);
+        if (d <= 0) return Collections.emptyList();
+
+        int len = 0;
+        for (int c = cell(x, y); c != source; c = prev[c]) back[len++] = c;
+
+        List<Edge> path = new ArrayList<>(len);
+        for (int i = len - 1; i >= 0; i--) path.add(new Edge(back[i] / HEIGHT, back[i] % HEIGHT));
+        return path;
+    }
+
+    /** Путь до клетки юнита; см. {@link #pathTo(int, int)}. */
+    public List<Edge> pathTo(Unit target) {
+        return target == null ? Collections.emptyList()
+                : pathTo(target.getxCoordinate(), target.getyCoordinate());
+    }
+
+    /* ------------------------------------------------------------------  утилиты */
+
+    private void nextStamp() {
+        if (++stamp == 0) {                // переполнение — честно чистим
+            Arrays.fill(blocked, 0);
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+    }
+
+    private static int cell(int x, int y) {
+        return x * HEIGHT + y;
+    }
+
+    private static boolean inBounds(int x, int y) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+    }
+}
@@ -21,7 +21,7 @@ import java.util.*;
  *       где T – число уникальных типов (≤ 4), N ≈ T·11 = 44.
  *       На практике < 1 мс.
  *
- *  2) Расстановка — юниты ставятся линиями Y:
+ *  2) Расстановка ({@link PresetLayout}) — юниты ставятся линиями Y:
  *        X=0 – Archers  (дальний бой, тыл)
  *        X=1 – Infantry (Pikeman/Swordsman)
  *        X=2 – Knights  (тяжёлый фронт)
@@ -30,11 +30,14 @@ import java.util.*;
  *     в нулевой ход, а строй остаётся компактным.
  *
  *       Сложность: O(N) – один проход по спискам.
+ *
+ *  Точный оптимум по бюджету (без «недобора» очков) даёт
+ *  {@link KnapsackPresetImpl}.
  */
 public final class GeneratePresetImpl implements GeneratePreset {
 
     /** Ограничение из задания — не более 11 копий каждого типа. */
-    private static final int MAX_PER_TYPE = 11;
+    static final int MAX_PER_TYPE = 11;
 
     // ------------------------------------------------------------------ public
     @Override
@@ -100,46 +103,10 @@ public final class GeneratePresetImpl implements GeneratePreset {
         }
 
         /* ---------- Шаг 4. Расстановка по координатам ---------- */
-        List<Unit> archers  = filterByType(picked, "Archer");
-        List<Unit> infantry = filterByType(picked, "Pikeman", "Swordsman");
-        List<Unit> knights  = filterByType(picked, "Knight");
-
-        List<Unit> placed = new ArrayList<>(picked.size());
-        int row = 0; // = Y
-
-        // Заполняем строками до тех пор, пока какой-то список не опустеет
-        for (int a = 0,i = 0,k = 0; a < archers.size() || i < infantry.size() || k < knights.size(); row++) {
-            if (a < archers.size())  placed.add(cloneWithCoords(archers.get(a++),  0, row));
-            if (i < infantry.size()) placed.add(cloneWithCoords(infantry.get(i++), 1, row));
-            if (k < knights.size())  placed.add(cloneWithCoords(knights.get(k++),  2, row));
-        }
+        List<Unit> placed = PresetLayout.place(picked);
 
         army.setUnits(placed);
         army.setPoints(spent);
         return army;
     }
-
-    /** Возвращает подсписок по типам. */
-    private static List<Unit> filterByType(List<Unit> src, String... allowed) {
-        Set<String> ok = Set.of(allowed);
-        List<Unit> out = new ArrayList<>();
-        for (Unit u : src) if (ok.contains(u.getUnitType())) out.add(u);
-        return out;
-    }
-
-    /** Клонируем прототип, меняя только имя и координаты. */
-    private static Unit cloneWithCoords(Unit p, int x, int y) {
-        String type = p.getUnitType();
-        return new Unit(
-                type + ' ' + (y + 1),            // уникальное имя: «Knight 3»
-                type,
-                p.getHealth(),
-                p.getBaseAttack(),
-                p.getCost(),
-                p.getAttackType(),
-                new HashMap<>(p.getAttackBonuses()),
-                new HashMap<>(p.getDefenceBonuses()),
-                x, y
-        );
-    }
 }
@@ -0,0 +1,695 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Иерархический поиск пути (в духе HPA*, Botea et al.) для больших полей.
+ *
+ * BFS и A* на поле 500×500 при длинном пути раскрывают почти всё поле.
+ * Здесь поле режется на кластеры cs×cs, и поиск идёт в два уровня:
+ *
+ *   1. Абстрактный граф.  На каждой границе соседних кластеров —
+ *      «переходы» (пара свободных клеток по обе стороны):
+ *        • прямые — по одному на отрезок свободных пар (середина,
+ *          у отрезков от 6 клеток — оба конца);
+ *        • диагональные — только там, где прямого обхода рядом нет,
+ *          и на углах четырёх кластеров.
+ *      Клетки переходов — вершины; внутри кластера вершины связаны
+ *      длинами путей BFS по кластеру, через границу — ребром длины 1.
+ *   2. Запрос.  Старт и цель подключаются BFS по блоку кластеров вокруг
+ *      них (≤ 2×2); если блоки пересекаются, старт связан с целью и
+ *      напрямую — через лучшую общую клетку.  A* с эвристикой Чебышёва
+ *      идёт по абстрактному графу, каждое его ребро уточняется BFS
+ *      внутри одного кластера.
+ *
+ * Правила поля — как у {@link UnitTargetPathFinderImpl}: 8 направлений,
+ * шаг стоит 1, живые юниты непроходимы, кроме старта и цели.
+ * Путь существует тогда же, когда его находит BFS (любой переход
+ * через границу представлен переходом своего отрезка или сам собой),
+ * но он не обязательно кратчайший: обычно длиннее на несколько процентов.
+ *
+ * Граф строится по занятости первого запроса и перестраивается только
+ * в кластерах, где занятость изменилась (и у их соседей), — между
+ * ходами боя это единицы кластеров; сверка занятости идёт по клеткам
+ * юнитов, без прохода по полю.  Память: две битовые карты поля,
+ * вершины и матрицы расстояний кластеров, три рабочих блока (2cs)².
+ *
+ * Экземпляр хранит граф и НЕ потокобезопасен: один поиск за раз.
+ */
+public class HierarchicalPathFinder implements UnitTargetPathFinder {
+
+    /** Сторона кластера по умолчанию. */
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    /** С этой длины отрезок свободных пар получает два перехода (по концам). */
+    private static final int LONG_RUN = 6;
+
+    private static final int[] DX = {-1,-1,-1, 0, 0, 1, 1, 1};
+    private static final int[] DY = {-1, 0, 1,-1, 1,-1, 0, 1};
+
+    private final int width, height, cs;
+    /** число кластеров по X и по Y; кластер k = ci * ch + cj */
+    private final int cw, ch;
+    private final int words;
+
+    /* ------------------------------------------------------------------  граф */
+    /** занятость, по которой построен граф */
+    private final long[] blocked;
+    private boolean built;
+    /** клетки, занятые в {@link #blocked}, — по ним карта сверяется и чистится */
+    private int[] blockedCells = new int[16];
+    private int   blockedCount;
+    private boolean bordersChanged;
+
+    /** пары переходов, плоско [a0,b0,a1,b1,…]; a — в кластере с меньшим ci (при равном — cj) */
+    private final int[][] xPairs;   // (ci,cj) | (ci+1,cj)
+    private final int[][] yPairs;   // (ci,cj) | (ci,cj+1)
+    private final int[][] dPairs;   // (ci,cj) | (ci+1,cj+1)
+    private final int[][] aPairs;   // (ci,cj+1) | (ci+1,cj)
+
+    /** вершины кластера — отсортированные клетки; intra — m×m расстояний, -1 — не связаны */
+    private final int[][] portals;
+    private final int[][] intra;
+
+    /** глобальная нумерация вершин: base[k] + индекс в portals[k] */
+    private int[] base = new int[0];
+    private int[] nodeCell = new int[0];
+    private int[] nodeCluster = new int[0];
+    private int[] interStart = new int[1];
+    private int[] interTo = new int[0];
+    private int   nodes;
+
+    /* ------------------------------------------------------------------  рабочие буферы */
+    private final Box startBox, goalBox, work;
+    /** занятость текущего запроса (чистится по {@link #nowCells}); кластеры к перестройке */
+    private final long[] now;
+    private int[] nowCells = new int[16];
+    private final boolean[] dirty, rebuild;
+    /** клетка, где встретились блоки старта и цели в последнем поиске */
+    private int meet;
+    private int[]  gScore = new int[0], prevNode = new int[0], mark = new int[0];
+    private long[] heap = new long[16];
+    private int    stamp;
+
+    /** Поле {@code width}×{@code height}, кластеры {@link #DEFAULT_CLUSTER_SIZE}. */
+    public HierarchicalPathFinder(int width, int height) {
+        this(width, height, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalPathFinder(int width, int height, int clusterSize) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("board " + width + "x" + height);
+        if (clusterSize < 2)         throw new IllegalArgumentException("clusterSize " + clusterSize);
+        this.width  = width;
+        this.height = height;
+        this.cs     = clusterSize;
+        this.cw     = (width  + cs - 1) / cs;
+        this.ch     = (height + cs - 1) / cs;
+        this.words  = (Math.multiplyExact(width, height) + 63) >>> 6;
+        this.blocked = new long[words];
+        this.now     = new long[words];
+        int k = cw * ch;
+        dirty   = new boolean[k];
+        rebuild = new boolean[k];
+        xPairs  = new int[k][];
+        yPairs  = new int[k][];
+        dPairs  = new int[k][];
+        aPairs  = new int[k][];
+        portals = new int[k][];
+        intra   = new int[k][];
+        startBox = new Box(2 * cs);
+        goalBox  = new Box(2 * cs);
+        work     = new Box(cs);
+    }
+
+    public int getWidth()       { return width; }
+    public int getHeight()      { return height; }
+    public int getClusterSize() { return cs; }
+
+    /** Вершин в абстрактном графе (после последнего запроса). */
+    public int abstractNodes() {
+        return nodes;
+    }
+
+    /* ==================================================================  публичный API */
+
+    @Override
+    public List<Edge> getTargetPath(Unit attacker, Unit target, List<Unit> allUnits) {
+        if (attacker == null || target == null) return Collections.emptyList();
+
+        int sx = attacker.getxCoordinate(), sy = attacker.getyCoordinate();
+        int tx = target.getxCoordinate(),   ty = target.getyCoordinate();
+        if (!inBounds(sx, sy) || !inBounds(tx, ty)) return Collections.emptyList();
+        if (sx == tx && sy == ty)                   return Collections.emptyList();
+
+        update(allUnits);
+
+        int start = cell(sx, sy), goal = cell(tx, ty);
+        // подключение старта и цели: BFS по блоку кластеров вокруг них
+        openBox(startBox, start, goal);
+        openBox(goalBox,  goal,  start);
+
+        List<Integer> route = searchAbstract(start, goal);
+        if (route == null) return Collections.emptyList();
+        return refine(route, start, goal);
+    }
+
+    /* ==================================================================  занятость → граф */
+
+    /**
+     * Сверяет занятость с той, по которой построен граф, и перестраивает изменившиеся кластеры.
+     * Сравниваются только клетки юнитов — прошлого запроса и этого, — так что
+     * запрос без изменений стоит O(юнитов), а не O(поля); буферы не выделяются.
+     */
+    private void update(List<Unit> units) {
+        int count = 0;
+        if (units != null) {
+            for (Unit u : units) {
+                if (u == null || !u.isAlive()) continue;
+                int x = u.getxCoordinate(), y = u.getyCoordinate();
+                if (!inBounds(x, y)) continue;
+                int c = cell(x, y);
+                if ((now[c >>> 6] & (1L << c)) != 0) continue;
+                now[c >>> 6] |= 1L << c;
+                if (count == nowCells.length) nowCells = Arrays.copyOf(nowCells, count * 2);
+                nowCells[count++] = c;
+            }
+        }
+
+        Arrays.fill(dirty, false);
+        boolean any = !built;
+        if (!built) {
+            Arrays.fill(dirty, true);
+        } else {
+            for (int i = 0; i < count; i++) {
+                int c = nowCells[i];
+                if (!isBlocked(c)) { dirty[clusterOf(c)] = true; any = true; }
+            }
+            for (int i = 0; i < blockedCount; i++) {
+                int c = blockedCells[i];
+                if ((now[c >>> 6] & (1L << c)) == 0) { dirty[clusterOf(c)] = true; any = true; }
+            }
+        }
+        for (int i = 0; i < count; i++) now[nowCells[i] >>> 6] = 0L;
+        if (!any) return;
+
+        for (int i = 0; i < blockedCount; i++) blocked[blockedCells[i] >>> 6] = 0L;
+        for (int i = 0; i < count; i++)        blocked[nowCells[i] >>> 6] |= 1L << nowCells[i];
+        int[] t = blockedCells;
+        blockedCells = nowCells;
+        blockedCount = count;
+        nowCells     = t;
+        built = true;
+
+        // границы, касающиеся изменённых кластеров; changed — у кого сменились вершины
+        System.arraycopy(dirty, 0, rebuild, 0, dirty.length);
+        for (int ci = 0; ci < cw; ci++) {
+            for (int cj = 0; cj < ch; cj++) {
+                int k = ci * ch + cj;
+                if (ci + 1 < cw && (dirty[k] || dirty[k + ch]))
+                    xPairs[k] = border(xPairs[k], straightBorder(true, ci, cj), rebuild, k, k + ch);
+                if (cj + 1 < ch && (dirty[k] || dirty[k + 1]))
+                    yPairs[k] = border(yPairs[k], straightBorder(false, ci, cj), rebuild, k, k + 1);
+                if (ci + 1 < cw && cj + 1 < ch && (dirty[k] || dirty[k + ch + 1]))
+                    dPairs[k] = border(dPairs[k], cornerPair((ci + 1) * cs - 1, (cj + 1) * cs - 1, 1, 1),
+                                       rebuild, k, k + ch + 1);
+                if (ci + 1 < cw && cj + 1 < ch && (dirty[k + 1] || dirty[k + ch]))
+                    aPairs[k] = border(aPairs[k], cornerPair((ci + 1) * cs - 1, (cj + 1) * cs, 1, -1),
+                                       rebuild, k + 1, k + ch);
+            }
+        }
+        // вершины и расстояния — у изменённых кластеров и у соседей, чья граница сменилась;
+        // нумерация вершин — только если где-то сменился их набор
+        boolean relabel = false;
+        for (int k = 0; k < cw * ch; k++) {
+            if (!rebuild[k]) continue;
+            int[] before = portals[k];
+            rebuildCluster(k / ch, k % ch);
+            relabel |= !Arrays.equals(before, portals[k]);
+        }
+        if (relabel || bordersChanged) relink();
+        bordersChanged = false;
+    }
+
+    /** Новые пары границы; если они отличаются от прежних — оба кластера перестраиваются. */
+    private int[] border(int[] before, int[] after, boolean[] rebuild, int a, int b) {
+        if (!Arrays.equals(before, after)) {
+            rebuild[a] = true;
+            rebuild[b] = true;
+            bordersChanged = true;
+        }
+        return after;
+    }
+
+    /**
+     * Переходы через границу между кластером (ci,cj) и следующим по X
+     * ({@code acrossX}) или по Y.  Вдоль границы — координата u,
+     * поперёк — клетки {@code near} (наш кластер) и {@code far}.
+     */
+    private int[] straightBorder(boolean acrossX, int ci, int cj) {
+        int near = acrossX ? (ci + 1) * cs - 1 : (cj + 1) * cs - 1;
+        int u0   = acrossX ? cj * cs : ci * cs;
+        int u1   = Math.min(acrossX ? height : width, u0 + cs);   // исключительно
+        IntList out = new IntList();
+
+        // прямые пары: отрезки подряд свободных, по одному-два перехода на отрезок
+        int run = -1;
+        for (int u = u0; u <= u1; u++) {
+            boolean open = u < u1 && free(acrossX, near, u) && free(acrossX, near + 1, u);
+            if (open && run < 0) run = u;
+            if (!open && run >= 0) {
+                int last = u - 1;
+                if (last - run + 1 >= LONG_RUN) {
+                    addStraight(out, acrossX, near, run);
+                    addStraight(out, acrossX, near, last);
+                } else {
+                    addStraight(out, acrossX, near, (run + last) >>> 1);
+                }
+                run = -1;
+            }
+        }
+        // диагональные пары внутри того же ряда кластеров, если рядом нет прямой
+        for (int u = u0; u + 1 < u1; u++) {
+            for (int s = 0; s < 2; s++) {
+                int ua = s == 0 ? u : u + 1, ub = s == 0 ? u + 1 : u;
+                if (!free(acrossX, near, ua) || !free(acrossX, near + 1, ub)) continue;
+                if (free(acrossX, near + 1, ua) || free(acrossX, near, ub))   continue; // прямой обход рядом
+                out.add(at(acrossX, near, ua));
+                out.add(at(acrossX, near + 1, ub));
+            }
+        }
+        return out.toArray();
+    }
+
+    private void addStraight(IntList out, boolean acrossX, int near, int u) {
+        out.add(at(acrossX, near, u));
+        out.add(at(acrossX, near + 1, u));
+    }
+
+    /** Переход через угол четырёх кластеров: (x,y) → (x+1, y+dy), если обе свободны. */
+    private int[] cornerPair(int x, int y, int dx, int dy) {
+        int bx = x + dx, by = y + dy;
+        if (!inBounds(x, y) || !inBounds(bx, by)) return new int[0];
+        if (isBlocked(cell(x, y)) || isBlocked(cell(bx, by))) return new int[0];
+        return new int[]{cell(x, y), cell(bx, by)};
+    }
+
+    /** Клетка по координатам «поперёк / вдоль» границы. */
+    private int at(boolean acrossX, int across, int along) {
+        return acrossX ? cell(across, along) : cell(along, across);
+    }
+
+    private boolean free(boolean acrossX, int across, int along) {
+        return !isBlocked(at(acrossX, across, along));
+    }
+
+    /** Вершины кластера — клетки его стороны во всех восьми границах; расстояния между ними. */
+    private void rebuildCluster(int ci, int cj) {
+        int k = ci * ch + cj;
+        IntList cells = new IntList();
+        collect(cells, ci + 1 < cw ? xPairs[k] : null, 0);
+        collect(cells, ci > 0 ? xPairs[k - ch] : null, 1);
+        collect(cells, cj + 1 < ch ? yPairs[k] : null, 0);
+        collect(cells, cj > 0 ? yPairs[k - 1] : null, 1);
+        collect(cells, ci + 1 < cw && cj + 1 < ch ? dPairs[k] : null, 0);
+        collect(cells, ci > 0 && cj > 0 ? dPairs[k - ch - 1] : null, 1);
+        collect(cells, cj > 0 && ci + 1 < cw ? aPairs[k - 1] : null, 0);        // a — в (ci, cj)
+        collect(cells, ci > 0 && cj + 1 < ch ? aPairs[k - ch] : null, 1);       // b — в (ci, cj)
+        int[] p = cells.toArray();
+        Arrays.sort(p);
+        int m = 0;
+        for (int i = 0; i < p.length; i++) if (i == 0 || p[i] != p[i - 1]) p[m++] = p[i];
+        p = Arrays.copyOf(p, m);
+
+        int[] d = new int[m * m];
+        int x0 = ci * cs, y0 = cj * cs;
+        for (int i = 0; i < m; i++) {
+            work.run(this, p[i], -1, x0, Math.min(width, x0 + cs), y0, Math.min(height, y0 + cs));
+            for (int j = 0; j < m; j++) d[i * m + j] = work.dist(p[j]);
+        }
+        portals[k] = p;
+        intra[k]   = d;
+    }
+
+    private static void collect(IntList out, int[] pairs, int side) {
+        if (pairs == null) return;
+        for (int i = side; i < pairs.length; i += 2) out.add(pairs[i]);
+    }
+
+    /** Сквозная нумерация вершин и рёбра через границы (CSR). */
+    private void relink() {
+        int k = cw * ch;
+        base = new int[k + 1];
+        for (int i = 0; i < k; i++) base[i + 1] = base[i] + portals[i].length;
+        nodes = base[k];
+        nodeCell    = new int[nodes];
+        nodeCluster = new int[nodes];
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < portals[i].length; j++) {
+                nodeCell[base[i] + j]    = portals[i][j];
+                nodeCluster[base[i] + j] = i;
+            }
+        }
+
+        int[] degree = new int[nodes + 1];
+        int[][][] all = {xPairs, yPairs, dPairs, aPairs};
+        for (int[][] kind : all)
+            for (int[] pairs : kind)
+                if (pairs != null)
+                    for (int i = 0; i < pairs.length; i += 2) {
+                        degree[nodeOf(pairs[i])]++;
+                        degree[nodeOf(pairs[i + 1])]++;
+                    }
+        interStart = new int[nodes + 1];
+        for (int i = 0; i < nodes; i++) interStart[i + 1] = interStart[i] + degree[i];
+        interTo = new int[interStart[nodes]];
+        int[] fill = Arrays.copyOf(interStart, nodes);
+        for (int[][] kind : all)
+            for (int[] pairs : kind)
+                if (pairs != null)
+                    for (int i = 0; i < pairs.length; i += 2) {
+                        int a = nodeOf(pairs[i]), b = nodeOf(pairs[i + 1]);
+                        interTo[fill[a]++] = b;
+                        interTo[fill[b]++] = a;
+                    }
+
+        if (gScore.length < nodes + 2) {
+            gScore   = new int[nodes + 2];
+            prevNode = new int[nodes + 2];
+            mark     = new int[nodes + 2];
+            stamp    = 0;
+        }
+    }
+
+    private int nodeOf(int c) {
+        int k = clusterOf(c);
+        return base[k] + Arrays.binarySearch(portals[k], c);
+    }
+
+    /* ==================================================================  запрос */
+
+    /** BFS от {@code origin} по блоку кластеров вокруг него; {@code other} считается проходимой. */
+    private void openBox(Box box, int origin, int other) {
+        int ox = origin / height, oy = origin % height;
+        int ci0 = Math.max(0, ox - 1) / cs, ci1 = Math.min(width  - 1, ox + 1) / cs;
+        int cj0 = Math.max(0, oy - 1) / cs, cj1 = Math.min(height - 1, oy + 1) / cs;
+        box.run(this, origin, other, ci0 * cs, Math.min(width, (ci1 + 1) * cs),
+                                     cj0 * cs, Math.min(height, (cj1 + 1) * cs));
+    }
+
+    /**
+     * A* по абстрактному графу.  Вершины nodes и nodes+1 — старт и цель.
+     * Возвращает цепочку вершин от старта к цели или null.
+     */
+    private List<Integer> searchAbstract(int start, int goal) {
+        final int S = nodes, G = nodes + 1;
+        if (++stamp == 0) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        int size = 0;
+
+        // старт: вершины своего блока; прямой путь до цели — через общую часть блоков
+        gScore[S] = 0;
+        mark[S]   = stamp;
+        int direct = meetBoxes();
+        if (direct >= 0) {
+            gScore[G] = direct;
+            prevNode[G] = S;
+            mark[G] = stamp;
+            size = push(size, direct, G);
+        }
+        for (int k : startBox.clusters(this)) {
+            for (int j = 0; j < portals[k].length; j++) {
+                int d = startBox.dist(portals[k][j]);
+                if (d < 0) continue;
+                size = relax(size, S, base[k] + j, d, goal);
+            }
+        }
+
+        while (size > 0) {
+            long top = heap[0];
+            heap[0] = heap[--size];
+            siftDown(size);
+            int u = (int) top;
+            int f = (int) (top >>> 32);
+            if (u == G) return chain(S, G);
+            if (mark[u] != stamp || f > gScore[u] + heuristic(nodeCell[u], goal)) continue; // устаревшая запись
+
+            int gu = gScore[u];
+            int toGoal = goalBox.dist(nodeCell[u]);
+            if (toGoal >= 0) size = relax(size, u, G, gu + toGoal, goal);
+
+            int k = nodeCluster[u], m = portals[k].length, i = u - base[k];
+            for (int j = 0; j < m; j++) {
+                int d = intra[k][i * m + j];
+                if (d > 0) size = relax(size, u, base[k] + j, gu + d, goal);
+            }
+            for (int e = interStart[u]; e < interStart[u + 1]; e++) {
+                size = relax(size, u, interTo[e], gu + 1, goal);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Кратчайший путь старт → цель, не выходящий из двух блоков:
+     * min по общим клеткам (startBox.dist + goalBox.dist), клетка — в {@link #meet}.
+     * Блоки могут пересекаться там, где у графа нет переходов
+     * (их клетки соседствуют со стартом или целью, а те в графе заняты),
+     * поэтому одной проверки «цель в блоке старта» мало.  -1 — общих клеток нет.
+     */
+    private int meetBoxes() {
+        int x0 = Math.max(startBox.x0, goalBox.x0), x1 = Math.min(startBox.x1, goalBox.x1);
+        int y0 = Math.max(startBox.y0, goalBox.y0), y1 = Math.min(startBox.y1, goalBox.y1);
+        int best = -1;
+        for (int x = x0; x < x1; x++) {
+            for (int y = y0; y < y1; y++) {
+                int c = cell(x, y);
+                int a = startBox.dist(c);
+                if (a < 0) continue;
+                int b = goalBox.dist(c);
+                if (b < 0 || (best >= 0 && a + b >= best)) continue;
+                best = a + b;
+                meet = c;
+            }
+        }
+        return best;
+    }
+
+    private int relax(int size, int from, int v, int g, int goal) {
+        if (mark[v] == stamp && gScore[v] <= g) return size;
+        mark[v]     = stamp;
+        gScore[v]   = g;
+        prevNode[v] = from;
+        int h = v == nodes + 1 ? 0 : heuristic(nodeCell[v], goal);
+        return push(size, g + h, v);
+    }
+
+    private List<Integer> chain(int s, int g) {
+        List<Integer> route = new ArrayList<>();
+        for (int v = g; v != s; v = prevNode[v]) route.add(v);
+        route.add(s);
+        Collections.reverse(route);
+        return route;
+    }
+
+    /** Поклеточный путь по цепочке вершин (без стартовой клетки, с целевой). */
+    private List<Edge> refine(List<Integer> route, int start, int goal) {
+        final int S = nodes, G = nodes + 1;
+        IntList cells = new IntList();
+        for (int i = 0; i + 1 < route.size(); i++) {
+            int a = route.get(i), b = route.get(i + 1);
+            if (a == S && b == G) {
+                startBox.pathTo(meet, cells, false);
+                goalBox.pathTo(meet, cells, true);            // от встречи до цели включительно
+            } else if (a == S) {
+                startBox.pathTo(nodeCell[b], cells, false);
+            } else if (b == G) {
+                goalBox.pathTo(nodeCell[a], cells, true);     // BFS шёл от цели — берём цепочку назад, до цели включительно
+            } else if (nodeCluster[a] == nodeCluster[b] && !adjacent(nodeCell[a], nodeCell[b])) {
+                int k = nodeCluster[a], x0 = (k / ch) * cs, y0 = (k % ch) * cs;
+                work.run(this, nodeCell[a], -1, x0, Math.min(width, x0 + cs), y0, Math.min(height, y0 + cs));
+                work.pathTo(nodeCell[b], cells, false);
+            } else {
+                cells.add(nodeCell[b]);                       // переход через границу — один шаг
+            }
+        }
+        List<Edge> path = new ArrayList<>(cells.size);
+        for (int i = 0; i < cells.size; i++) path.add(new Edge(cells.data[i] / height, cells.data[i] % height));
+        return path;
+    }
+
+    /* ==================================================================  куча */
+
+    private int push(int size, int f, int v) {
+        if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+        long key = ((long) f << 32) | v;
+        int i = size;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (heap[p] <= key) break;
+            heap[i] = heap[p];
+            i = p;
+        }
+        heap[i] = key;
+        return size + 1;
+    }
+
+    private void siftDown(int size) {
+        if (size == 0) return;
+        long key = heap[0];
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) break;
+            int r = l + 1;
+            int m = (r < size && heap[r] < heap[l]) ? r : l;
+            if (heap[m] >= key) break;
+            heap[i] = heap[m];
+            i = m;
+        }
+        heap[i] = key;
+    }
+
+    /* ==================================================================  поле */
+
+    private int heuristic(int a, int b) {
+        return Math.max(Math.abs(a / height - b / height), Math.abs(a % height - b % height));
+    }
+
+    private boolean adjacent(int a, int b) {
+        return heuristic(a, b) == 1;
+    }
+
+    private int clusterOf(int c) {
+        return (c / height / cs) * ch + (c % height) / cs;
+    }
+
+    private boolean isBlocked(int c) {
+        return (blocked[c >>> 6] & (1L << c)) != 0;
+    }
+
+    private int cell(int x, int y) {
+        return x * height + y;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /* ==================================================================  BFS в прямоугольнике */
+
+    /**
+     * BFS по прямоугольнику клеток [x0,x1)×[y0,y1) со штампами:
+     * расстояния и направления прихода в локальных массивах side×side.
+     */
+    private static final class Box {
+        private final int   side;
+        private final int[] seen, dist, queue;
+        private final byte[] dir;
+        private int stamp, x0, x1, y0, y1, height;
+
+        Box(int side) {
+            this.side = side;
+            seen  = new int[side * side];
+            dist  = new int[side * side];
+            queue = new int[side * side];
+            dir   = new byte[side * side];
+        }
+
+        /** BFS от origin; занятые клетки непроходимы, кроме {@code other} (в неё входим, но не идём дальше). */
+        void run(HierarchicalPathFinder f, int origin, int other, int x0, int x1, int y0, int y1) {
+            this.x0 = x0; this.x1 = x1; this.y0 = y0; this.y1 = y1;
+            this.height = f.height;
+            if (++stamp == 0) {
+                Arrays.fill(seen, 0);
+                stamp = 1;
+            }
+            int o = local(origin);
+            seen[o] = stamp;
+            dist[o] = 0;
+            int head = 0, tail = 0;
+            queue[tail++] = origin;
+            while (head < tail) {
+                int cur = queue[head++];
+                if (cur == other) continue;
+                int cx = cur / height, cy = cur % height, dc = dist[local(cur)] + 1;
+                for (int d = 0; d < 8; d++) {
+                    int nx = cx + DX[d], ny = cy + DY[d];
+                    if (nx < x0 || nx >= x1 || ny < y0 || ny >= y1) continue;
+                    int n = nx * height + ny;
+                    int l = local(n);
+                    if (seen[l] == stamp) continue;
+                    if (n != other && f.isBlocked(n)) continue;
+                    seen[l] = stamp;
+                    dist[l] = dc;
+                    dir[l]  = (byte) d;
+                    queue[tail++] = n;
+                }
+            }
+        }
+
+        /** Расстояние до клетки или -1 (не достигнута / вне прямоугольника). */
+        int dist(int c) {
+            int x = c / height, y = c % height;
+            if (x < x0 || x >= x1 || y < y0 || y >= y1) return -1;
+            int l = local(c);
+            return seen[l] == stamp ? dist[l] : -1;
+        }
+
+        /** Кластеры прямоугольника. */
+        int[] clusters(HierarchicalPathFinder f) {
+            IntList out = new IntList();
+            for (int ci = x0 / f.cs; ci * f.cs < x1; ci++)
+                for (int cj = y0 / f.cs; cj * f.cs < y1; cj++) out.add(ci * f.ch + cj);
+            return out.toArray();
+        }
+
+        /**
+         * Дописывает путь от начала BFS до {@code c} без начальной клетки;
+         * {@code reversed} — путь от c к началу без c, но с началом.
+         */
+        void pathTo(int c, IntList out, boolean reversed) {
+            int from = out.size;
+            for (int cur = c; dist[local(cur)] > 0; ) {
+                int d = dir[local(cur)];
+                int prev = cur - (DX[d] * height + DY[d]);
+                out.add(reversed ? prev : cur);
+                cur = prev;
+            }
+            if (!reversed) out.reverse(from, out.size);
+        }
+
+        private int local(int c) {
+            return (c / height - x0) * side + (c % height - y0);
+        }
+    }
+
+    /** Растущий массив int без упаковки. */
+    private static final class IntList {
+        int[] data = new int[16];
+        int   size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+
+        void reverse(int from, int to) {
+            for (int i = from, j = to - 1; i < j; i++, j--) {
+                int t = data[i]; data[i] = data[j]; data[j] = t;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.GeneratePreset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Генератор пресета — точное решение ограниченного рюкзака.
+ *
+ * Жадный {@link GeneratePresetImpl} берёт самых «выгодных» по
+ * Attack/Cost, пока влезают, и на неудобных бюджетах оставляет очки
+ * неиспользованными.  Здесь комплектация — задача о рюкзаке:
+ *   вес        — cost юнита,
+ *   ценность   — {@code value} (по умолчанию baseAttack),
+ *   tie-break  — {@code tieBreak} (по умолчанию health),
+ *   ограничение — не более {@link GeneratePresetImpl#MAX_PER_TYPE} копий типа.
+ * Суммарная ценность максимизируется, при равенстве — суммарный
+ * tie-break.  Отношение Attack/Cost учитывается само: дорогой юнит
+ * «занимает» больше бюджета.
+ *
+ *  1) Копии типа разбиваются на пачки 1, 2, 4, …, остаток — обычный
+ *     приём для ограниченного рюкзака: любое число 0..m набирается из
+ *     пачек, а пачек всего O(log m).  Получается ≤ T·4 предметов 0/1.
+ *  2) ДП по бюджету на примитивных массивах: лучшая пара (ценность,
+ *     tie-break) при весе ≤ w — в двух параллельных long-таблицах,
+ *     сравнение лексикографическое.  Какие пачки взяты — битовые
+ *     строки {@code long[]} на предмет, для восстановления ответа.
+ *     Веса делятся на НОД стоимостей, а бюджет обрезается до стоимости
+ *     «всех копий всех типов», поэтому огромный maxPoints ничего не стоит.
+ *
+ *       Сложность: O(T·log(MAX_PER_TYPE)·W), W = min(maxPoints, Σcost·11) / НОД.
+ *       Память:    O(T·log(MAX_PER_TYPE)·W / 64) слов + два массива W.
+ *       На бюджетах в десятки тысяч — доли миллисекунды.
+ *
+ *  3) Расстановка — та же, что у жадного: {@link PresetLayout}.
+ */
+public final class KnapsackPresetImpl implements GeneratePreset {
+
+    private final ToIntFunction<Unit> value;
+    private final ToIntFunction<Unit> tieBreak;
+
+    /** Максимум суммарной атаки, при равенстве — суммарного здоровья. */
+    public KnapsackPresetImpl() {
+        this(Unit::getBaseAttack, Unit::getHealth);
+    }
+
+    /**
+     * @param value    ценность одного юнита по его прототипу
+     * @param tieBreak вторичная ценность — решает при равной сумме {@code value}
+     */
+    public KnapsackPresetImpl(ToIntFunction<Unit> value, ToIntFunction<Unit> tieBreak) {
+        this.value    = Objects.requireNonNull(value, "value");
+        this.tieBreak = Objects.requireNonNull(tieBreak, "tieBreak");
+    }
+
+    // ------------------------------------------------------------------ public
+    @Override
+    public Army generate(List<Unit> prototypes, int maxPoints) {
+
+        Army army = new Army();
+
+        // Базовые проверки входных данных
+        if (prototypes == null || prototypes.isEmpty() || maxPoints <= 0) {
+            army.setUnits(Collections.emptyList());
+            army.setPoints(0);
+            return army;
+        }
+
+        /* ---------- Шаг 1. Уникальные эталоны каждого типа (первый по списку) ---------- */
+        Map<String, Unit> protoByType = new LinkedHashMap<>();
+        for (Unit u : prototypes) {
+            if (u != null && u.getCost() >= 0) protoByType.putIfAbsent(u.getUnitType(), u);
+        }
+
+        /* ---------- Шаг 2. Пачки копий: 1, 2, 4, …, остаток ---------- */
+        // Все веса делим на НОД стоимостей: ответ тот же, таблица в g раз короче
+        // (реальные цены кратны 5/10 — ДП идёт по десяткам, а не по очкам).
+        int g = 0;
+        for (Unit p : protoByType.values()) g = gcd(g, p.getCost());
+        if (g == 0) g = 1;
+
+        List<Unit>    itemUnit  = new ArrayList<>();
+        List<Integer> itemCount = new ArrayList<>();
+        long total = 0;
+        for (Unit p : protoByType.values()) {
+            int m = p.getCost() == 0 ? GeneratePresetImpl.MAX_PER_TYPE
+                                     : Math.min(GeneratePresetImpl.MAX_PER_TYPE, maxPoints / p.getCost());
+            total += (long) (p.getCost() / g) * m;
+            for (int k = 1; m > 0; k <<= 1) {
+                int take = Math.min(k, m);
+                itemUnit.add(p);
+                itemCount.add(take);
+                m -= take;
+            }
+        }
+        int cap = (int) Math.min(maxPoints / g, total);
+        int n   = itemUnit.size();
+
+        /* ---------- Шаг 3. ДП 0/1 по пачкам ---------- */
+        // Пара (ценность, tie-break) — в двух параллельных таблицах, сравнение
+        // лексикографическое.  Суммы ≤ 11·T·2^31 по модулю — long не переполнить,
+        // и tie-break любого знака не задевает ценность.
+        long[]   bestValue = new long[cap + 1];     // лучшая пара при весе ≤ w
+        long[]   bestTie   = new long[cap + 1];
+        long[][] taken     = new long[n][(cap >>> 6) + 1];
+
+        for (int i = 0; i < n; i++) {
+            Unit p  = itemUnit.get(i);
+            int  k  = itemCount.get(i);
+            int  wt = p.getCost() / g * k;
+            long v  = (long) value.applyAsInt(p) * k;
+            long t  = (long) tieBreak.applyAsInt(p) * k;
+            long[] row = taken[i];
+            for (int w = cap; w >= wt; w--) {   // по убыванию — каждая пачка не более раза
+                long nv = bestValue[w - wt] + v;
+                long nt = bestTie[w - wt] + t;
+                if (nv > bestValue[w] || (nv == bestValue[w] && nt > bestTie[w])) {
+                    bestValue[w] = nv;
+                    bestTie[w]   = nt;
+                    row[w >>> 6] |= 1L << w;
+                }
+            }
+        }
+
+        /* ---------- Шаг 4. Восстановление: идём по пачкам с конца ---------- */
+        List<Unit> picked = new ArrayList<>();
+        int spent = 0;
+        for (int i = n - 1, w = cap; i >= 0; i--) {
+            if ((taken[i][w >>> 6] & (1L << w)) == 0) continue;
+            Unit p = itemUnit.get(i);
+            int  k = itemCount.get(i);
+            for (int j = 0; j < k; j++) picked.add(p);
+            w     -= p.getCost() / g * k;
+            spent += p.getCost() * k;
+        }
+
+        /* ---------- Шаг 5. Расстановка по координатам ---------- */
+        army.setUnits(PresetLayout.place(picked));
+        army.setPoints(spent);
+        return army;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) { int t = a % b; a = b; b = t; }
+        return a;
+    }
+}
@@ -0,0 +1,99 @@
+package programs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма неотрицательных long в духе HdrHistogram: лог-линейные
+ * корзины — на каждую степень двойки по {@code 2^SUB_BITS} равных
+ * подкорзин, т.е. относительная ошибка квантиля ≤ 1/32 ≈ 3 %.
+ *
+ *   корзина значения v < 32   — само v (точно);
+ *   иначе e = floor(log2 v)   — блок e-4, подкорзина — следующие 5 бит после старшего.
+ *
+ * Всего 1888 корзин на весь диапазон long — массив выделяется один раз.
+ * {@link #record} не выделяет памяти и не берёт блокировок (атомарные
+ * инкременты), поэтому писать можно из нескольких потоков сразу.
+ * {@link #snapshot()} копирует корзины и считает квантили — это уже
+ * на стороне читателя.
+ */
+public final class LogHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB      = 1 << SUB_BITS;                 // 32
+    private static final int BUCKETS  = (63 - SUB_BITS + 1) * SUB;     // 1888
+
+    /** Квантили и агрегаты на момент снимка.  Квантиль — верхняя граница корзины, не больше max. */
+    public record Snapshot(long count, long min, long max, double mean,
+                           long p50, long p90, long p99, long p999) {
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0.0, 0, 0, 0, 0);
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      count  = new AtomicLong();
+    private final AtomicLong      sum    = new AtomicLong();
+    private final AtomicLong      min    = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong      max    = new AtomicLong();
+
+    /** Добавляет значение; отрицательные считаются нулём.  Без аллокаций. */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        long m;
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) { /* повтор */ }
+        while (v < (m = min.get()) && !min.compareAndSet(m, v)) { /* повтор */ }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /** Обнуляет все корзины.  Записи, идущие параллельно, могут попасть в любую сторону. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += (c[i] = counts.get(i));
+        if (total == 0) return Snapshot.EMPTY;
+
+        long hi = max.get();
+        return new Snapshot(total, min.get(), hi, (double) sum.get() / total,
+                quantile(c, total, 0.50, hi), quantile(c, total, 0.90, hi),
+                quantile(c, total, 0.99, hi), quantile(c, total, 0.999, hi));
+    }
+
+    /* ------------------------------------------------------------------  корзины */
+
+    static int indexOf(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);                    // ≥ SUB_BITS
+        return (e - SUB_BITS + 1) * SUB + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    /** Наибольшее значение, попадающее в корзину {@code i}. */
+    static long upperBound(int i) {
+        if (i < SUB) return i;
+        int block = i / SUB, sub = i % SUB;
+        long lower = (long) (SUB + sub) << (block - 1);
+        return lower + (1L << (block - 1)) - 1;
+    }
+
+    private static long quantile(long[] c, long total, double q, long max) {
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < c.length; i++) {
+            seen += c[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,220 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Индекс занятости поля на время одного боя.
+ *
+ * Битовая карта 27*21 клеток (cell = x*HEIGHT + y, 9 слов long)
+ * в двух слоях — по одному на армию — плюс их объединение.
+ * Вместо того чтобы каждый вызов поиска пути / поиска готовых к атаке
+ * юнитов заново обходил списки армий, {@link SimulateBattleImpl}
+ * строит индекс один раз и обновляет его после каждого хода:
+ * между двумя вызовами сдвигается или погибает максимум пара юнитов.
+ *
+ * Обновление — {@link #sync(Unit)}: индекс помнит последнюю известную
+ * клетку каждого юнита (по id из {@link BattleState}) и сам понимает,
+ * было ли перемещение или смерть.
+ * На одну клетку может попасть несколько юнитов, поэтому бит держится
+ * счётчиком и гаснет только когда клетка опустела.
+ *
+ * Доступ из finder'ов — через {@link #current()}: симулятор
+ * устанавливает индекс в текущий поток на время боя.  Если индекса нет
+ * (вызов вне симуляции), finder'ы строят занятость из списков, как раньше.
+ *
+ * Версия: каждое изменение объединения (клетка стала занятой или
+ * свободной) увеличивает {@link #version()} и пишется в короткий
+ * журнал последних {@link #LOG_SIZE} клеток.  Пара ({@link #id()},
+ * version) однозначно задаёт занятость поля — по ней кэш путей
+ * ({@link CachingPathFinder}) понимает, что поле не менялось.
+ *
+ * Не потокобезопасен: один бой — один поток.
+ */
+public final class OccupancyIndex {
+
+    /** Слой армии игрока. */
+    public static final int PLAYER   = BattleState.PLAYER;
+    /** Слой армии компьютера. */
+    public static final int COMPUTER = BattleState.COMPUTER;
+
+    /* ------------------------------------------------------------------  конфигурация поля */
+    static final int WIDTH  = 27;   // X: 0..26
+    static final int HEIGHT = 21;   // Y: 0..20
+    static final int CELLS  = WIDTH * HEIGHT;
+    static final int WORDS  = (CELLS + 63) >>> 6;
+
+    /** Сколько последних изменённых клеток помнит журнал. */
+    static final int LOG_SIZE = 256;
+
+    private static final ThreadLocal<OccupancyIndex> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong IDS = new AtomicLong();
+
+    /** layers[side] — занятость клеток юнитами армии side. */
+    private final long[][] layers = new long[2][WORDS];
+    /** объединение слоёв — то, что нужно поиску пути. */
+    private final long[]   union  = new long[WORDS];
+    /** сколько живых юнитов армии стоит в клетке. */
+    private final int[][]  counts = new int[2][CELLS];
+
+    /** юниты боя: id → сторона */
+    private final BattleState state;
+    /** последняя известная клетка юнита по id (-1 — мёртв или вне поля). */
+    private final int[] cellOf;
+
+    /** номер индекса, уникальный в процессе */
+    private final long id = IDS.incrementAndGet();
+    /** число изменений объединения; changed[v % LOG_SIZE] — клетка изменения v */
+    private long version;
+    private final int[] changed = new int[LOG_SIZE];
+
+    /** Индекс по таблице боя; вызывается из {@link BattleState}. */
+    OccupancyIndex(BattleState state) {
+        this.state  = state;
+        this.cellOf = new int[state.size()];
+        Arrays.fill(cellOf, -1);
+        for (int id = 0; id < cellOf.length; id++) sync(id);
+    }
+
+    /** Строит индекс по текущему положению обеих армий.  O(N). */
+    public static OccupancyIndex of(Army player, Army computer) {
+        return BattleState.of(player, computer).occupancy;
+    }
+
+    /* ------------------------------------------------------------------  привязка к потоку */
+
+    /** Индекс текущего боя в этом потоке или {@code null}. */
+    public static OccupancyIndex current() {
+        return CURRENT.get();
+    }
+
+    /** Устанавливает (или снимает при {@code null}) индекс текущего потока. */
+    public static void setCurrent(OccupancyIndex index) {
+        if (index == null) CURRENT.remove();
+        else               CURRENT.set(index);
+    }
+
+    /* ------------------------------------------------------------------  обновление */
+
+    /**
+     * Приводит индекс в соответствие с текущим состоянием юнита:
+     * переезд — перенос бита, смерть — снятие.  O(1).
+     * Юниты, не входившие в армии при построении, игнорируются.
+     */
+    public void sync(Unit u) {
+        int id = state.idOf(u);
+        if (id >= 0) sync(id);
+    }
+
+    /** То же по id юнита. */
+    void sync(int id) {
+        Unit u = state.units[id];
+        int  x = u.getxCoordinate(), y = u.getyCoordinate();
+        int now = (u.isAlive() && inBounds(x, y)) ? cell(x, y) : -1;
+        int was = cellOf[id];
+        if (now == was) return;
+
+        int side = state.side[id];
+        if (was >= 0 && --counts[side][was] == 0) clearBit(side, was);
+        if (now >= 0 && counts[side][now]++  == 0) setBit(side, now);
+        cellOf[id] = now;
+    }
+
+    /* ------------------------------------------------------------------  чтение */
+
+    /** Армия юнита ({@link #PLAYER} / {@link #COMPUTER}) или -1, если юнит не из этого боя. */
+    public int sideOf(Unit u) {
+        int id = state.idOf(u);
+        return id < 0 ? -1 : state.side[id];
+    }
+
+    /** true, если индекс знает юнита и его текущая клетка совпадает с известной. */
+    public boolean isTracked(Unit u) {
+        int id = state.idOf(u);
+        if (id < 0 || cellOf[id] < 0) return false;
+        int x = u.getxCoordinate(), y = u.getyCoordinate();
+        return inBounds(x, y) && cellOf[id] == cell(x, y);
+    }
+
+    /** Клетка занята живым юнитом любой армии. */
+    public boolean isOccupied(int x, int y) {
+        return inBounds(x, y) && testBit(union, cell(x, y));
+    }
+
+    /** Клетка занята живым юнитом армии {@code side}. */
+    public boolean isOccupied(int side, int x, int y) {
+        return inBounds(x, y) && testBit(layers[side], cell(x, y));
+    }
+
+    /** Слова слоя армии {@code side}; только для чтения внутри пакета. */
+    long[] layerWords(int side) {
+        return layers[side];
+    }
+
+    /** Слова объединения слоёв; только для чтения внутри пакета. */
+    long[] unionWords() {
+        return union;
+    }
+
+    /* ------------------------------------------------------------------  версия */
+
+    /** Номер индекса, уникальный в процессе: версии разных боёв не путаются. */
+    public long id() {
+        return id;
+    }
+
+    /** Число изменений занятости поля с момента построения. */
+    public long version() {
+        return version;
+    }
+
+    /** true, если журнал ещё помнит все изменения после версии {@code since}. */
+    boolean canReplay(long since) {
+        return since <= version && version - since <= LOG_SIZE;
+    }
+
+    /** Клетка, изменившаяся при переходе к версии {@code v}; только при {@link #canReplay}(v - 1). */
+    int changedCell(long v) {
+        return changed[(int) ((v - 1) % LOG_SIZE)];
+    }
+
+    /* ------------------------------------------------------------------  биты */
+
+    private void setBit(int side, int c) {
+        long m = 1L << c;                       // сдвиг берётся по модулю 64
+        layers[side][c >>> 6] |= m;
+        if ((union[c >>> 6] & m) == 0) {
+            union[c >>> 6] |= m;
+            logChange(c);
+        }
+    }
+
+    private void clearBit(int side, int c) {
+        long m = 1L << c;
+        layers[side][c >>> 6] &= ~m;
+        if (counts[1 - side][c] == 0) {
+            union[c >>> 6] &= ~m;
+            logChange(c);
+        }
+    }
+
+    private void logChange(int c) {
+        changed[(int) (version % LOG_SIZE)] = c;
+        version++;
+    }
+
+    private static boolean testBit(long[] words, int c) {
+        return (words[c >>> 6] & (1L << c)) != 0;
+    }
+
+    static int cell(int x, int y) {
+        return x * HEIGHT + y;
+    }
+
+    static boolean inBounds(int x, int y) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+    }
+}
@@ -0,0 +1,60 @@
+package programs;
+
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+
+import java.util.Locale;
+
+/**
+ * Переключатель реализации {@link UnitTargetPathFinder}.
+ *
+ * Все движки возвращают путь одинаковой (кратчайшей) длины, поэтому их
+ * можно менять местами и сравнивать «бок о бок»:
+ *
+ *   BFS  — {@link UnitTargetPathFinderImpl}, эталон;
+ *   ASTAR — {@link AStarPathFinderImpl} с эвристикой Чебышёва;
+ *   JPS  — тот же A* в режиме jump point search.
+ *
+ * Выбор без перекомпиляции — системное свойство
+ * {@code -Dheroes.pathfinder=bfs|astar|jps} (по умолчанию bfs).
+ *
+ * Иерархический {@link HierarchicalPathFinder} сюда не входит: его
+ * пути не всегда кратчайшие.
+ */
+public enum PathFinderEngine {
+
+    BFS,
+    ASTAR,
+    JPS;
+
+    /** Имя системного свойства с выбранным движком. */
+    public static final String PROPERTY = "heroes.pathfinder";
+
+    /** Новый экземпляр выбранной реализации. */
+    public UnitTargetPathFinder create() {
+        return switch (this) {
+            case BFS   -> new UnitTargetPathFinderImpl();
+            case ASTAR -> new AStarPathFinderImpl(AStarPathFinderImpl.Mode.ASTAR);
+            case JPS   -> new AStarPathFinderImpl(AStarPathFinderImpl.Mode.JUMP_POINT);
+        };
+    }
+
+    /** Новый экземпляр для поля {@code width}×{@code height}. */
+    public UnitTargetPathFinder create(int width, int height) {
+        return switch (this) {
+            case BFS   -> new UnitTargetPathFinderImpl(width, height);
+            case ASTAR -> new AStarPathFinderImpl(AStarPathFinderImpl.Mode.ASTAR, width, height);
+            case JPS   -> new AStarPathFinderImpl(AStarPathFinderImpl.Mode.JUMP_POINT, width, height);
+        };
+    }
+
+    /** Движок из {@link #PROPERTY}; неизвестное значение → BFS. */
+    public static PathFinderEngine fromSystemProperty() {
+        String v = System.getProperty(PROPERTY);
+        if (v == null) return BFS;
+        try {
+            return valueOf(v.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return BFS;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Переиспользуемые буферы поиска пути — по одному набору на поток.
+ *
+ * Клетка поля кодируется одним int: {@code cell = x * height + y}.
+ * Все массивы плоские и живут столько же, сколько поток, поэтому
+ * очередной вызов поиска ничего не выделяет в куче.
+ *
+ * «Поколения» (stamp):
+ *   вместо очистки массивов перед каждым поиском увеличиваем счётчик
+ *   {@code stamp}; клетка считается посещённой / занятой, только если
+ *   в соответствующем массиве лежит ТЕКУЩЕЕ поколение.  Сброс = O(1).
+ *   При переполнении int (раз в ~4 млрд поисков) массивы обнуляются.
+ *
+ * Очередь BFS — int-буфер на все клетки поля: каждая клетка попадает
+ *   в очередь не более одного раза, поэтому хвост никогда не догоняет
+ *   голову и заворачивать индексы не нужно.
+ *
+ * Компактный набор для больших полей ({@link #acquireBits(int)}):
+ *   занятость и посещённость — битовые карты (1 бит на клетку),
+ *   предшественник — номер направления в byte, а не int-индекс клетки,
+ *   путь восстанавливается по направлениям без буфера {@link #path}.
+ *   Вместе с очередью ≈ 5.3 байта на клетку (4 + 1 + 2 бита) против
+ *   ≈ 40 у набора со штампами, поэтому BFS на 500×500 держит ~1.3 МБ,
+ *   а не ~10 МБ.
+ *   Посещённость чистится пословно на каждый поиск — O(W·H/64).
+ *
+ * Экземпляр НЕ потокобезопасен и не реентерабелен: один поиск за раз
+ * на поток.  Получать его нужно только через {@link #acquire(int)}
+ * или {@link #acquireBits(int)}.
+ */
+final class PathSearchWorkspace {
+
+    private static final ThreadLocal<PathSearchWorkspace> LOCAL =
+            ThreadLocal.withInitial(PathSearchWorkspace::new);
+
+    /** blocked[cell] == stamp → клетка непроходима в текущем поиске. */
+    int[] blocked = new int[0];
+    /** seen[cell] == stamp → клетка уже посещена в текущем поиске. */
+    int[] seen    = new int[0];
+    /** prev[cell] — из какой клетки пришли (валидно, только если seen). */
+    int[] prev    = new int[0];
+    /** очередь BFS. */
+    int[] queue   = new int[0];
+    /** буфер для восстановления пути «от цели к старту» (только набор со штампами). */
+    int[] path    = new int[0];
+
+    /* --- только для A* / JPS ---------------------------------------- */
+    /** g[cell] — длина лучшего известного пути от старта (валидно, если seen). */
+    int[] g       = new int[0];
+    /** f[cell] = g + h — ключ приоритета в куче. */
+    int[] f       = new int[0];
+    /** closed[cell] == stamp → клетка окончательно обработана. */
+    int[] closed  = new int[0];
+    /** бинарная куча клеток по (f ASC, g DESC) и позиции клеток в ней. */
+    int[] heap    = new int[0];
+    int[] heapPos = new int[0];
+    int   heapSize;
+
+    /* --- компактный набор (BFS на поле любого размера) --------------- */
+    /** бит c → клетка c непроходима. */
+    long[] blockedBits = new long[0];
+    /** бит c → клетка c посещена в текущем поиске. */
+    long[] seenBits    = new long[0];
+    /** dir[cell] — номер направления, по которому пришли в клетку (валидно, если посещена). */
+    byte[] dir         = new byte[0];
+    /** клеток, снятых с очереди последним BFS — они в queue[0..expanded). */
+    int    expanded;
+
+    /** текущее поколение; 0 никогда не используется как «живое». */
+    int stamp;
+
+    private PathSearchWorkspace() {}
+
+    /**
+     * Возвращает буферы текущего потока, готовые к поиску на поле
+     * из {@code cells} клеток, и открывает новое поколение.
+     */
+    static PathSearchWorkspace acquire(int cells) {
+        PathSearchWorkspace ws = LOCAL.get();
+        ws.ensureCapacity(cells);
+        ws.nextStamp();
+        ws.heapSize = 0;
+        return ws;
+    }
+
+    /**
+     * Буферы потока для поиска по битовым картам на поле из {@code cells}
+     * клеток: очередь, {@link #blockedBits}, {@link #seenBits}
+     * (очищена) и {@link #dir}.  Массивы со штампами не выделяются.
+     */
+    static PathSearchWorkspace acquireBits(int cells) {
+        PathSearchWorkspace ws = LOCAL.get();
+        ws.ensureQueue(cells);
+        int words = (cells + 63) >>> 6;
+        if (ws.seenBits.length < words) {
+            ws.blockedBits = new long[words];
+            ws.seenBits    = new long[words];
+        } else {
+            Arrays.fill(ws.seenBits, 0, words, 0L);
+        }
+        if (ws.dir.length < cells) ws.dir = new byte[cells];
+        return ws;
+    }
+
+    private void ensureQueue(int cells) {
+        if (queue.length >= cells) return;
+        queue = new int[cells];
+    }
+
+    private void ensureCapacity(int cells) {
+        ensureQueue(cells);
+        if (seen.length >= cells) return;
+        path    = new int[cells];
+        blocked = new int[cells];
+        seen    = new int[cells];
+        prev    = new int[cells];
+        g       = new int[cells];
+        f       = new int[cells];
+        closed  = new int[cells];
+        heap    = new int[cells];
+        heapPos = new int[cells];
+        stamp   = 0;                       // новые массивы уже «чистые»
+    }
+
+    private void nextStamp() {
+        if (++stamp == 0) {                // переполнение — честно чистим
+            Arrays.fill(blocked, 0);
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Помечает занятые клетки в текущем поколении; стартовая и целевая
+     * клетки остаются проходимыми.
+     *
+     * Если в потоке установлен {@link OccupancyIndex} боя на том же поле
+     * и он ведёт самого {@code attacker} на его клетке ({@link #indexFor}),
+     * занятость копируется из его битовой карты — O(WORDS + занятых).
+     * Иначе — полный проход по {@code units}.
+     */
+    void markBlocked(List<Unit> units, Unit attacker, int width, int height, int start, int goal) {
+        OccupancyIndex idx = indexFor(attacker, width, height);
+        if (idx != null) {
+            markWords(idx.unionWords(), width * height, start, goal);
+        } else {
+            markUnits(units, width, height, start, goal);
+        }
+    }
+
+    /** Занятость из битовой карты: бит c → клетка c. */
+    private void markWords(long[] words, int cells, int start, int goal) {
+        for (int w = 0; w < words.length; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (c >= cells) break;
+                if (c == start || c == goal) continue;
+                blocked[c] = stamp;
+            }
+        }
+    }
+
+    /** Занятость из списка: клетки живых юнитов, юниты вне поля пропускаются. */
+    private void markUnits(List<Unit> units, int width, int height, int start, int goal) {
+        if (units == null) return;
+        for (Unit u : units) {
+            if (u == null || !u.isAlive()) continue;
+            int x = u.getxCoordinate();
+            int y = u.getyCoordinate();
+            if (x < 0 || x >= width || y < 0 || y >= height) continue;
+            int c = x * height + y;
+            if (c == start || c == goal) continue; // старт / цель проходимы
+            blocked[c] = stamp;
+        }
+    }
+
+    /**
+     * То же в {@link #blockedBits}: первые {@code (width·height+63)/64}
+     * слов — занятость живыми юнитами без старта и цели.  Индекс боя
+     * копируется целиком (9 слов), иначе — проход по {@code units}.
+     */
+    void markBlockedBits(List<Unit> units, Unit attacker, int width, int height, int start, int goal) {
+        int words = (width * height + 63) >>> 6;
+        OccupancyIndex idx = indexFor(attacker, width, height);
+        if (idx != null) {
+            System.arraycopy(idx.unionWords(), 0, blockedBits, 0, words);
+        } else {
+            Arrays.fill(blockedBits, 0, words, 0L);
+            if (units != null) {
+                for (Unit u : units) {
+                    if (u == null || !u.isAlive()) continue;
+                    int x = u.getxCoordinate();
+                    int y = u.getyCoordinate();
+                    if (x < 0 || x >= width || y < 0 || y >= height) continue;
+                    int c = x * height + y;
+                    blockedBits[c >>> 6] |= 1L << c;
+                }
+            }
+        }
+        blockedBits[start >>> 6] &= ~(1L << start);   // старт / цель проходимы
+        blockedBits[goal  >>> 6] &= ~(1L << goal);
+    }
+
+    /**
+     * Индекс боя потока, если путь ищет юнит этого боя: поле 27×21 и
+     * индекс ведёт самого атакующего на его текущей клетке
+     * ({@link OccupancyIndex#isTracked}, как {@link CachingPathFinder});
+     * тогда {@code units} считаются юнитами боя.  Занятой клетки старта
+     * мало: на ней может стоять юнит боя, а искать — копия или юнит
+     * со своим списком препятствий, и он должен идти по своему списку.
+     */
+    private static OccupancyIndex indexFor(Unit attacker, int width, int height) {
+        if (width != OccupancyIndex.WIDTH || height != OccupancyIndex.HEIGHT) return null;
+        OccupancyIndex idx = OccupancyIndex.current();
+        return idx != null && idx.isTracked(attacker) ? idx : null;
+    }
+
+    /* ==================================================================  куча A* */
+
+    /**
+     * Кладёт клетку в кучу с ключами (g, f) либо уменьшает её ключ,
+     * если клетка уже открыта в текущем поколении.
+     */
+    void open(int c, int from, int gc, int fc) {
+        prev[c] = from;
+        g[c]    = gc;
+        f[c]    = fc;
+        if (seen[c] == stamp) {                    // уже в куче — decrease-key
+            siftUp(heapPos[c]);
+            return;
+        }
+        seen[c] = stamp;
+        heap[heapSize] = c;
+        siftUp(heapSize++);
+    }
+
+    /** Извлекает клетку с минимальным ключом. */
+    int pop() {
+        int top  = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (!less(c, p)) break;
+            heap[i]    = p;
+            heapPos[p] = i;
+            i = parent;
+        }
+        heap[i]    = c;
+        heapPos[c] = i;
+    }
+
+    private void siftDown(int i) {
+        int c = heap[i];
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= heapSize) break;
+            int r = l + 1;
+            int m = (r < heapSize && less(heap[r], heap[l])) ? r : l;
+            if (!less(heap[m], c)) break;
+            heap[i]          = heap[m];
+            heapPos[heap[i]] = i;
+            i = m;
+        }
+        heap[i]    = c;
+        heapPos[c] = i;
+    }
+
+    /** Порядок кучи: меньший f, при равенстве — больший g (ближе к цели). */
+    private boolean less(int a, int b) {
+        return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+    }
+}
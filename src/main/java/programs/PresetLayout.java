@@ -0,0 +1,112 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Расстановка выбранных юнитов пресета — общая для всех генераторов.
+ *
+ * Юниты ставятся линиями Y:
+ *    X=0 – Archers  (дальний бой, тыл)
+ *    X=1 – Infantry (Pikeman/Swordsman)
+ *    X=2 – Knights  (тяжёлый фронт)
+ * На каждой строке может стоять 0…3 юнита, порядок всегда
+ * слева–направо Archer→Infantry→Knight.
+ *
+ *   Сложность: O(N) – один проход по спискам.
+ */
+final class PresetLayout {
+
+    private PresetLayout() {}
+
+    /** Колонки по умолчанию: лучники X=0, пехота X=1, рыцари X=2. */
+    static final int[] DEFAULT_COLUMNS = {0, 1, 2};
+
+    /** Копии прототипов {@code picked}, расставленные тремя колоннами. */
+    static List<Unit> place(List<Unit> picked) {
+        return place(picked, DEFAULT_COLUMNS);
+    }
+
+    /**
+     * То же, но колонка каждой группы задана явно:
+     * columns[0] — лучники, columns[1] — пехота, columns[2] — рыцари.
+     */
+    static List<Unit> place(List<Unit> picked, int[] columns) {
+        List<Unit> archers  = filterByType(picked, "Archer");
+        List<Unit> infantry = filterByType(picked, "Pikeman", "Swordsman");
+        List<Unit> knights  = filterByType(picked, "Knight");
+
+        List<Unit> placed = new ArrayList<>(picked.size());
+        Map<Unit, Bonuses> bonuses = new IdentityHashMap<>();   // по прототипу — одни карты на вызов
+        int row = 0; // = Y
+
+        // Заполняем строками до тех пор, пока какой-то список не опустеет
+        for (int a = 0,i = 0,k = 0; a < archers.size() || i < infantry.size() || k < knights.size(); row++) {
+            if (a < archers.size())  placed.add(cloneWithCoords(archers.get(a++),  columns[0], row, bonuses));
+            if (i < infantry.size()) placed.add(cloneWithCoords(infantry.get(i++), columns[1], row, bonuses));
+            if (k < knights.size())  placed.add(cloneWithCoords(knights.get(k++),  columns[2], row, bonuses));
+        }
+        return placed;
+    }
+
+    /** Группа типа: 0 — лучники, 1 — пехота, 2 — рыцари, -1 — не расставляется. */
+    static int groupOf(String type) {
+        if (type == null) return -1;
+        return switch (type) {
+            case "Archer"               -> 0;
+            case "Pikeman", "Swordsman" -> 1;
+            case "Knight"               -> 2;
+            default                     -> -1;
+        };
+    }
+
+    /** Возвращает подсписок по типам. */
+    private static List<Unit> filterByType(List<Unit> src, String... allowed) {
+        Set<String> ok = Set.of(allowed);
+        List<Unit> out = new ArrayList<>();
+        for (Unit u : src) if (ok.contains(u.getUnitType())) out.add(u);
+        return out;
+    }
+
+    /** Карты бонусов прототипа: атака и защита. */
+    record Bonuses(Map<String, Double> attack, Map<String, Double> defence) {
+
+        /** Неизменяемые копии карт {@code p} — не ссылки на карты вызывающего. */
+        static Bonuses of(Unit p) {
+            return new Bonuses(frozen(p.getAttackBonuses()), frozen(p.getDefenceBonuses()));
+        }
+
+        private static Map<String, Double> frozen(Map<String, Double> m) {
+            return Collections.unmodifiableMap(m == null ? new HashMap<>() : new HashMap<>(m));
+        }
+    }
+
+    /**
+     * Клонируем прототип, меняя только имя и координаты.  Карты бонусов
+     * копируются один раз на прототип ({@link Bonuses#of}) и неизменяемы:
+     * клоны одного типа делят их, но ни клон, ни вызывающий через свой
+     * прототип не изменят карты остальных.
+     */
+    private static Unit cloneWithCoords(Unit p, int x, int y, Map<Unit, Bonuses> shared) {
+        Bonuses b = shared.computeIfAbsent(p, Bonuses::of);
+        String type = p.getUnitType();
+        return new Unit(
+                type + ' ' + (y + 1),            // уникальное имя: «Knight 3»
+                type,
+                p.getHealth(),
+                p.getBaseAttack(),
+                p.getCost(),
+                p.getAttackType(),
+                b.attack(),
+                b.defence(),
+                x, y
+        );
+    }
+}
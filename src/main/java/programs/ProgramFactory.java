@@ -0,0 +1,57 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Program;
+import com.battle.heroes.army.programs.SuitableForAttackUnitsFinder;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import com.battle.heroes.army.programs.computer.*;
+import com.battle.heroes.army.programs.user.*;
+import com.battle.heroes.util.GameSpeedUtil;
+
+/**
+ * Создаёт программу поведения для юнита.
+ *
+ * В игре программы раздаёт движок; вне игры (пакетные прогоны, поиск
+ * пресета) их нужно навесить самим — после каждого копирования армии,
+ * потому что программа держит ссылки на юнита и обе армии.
+ *
+ * Готовые фабрики {@link #user()} и {@link #computer()} выбирают
+ * программу из библиотеки по типу юнита (Archer / Knight / Pikeman,
+ * всё остальное — Swordsman) и подключают finder'ы этого пакета.
+ */
+@FunctionalInterface
+public interface ProgramFactory {
+
+    Program create(Unit unit, Army ally, Army enemy, GameSpeedUtil speed);
+
+    /** Программы игрока (User*Program). */
+    static ProgramFactory user() {
+        return user(new SuitableForAttackUnitsFinderImpl(), new UnitTargetPathFinderImpl());
+    }
+
+    /** Программы игрока с заданными finder'ами. */
+    static ProgramFactory user(SuitableForAttackUnitsFinder suitable, UnitTargetPathFinder path) {
+        return (u, ally, enemy, speed) -> switch (u.getUnitType()) {
+            case "Archer"  -> new UserArcherProgram(u, ally, enemy, speed);
+            case "Knight"  -> new UserKnightProgram(u, ally, enemy, speed, suitable, path);
+            case "Pikeman" -> new UserPikemanProgram(u, ally, enemy, speed, suitable, path);
+            default        -> new UserSwordsmanProgram(u, ally, enemy, speed, suitable, path);
+        };
+    }
+
+    /** Программы компьютера (Computer*Program). */
+    static ProgramFactory computer() {
+        return computer(new SuitableForAttackUnitsFinderImpl(), new UnitTargetPathFinderImpl());
+    }
+
+    /** Программы компьютера с заданными finder'ами. */
+    static ProgramFactory computer(SuitableForAttackUnitsFinder suitable, UnitTargetPathFinder path) {
+        return (u, ally, enemy, speed) -> switch (u.getUnitType()) {
+            case "Archer"  -> new ComputerArcherProgram(u, ally, enemy, speed);
+            case "Knight"  -> new ComputerKnightProgram(u, ally, enemy, speed, suitable, path);
+            case "Pikeman" -> new ComputerPikemanProgram(u, ally, enemy, speed, suitable, path);
+            default        -> new ComputerSwordsmanProgram(u, ally, enemy, speed, suitable, path);
+        };
+    }
+}
@@ -5,29 +5,49 @@ import com.battle.heroes.army.Unit;
 import com.battle.heroes.army.programs.PrintBattleLog;
 import com.battle.heroes.army.programs.SimulateBattle;
 
-import java.util.*;
-
 /**
  * Простая симуляция боя
  *
  * Логика:
  *  1. Пока в обеих армиях есть живые юниты – идёт раунд.
- *  2. В начале раунда собирается очередь всех живых юнитов
- *     обеих армий и сортируется по baseAttack DESC
- *     (сильнейшие ходят первыми).  O(N log N) на раунд.
+ *  2. Очередь всех юнитов обеих армий сортируется по baseAttack DESC
+ *     (сильнейшие ходят первыми) ОДИН раз на бой — O(N log N);
+ *     в начале раунда из неё лишь выбрасываются погибшие — O(N).
  *  3. Каждый юнит из очереди, если ещё жив, вызывает свою
  *     embedded-программу {@code UnitProgram.attack()}, получая
  *     ссылку на цель и нанося урон.
  *
+ *  На бой строится {@link BattleState}: армия каждого юнита, счётчики
+ *  живых по армиям и {@link OccupancyIndex} занятости поля.  После
+ *  каждого хода таблица обновляется по атакующему и цели (O(1)),
+ *  в конце раунда сверяется целиком (O(N), как и сам раунд).
+ *  Finder'ы читают занятость из индекса, не обходя списки армий.
+ *
+ *  Лог по умолчанию печатается прямо в ходе боя; с
+ *  {@code -Dheroes.log.async=block|drop} (или {@link #setAsyncLog})
+ *  события уходят в {@link BattleLogPipeline} и печатаются отдельным
+ *  потоком — бой не ждёт медленный лог.
+ *
+ *  С включёнными {@link BattleMetrics} бой пишет число раундов, ходов
+ *  за раунд и время каждого attack().
+ *
+ *  С {@link #setRecorder} бой пишется в {@link BattleRecorder}: снимок
+ *  армий, затем итог каждого хода (удар, hp, перемещение, смерть) —
+ *  {@link BattleReplay} восстановит состояние без запуска программ.
+ *
+ *  Сам раунд — в {@link BattleStepper}: {@link #run} проходит его шаги
+ *  до конца, а {@link #stepper} отдаёт их вызывающему по одному —
+ *  можно остановиться, когда исход уже ясен.
+ *
  *  Конец боя наступает, когда в одной из армий нет живых юнитов:
- *  это проверяется перед каждым ударом – как только противников
- *  не осталось, метод возвращается.
+ *  это проверяется перед каждым ударом по счётчикам — O(1); как
+ *  только противников не осталось, метод возвращается.
  *
- *  Сложность: O(R · N log N), где
+ *  Сложность: O(N log N + R · N), где
  *      N – суммарное кол-во юнитов,
  *      R – число полных раундов (обычно < N).
  *
- *  Память: O(N) – сама очередь.
+ *  Память: O(N) – таблица боя и очередь ходов; раунд ничего не выделяет.
  */
 public class SimulateBattleImpl implements SimulateBattle {
 
@@ -35,60 +55,54 @@ public class SimulateBattleImpl implements SimulateBattle {
     private PrintBattleLog printBattleLog;
     public void setPrintBattleLog(PrintBattleLog log) { this.printBattleLog = log; }
 
-    @Override
-    public void simulate(Army player, Army computer) throws InterruptedException {
-        if (player == null || computer == null) return;
-
-        // Главный цикл пока у обеих армий есть юниты
-        while (hasAlive(player) && hasAlive(computer)) {
+    /**
+     * Асинхронный лог: null — печать прямо в ходе боя (по умолчанию).
+     * В асинхронном режиме лог получает копии юнитов на момент удара,
+     * а не сами юниты — сопоставлять их по ссылке нельзя.
+     */
+    private BattleLogPipeline.Overflow asyncLog = BattleLogPipeline.fromSystemProperty();
+    public void setAsyncLog(BattleLogPipeline.Overflow policy) { this.asyncLog = policy; }
 
-            /* Шаг 1. Собираем и сортируем очередь. */
-            List<Unit> queue = buildQueue(player, computer);
+    /** Запись боёв: null — не пишем (по умолчанию). */
+    private BattleRecorder recorder;
+    public void setRecorder(BattleRecorder recorder) { this.recorder = recorder; }
 
-            /* Шаг 2. Каждому по-ходу. */
-            for (Unit attacker : queue) {
-                if (!attacker.isAlive()) continue;
-
-                // Если противников больше нет – бой окончен.
-                if (!hasEnemy(attacker, player, computer)) return;
-
-                Unit target = attacker.getProgram().attack();
-                if (printBattleLog != null) printBattleLog.printBattleLog(attacker, target);
-            }
-            // конец раунда, цикл while соберёт новую очередь.
-        }
-    }
-
-    /** true, если в армии остался хотя бы один живой юнит. */
-    private static boolean hasAlive(Army a) {
-        if (a == null || a.getUnits() == null) return false;
-        for (Unit u : a.getUnits()) if (u.isAlive()) return true;
-        return false;
+    @Override
+    public void simulate(Army player, Army computer) throws InterruptedException {
+        run(player, computer, Integer.MAX_VALUE);
     }
 
-    /** Собираем всех живых юнитов и сортируем по «силе удара». */
-    private static List<Unit> buildQueue(Army player, Army computer) {
-        List<Unit> q = new ArrayList<>();
-        if (player   != null && player.getUnits()   != null)
-            for (Unit u : player.getUnits())   if (u.isAlive()) q.add(u);
-        if (computer != null && computer.getUnits() != null)
-            for (Unit u : computer.getUnits()) if (u.isAlive()) q.add(u);
+    /**
+     * Тот же бой, но не дольше {@code maxRounds} раундов
+     * (пакетные прогоны не должны зависать на армиях, которые
+     * не могут дотянуться друг до друга).
+     *
+     * @return число начатых раундов
+     */
+    int run(Army player, Army computer, int maxRounds) throws InterruptedException {
+        if (player == null || computer == null) return 0;
 
-        q.sort(Comparator.comparingInt(Unit::getBaseAttack).reversed());
-        return q;
+        // Таблица боя: армия каждого юнита, счётчики живых, занятость поля.
+        try (BattleStepper stepper = stepper(player, computer, maxRounds)) {
+            while (stepper.hasNext()) stepper.step();
+            stepper.awaitClosed();                    // допечатываем лог; прерывание — наружу
+            return stepper.rounds();
+        }
     }
 
-    /** Проверяем, остались ли живые противники. */
-    private static boolean hasEnemy(Unit u, Army player, Army computer) {
-        boolean inPlayer   = contains(player, u);
-        boolean inComputer = contains(computer, u);
-        return (inPlayer   && hasAlive(computer)) ||
-                (inComputer && hasAlive(player));
+    /**
+     * Тот же бой по шагам: ходы делает вызывающий ({@link BattleStepper}).
+     * Лог, асинхронный лог и запись боя — как настроены у этого экземпляра.
+     */
+    public BattleStepper stepper(Army player, Army computer, int maxRounds) {
+        return new BattleStepper(BattleState.of(player, computer), maxRounds,
+                                 printBattleLog, asyncLog, recorder);
     }
 
-    private static boolean contains(Army a, Unit u) {
+    /** true, если в армии остался хотя бы один живой юнит. */
+    static boolean hasAlive(Army a) {
         if (a == null || a.getUnits() == null) return false;
-        for (Unit x : a.getUnits()) if (x == u) return true;
+        for (Unit u : a.getUnits()) if (u.isAlive()) return true;
         return false;
     }
 }
@@ -0,0 +1,278 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Поиск пресета по результатам боёв, а не по отношениям attack/cost.
+ *
+ * Жадный {@link GeneratePresetImpl} и точный {@link KnapsackPresetImpl}
+ * оптимизируют формулу; как армия играет против ИИ компьютера, они не
+ * знают.  Здесь каждый кандидат проверяется боями:
+ *
+ *   кандидат (геном) — число копий каждого типа (0..11, в бюджете,
+ *       колонка не длиннее поля) и перестановка колонок трёх групп
+ *       (лучники / пехота / рыцари по X = 0..2);
+ *   оценка — {@code battlesPerCandidate} безголовых боёв в
+ *       {@link BatchBattleRunner} (параллельно по ядрам): кандидат с
+ *       программами игрока против армии {@code opponent} с программами
+ *       компьютера.  Программы библиотеки ищут цели по колонкам: игрок —
+ *       в X = 0..2, компьютер — в X = 24..26, поэтому кандидат играет
+ *       зеркально ({@link #mirror}) с правого края, а {@code opponent}
+ *       стоит слева, как любой пресет.  Сравнение — доля побед, при
+ *       равенстве — средний перевес по HP выживших;
+ *   поиск — восхождение на холм: старт с жадного пресета, соседи —
+ *       ±1 копия, обмен типа на другой, другая перестановка колонок,
+ *       добор остатка бюджета.  Ходы «вбок» (не хуже) принимаются;
+ *       после {@link #PATIENCE} оценок без улучшения — перезапуск со
+ *       случайной точки.  Оценённые геномы запоминаются.
+ *
+ * Поиск идёт, пока не кончится бюджет времени, лимит кандидатов или пространство
+ * (после {@link #MAX_MISSES} мутаций подряд без нового генома);
+ * первая (жадная) точка оценивается всегда.  Доля побед — оценка по выборке, не точное значение.
+ */
+public final class SimulationPresetSearch {
+
+    /** Оценок без улучшения до перезапуска. */
+    static final int PATIENCE = 24;
+
+    /**
+     * Неудачных мутаций подряд (за ограничениями или уже оценённый геном),
+     * после которых пространство считается исчерпанным и поиск
+     * заканчивается раньше бюджета времени.
+     */
+    static final int MAX_MISSES = 1_000;
+
+    /** Перестановки колонок групп (лучники, пехота, рыцари). */
+    private static final int[][] LAYOUTS = {
+            {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+    };
+
+    /** Лучший найденный пресет. */
+    public record Found(Army preset, double winRate, int candidates, BatchBattleRunner.Result stats) {}
+
+    private final BatchBattleRunner runner;
+    private final Supplier<Army>    opponent;
+    private final int               battlesPerCandidate;
+    private final Random            rnd;
+
+    /**
+     * @param runner              пул для боёв; закрывает вызывающий
+     * @param opponent            армия компьютера на левом краю (X = 0..2), например пресет генератора
+     * @param battlesPerCandidate боёв на оценку одного кандидата
+     * @param seed                зерно мутаций поиска
+     */
+    public SimulationPresetSearch(BatchBattleRunner runner, Supplier<Army> opponent,
+                                  int battlesPerCandidate, long seed) {
+        if (battlesPerCandidate < 1) throw new IllegalArgumentException("battlesPerCandidate < 1");
+        this.runner              = Objects.requireNonNull(runner, "runner");
+        this.opponent            = Objects.requireNonNull(opponent, "opponent");
+        this.battlesPerCandidate = battlesPerCandidate;
+        this.rnd                 = new Random(seed);
+    }
+
+    /** Зеркальная копия армии: X → WIDTH-1-X (пресет с левого края — на сторону игрока). */
+    public static Army mirror(Army army) {
+        Army copy = ArmyCopier.deepCopy(army);
+        for (Unit u : copy.getUnits()) u.setxCoordinate(OccupancyIndex.WIDTH - 1 - u.getxCoordinate());
+        return copy;
+    }
+
+    // ------------------------------------------------------------------ public
+
+    /** Лучший пресет, найденный за {@code budget}. */
+    public Found search(List<Unit> prototypes, int maxPoints, Duration budget) throws InterruptedException {
+        return search(prototypes, maxPoints, budget, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Лучший пресет, найденный за {@code budget}, но не больше чем из
+     * {@code maxCandidates} оценённых геномов (жадный старт — всегда).
+     * При фиксированном seed и бюджете времени «с запасом» результат
+     * не зависит от скорости машины.
+     */
+    public Found search(List<Unit> prototypes, int maxPoints, Duration budget, int maxCandidates)
+            throws InterruptedException {
+        if (maxCandidates < 1) throw new IllegalArgumentException("maxCandidates < 1");
+        long deadline = System.nanoTime() + budget.toNanos();
+
+        /* ---------- Типы, которые умеет расставлять строй ---------- */
+        Map<String, Unit> byType = new LinkedHashMap<>();
+        if (prototypes != null) {
+            for (Unit u : prototypes) {
+                if (u != null && u.getCost() > 0 && PresetLayout.groupOf(u.getUnitType()) >= 0)
+                    byType.putIfAbsent(u.getUnitType(), u);
+            }
+        }
+        Unit[] types = byType.values().toArray(new Unit[0]);
+        Space space = new Space(types, maxPoints);
+
+        /* ---------- Старт — жадный пресет ---------- */
+        int[] start = new int[types.length + 1];                  // последний элемент — номер раскладки
+        if (maxPoints > 0) {
+            for (Unit u : new GeneratePresetImpl().generate(prototypes, maxPoints).getUnits()) {
+                for (int t = 0; t < types.length; t++) if (types[t].getUnitType().equals(u.getUnitType())) start[t]++;
+            }
+        }
+        space.trim(start);                                         // пехота жадного может не влезть в колонку
+
+        Map<Long, BatchBattleRunner.Result> seen = new HashMap<>();
+        int[] current = start, best = start;
+        BatchBattleRunner.Result curScore = evaluate(space, start, seen), bestScore = curScore;
+        int stale = 0, misses = 0;
+
+        /* ---------- Восхождение на холм с перезапусками ---------- */
+        while (types.length > 0 && misses < MAX_MISSES && seen.size() < maxCandidates
+                && System.nanoTime() < deadline) {
+            boolean restart = stale >= PATIENCE;
+            int[] next = restart ? space.random(rnd) : space.neighbour(current, rnd);
+            if (restart) stale = 0;
+            if (next == null || seen.containsKey(space.key(next))) {
+                stale++;
+                misses++;
+                continue;
+            }
+            misses = 0;
+
+            BatchBattleRunner.Result score = evaluate(space, next, seen);
+            if (restart || compare(score, curScore) >= 0) {
+                current  = next;
+                curScore = score;
+            }
+            if (compare(score, bestScore) > 0) {
+                best      = next;
+                bestScore = score;
+                stale     = 0;
+            } else {
+                stale++;
+            }
+        }
+
+        return new Found(space.build(best), bestScore.playerWinRate(), seen.size(), bestScore);
+    }
+
+    /* ------------------------------------------------------------------  оценка */
+
+    private BatchBattleRunner.Result evaluate(Space space, int[] genome, Map<Long, BatchBattleRunner.Result> seen)
+            throws InterruptedException {
+        Army preset = mirror(space.build(genome));                 // кандидат играет за игрока, справа
+        BatchBattleRunner.Result r = runner.run(
+                new BatchBattleRunner.Matchup(space.describe(genome), () -> preset, opponent),
+                battlesPerCandidate);
+        seen.put(space.key(genome), r);
+        return r;
+    }
+
+    /** Доля побед, затем перевес по HP. */
+    static int compare(BatchBattleRunner.Result a, BatchBattleRunner.Result b) {
+        int c = Double.compare(a.playerWinRate(), b.playerWinRate());
+        if (c != 0) return c;
+        return Double.compare(a.meanPlayerHp() - a.meanComputerHp(), b.meanPlayerHp() - b.meanComputerHp());
+    }
+
+    /* ------------------------------------------------------------------  пространство геномов */
+
+    /** Геном: counts[0..T) по типам + индекс раскладки в последнем элементе. */
+    private static final class Space {
+        final Unit[] types;
+        final int    maxPoints;
+        final int[]  group;
+
+        Space(Unit[] types, int maxPoints) {
+            this.types     = types;
+            this.maxPoints = maxPoints;
+            this.group     = new int[types.length];
+            for (int t = 0; t < types.length; t++) group[t] = PresetLayout.groupOf(types[t].getUnitType());
+        }
+
+        boolean feasible(int[] g) {
+            int cost = 0;
+            int[] column = new int[3];
+            for (int t = 0; t < types.length; t++) {
+                if (g[t] < 0 || g[t] > GeneratePresetImpl.MAX_PER_TYPE) return false;
+                cost += g[t] * types[t].getCost();
+                column[group[t]] += g[t];
+            }
+            for (int c : column) if (c > OccupancyIndex.HEIGHT) return false;
+            return cost <= maxPoints;
+        }
+
+        /** Снимает по копии с самого многочисленного типа, пока геном не станет допустимым. */
+        void trim(int[] g) {
+            while (!feasible(g)) {
+                int most = 0;
+                for (int t = 1; t < types.length; t++) if (g[t] > g[most]) most = t;
+                if (types.length == 0 || g[most] == 0) return;
+                g[most]--;
+            }
+        }
+
+        /** Случайный сосед или null, если мутация вышла за ограничения. */
+        int[] neighbour(int[] g, Random rnd) {
+            if (types.length == 0) return null;
+            int[] n = g.clone();
+            int a = rnd.nextInt(types.length), b = rnd.nextInt(types.length);
+            switch (rnd.nextInt(4)) {
+                case 0  -> n[a]++;
+                case 1  -> n[a]--;
+                case 2  -> { n[a]--; n[b]++; }
+                default -> n[types.length] = rnd.nextInt(LAYOUTS.length);
+            }
+            if (rnd.nextBoolean()) fill(n, rnd);
+            return feasible(n) ? n : null;
+        }
+
+        /** Случайная допустимая точка: раскладка наугад, бюджет добирается случайными типами. */
+        int[] random(Random rnd) {
+            int[] n = new int[types.length + 1];
+            n[types.length] = rnd.nextInt(LAYOUTS.length);
+            fill(n, rnd);
+            return n;
+        }
+
+        /** Добирает остаток бюджета случайными подходящими типами. */
+        void fill(int[] n, Random rnd) {
+            if (types.length == 0) return;
+            for (int tries = 0; tries < 4 * types.length; tries++) {
+                int t = rnd.nextInt(types.length);
+                n[t]++;
+                if (!feasible(n)) n[t]--;
+            }
+        }
+
+        long key(int[] g) {
+            long k = g[types.length];
+            for (int t = 0; t < types.length; t++) k = k * 16 + g[t];
+            return k;
+        }
+
+        Army build(int[] g) {
+            List<Unit> picked = new ArrayList<>();
+            int spent = 0;
+            for (int t = 0; t < types.length; t++) {
+                for (int i = 0; i < g[t]; i++) picked.add(types[t]);
+                spent += g[t] * types[t].getCost();
+            }
+            Army army = new Army();
+            army.setUnits(PresetLayout.place(picked, LAYOUTS[g[types.length]]));
+            army.setPoints(spent);
+            return army;
+        }
+
+        String describe(int[] g) {
+            StringBuilder sb = new StringBuilder();
+            for (int t = 0; t < types.length; t++) sb.append(types[t].getUnitType()).append('×').append(g[t]).append(' ');
+            return sb.append("layout ").append(g[types.length]).toString();
+        }
+    }
+}
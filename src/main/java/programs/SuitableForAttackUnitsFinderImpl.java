@@ -19,51 +19,157 @@ import java.util.*;
  *       – правая army — ВНИЗ ➜ dy = +1.
  *
  * Алгоритм:
- *   1. Одним проходом формируем:
- *        a) список всех живых юнитов (all);
- *        b) HashSet «occupied» для быстрых O(1) проверок занятости клетки.
- *   2. Для каждого живого юнита проверяем клетку (x, y + dy):
- *        пусто? — юнит добавляется в result, иначе пропускаем.
+ *   1. Одним проходом формируем список всех живых юнитов (alive).
+ *   2. Занятость армии — битовая карта long[9] на поле 27 × 21
+ *      (во время боя это готовый слой армии из {@link OccupancyIndex}).
+ *   3. Карта, сдвинутая на одну строку по dy, AND исходная карта —
+ *      клетки, у которых «впереди занято».  Всё — пословные операции.
+ *   4. Проходим alive в исходном порядке: бит не стоит — юнит готов.
  *
  * Сложность:
- *   • Время  O(U)   — U = кол-во живых юнитов в нашей армии.
- *   • Память O(U)   — HashSet<Long> occupied.
+ *   • Время  O(U + W·H/64)  — U = кол-во живых юнитов в нашей армии.
+ *   • Память O(W·H/64)      — 9 слов long на 27 × 21, без упаковки в Long.
+ *
+ * С включёнными {@link BattleMetrics} пишется время каждого вызова.
  *
  * Примечание по координатам:
- *   Поле у игры фиксированное (27 × 21), однако размеры в расчётах
- *   не нужны — достаточно проверять есть ли там юнит.
- *   Для compact-хэширования пары (x,y) используется приём «pack в long».
+ *   Поле по умолчанию — 27 × 21; своё задаётся в конструкторе.
+ *   Если кто-то из юнитов стоит вне поля, битовая карта неприменима —
+ *   тогда работает прежний путь через HashSet с приёмом «pack (x,y)
+ *   в long».  Он же выбирается, когда карта большого поля заметно
+ *   длиннее списка юнитов (W·H/64 слов против U ключей).  Ответ
+ *   у обоих путей одинаковый.
  */
 public class SuitableForAttackUnitsFinderImpl implements SuitableForAttackUnitsFinder {
 
+    private final int width;
+    private final int height;
+    private final int words;
+    /** маски клеток y == 0 и y == height-1 — края колонок */
+    private final long[] firstRow;
+    private final long[] lastRow;
+
+    /** Поле движка 27×21. */
+    public SuitableForAttackUnitsFinderImpl() {
+        this(OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT);
+    }
+
+    /** Поле {@code width}×{@code height}. */
+    public SuitableForAttackUnitsFinderImpl(int width, int height) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("board " + width + "x" + height);
+        this.width    = width;
+        this.height   = height;
+        this.words    = (Math.multiplyExact(width, height) + 63) >>> 6;
+        this.firstRow = rowMask(0);
+        this.lastRow  = rowMask(height - 1);
+    }
+
     @Override
     public List<Unit> getSuitableUnits(List<List<Unit>> unitsByRow,
                                        boolean isLeftArmyTarget) {
+        if (!BattleMetrics.isEnabled()) return find(unitsByRow, isLeftArmyTarget);
+
+        long t0 = System.nanoTime();
+        List<Unit> res = find(unitsByRow, isLeftArmyTarget);
+        BattleMetrics.global().recordSuitable(System.nanoTime() - t0);
+        return res;
+    }
+
+    private List<Unit> find(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget) {
 
         // --- 0. Edge-case: пустой список строк ------------------------
         if (unitsByRow == null || unitsByRow.isEmpty())
             return Collections.emptyList();
 
         /* =============================================================
-           1. Собираем данные о текущем расположении
+           1. Живые юниты армии — в исходном порядке строк
         ============================================================= */
-        Set<Long> occupied = new HashSet<>(); // все занятые клетки армии
-        List<Unit> alive   = new ArrayList<>(); // живые юниты (чтобы не ходить ещё раз)
-
+        List<Unit> alive = new ArrayList<>(); // живые юниты (чтобы не ходить ещё раз)
         for (List<Unit> row : unitsByRow) {          // перебираем строки
             if (row == null) continue;
             for (Unit u : row) {                     // перебираем юниты в строке
-                if (u != null && u.isAlive()) {
-                    alive.add(u);
-                    occupied.add(pack(u.getxCoordinate(), u.getyCoordinate()));
-                }
+                if (u != null && u.isAlive()) alive.add(u);
             }
         }
+        if (alive.isEmpty()) return new ArrayList<>();
+
+        int dy = isLeftArmyTarget ? -1 : +1; // куда сдвигаемся по Y
 
         /* =============================================================
-           2. Определяем, кто может сделать шаг вперёд
+           2. Битовая карта занятости армии (cell = x*height + y):
+              во время боя — слой армии из OccupancyIndex,
+              иначе собираем её по переданным строкам.
         ============================================================= */
-        int dy = isLeftArmyTarget ? -1 : +1; // куда сдвигаемся по Y
+        long[] occ;
+        int side = isEngineBoard() ? indexedSide(alive) : -1;
+        if (side >= 0) {
+            occ = OccupancyIndex.current().layerWords(side);
+        } else {
+            if (words > 8L * alive.size() + 64) return viaHashSet(alive, dy); // карта поля дороже списка
+            occ = bitboardOf(alive);
+            if (occ == null) return viaHashSet(alive, dy); // юниты вне поля
+        }
+
+        /* =============================================================
+           3. «Впереди занято» = occ AND (occ, сдвинутая на одну строку
+              против dy), без клеток у края колонки — пословно.
+        ============================================================= */
+        long[] stuck = blockedAhead(occ, dy);
+
+        List<Unit> result = new ArrayList<>();
+        for (Unit u : alive) {
+            int c = u.getxCoordinate() * height + u.getyCoordinate();
+            if ((stuck[c >>> 6] & (1L << c)) == 0) result.add(u);
+        }
+        return result;
+    }
+
+    /* ----------------------------------------------------------------
+       Битовые операции над картой поля.
+       Соседняя по Y клетка — соседний бит (cell ± 1), поэтому «шаг
+       вперёд» — сдвиг всей карты на 1 бит с переносом между словами.
+       Маски краёв отрезают перенос из конца одной колонки X в начало
+       следующей: клетка за краем поля считается свободной.
+     ---------------------------------------------------------------- */
+    private long[] rowMask(int y) {
+        long[] m = new long[words];
+        for (int x = 0; x < width; x++) {
+            int c = x * height + y;
+            m[c >>> 6] |= 1L << c;
+        }
+        return m;
+    }
+
+    /** Бит c установлен, если клетки c и c+dy обе заняты (в пределах колонки). */
+    private long[] blockedAhead(long[] occ, int dy) {
+        int n = occ.length;
+        long[] edge = dy > 0 ? lastRow : firstRow;
+        long[] out  = new long[n];
+        for (int w = 0; w < n; w++) {
+            long ahead = dy > 0
+                    ? (occ[w] >>> 1) | (w + 1 < n ? occ[w + 1] << 63 : 0L)   // бит c ← c+1
+                    : (occ[w] <<  1) | (w > 0     ? occ[w - 1] >>> 63 : 0L); // бит c ← c-1
+            out[w] = occ[w] & ahead & ~edge[w];
+        }
+        return out;
+    }
+
+    /** Карта занятости по списку; null, если кто-то стоит вне поля. */
+    private long[] bitboardOf(List<Unit> alive) {
+        long[] occ = new long[words];
+        for (Unit u : alive) {
+            int x = u.getxCoordinate(), y = u.getyCoordinate();
+            if (x < 0 || x >= width || y < 0 || y >= height) return null;
+            int c = x * height + y;
+            occ[c >>> 6] |= 1L << c;
+        }
+        return occ;
+    }
+
+    /** Запасной путь для произвольных координат: HashSet упакованных клеток. */
+    private static List<Unit> viaHashSet(List<Unit> alive, int dy) {
+        Set<Long> occupied = new HashSet<>(); // все занятые клетки армии
+        for (Unit u : alive) occupied.add(pack(u.getxCoordinate(), u.getyCoordinate()));
 
         List<Unit> result = new ArrayList<>();
         for (Unit u : alive) {
@@ -78,6 +184,31 @@ public class SuitableForAttackUnitsFinderImpl implements SuitableForAttackUnitsF
         return result;
     }
 
+    /** Поле движка — только на нём есть {@link OccupancyIndex} боя. */
+    private boolean isEngineBoard() {
+        return width == OccupancyIndex.WIDTH && height == OccupancyIndex.HEIGHT;
+    }
+
+    /**
+     * Армия (слой индекса), если индекс текущего боя можно использовать:
+     * все живые юниты — из одной армии и стоят там, где их помнит индекс.
+     * Иначе -1 — считаем по спискам.
+     *
+     * Строки, которые передают программы юнитов, — это целые колонки
+     * X вражеской армии, а клетка (x, y+dy) лежит в той же колонке,
+     * поэтому слой армии даёт ровно тот же ответ, что и HashSet по строкам.
+     */
+    private static int indexedSide(List<Unit> alive) {
+        OccupancyIndex idx = OccupancyIndex.current();
+        if (idx == null) return -1;
+        int side = idx.sideOf(alive.get(0));
+        if (side < 0) return -1;
+        for (Unit u : alive) {
+            if (idx.sideOf(u) != side || !idx.isTracked(u)) return -1;
+        }
+        return side;
+    }
+
     /* ----------------------------------------------------------------
        Упаковка пары координат (x,y) в одно 64-битное число:
        старшие 32 бита — X, младшие 32 — Y.
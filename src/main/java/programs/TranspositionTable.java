@@ -0,0 +1,150 @@
+package programs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Таблица транспозиций: оценка позиции боя по её {@link ZobristHash}.
+ * Один экземпляр на все потоки пакетной оценки / просмотра вперёд.
+ *
+ * Устройство — без блокировок:
+ *   фиксированный массив на {@link #capacity()} записей (степень двойки),
+ *   корзина — 2 соседние записи; запись — два long в
+ *   {@link AtomicLongArray}: {@code key ^ w} и {@code w = value ^ MISSING}.
+ *   Читатель принимает запись, только если {@code (key ^ w) ^ w}
+ *   равно искомому хешу: запись, которую другой поток пишет в тот же
+ *   момент («порванная»), просто не совпадёт и считается промахом —
+ *   приём «lockless hashing» шахматных движков.
+ *   {@link #MISSING} не хранится, поэтому w занятой записи не бывает
+ *   нулём и w == 0 — пустая запись; позиция с хешем 0 и значением 0
+ *   (бой без живых юнитов, оценка 0) хранится как любая другая.
+ *
+ * Замещение: в корзине сначала та же позиция, затем пустая запись,
+ *   иначе одна из двух по биту хеша (счётчик replacements).  Таблица
+ *   ограничена по памяти: 16 байт на запись, роста нет.
+ *
+ * Значение — произвольный long (кроме {@link #MISSING}); для оценки
+ * исхода есть {@link #putScore} / {@link #score}.
+ *
+ * Статистика для подбора размера: hits / misses / hitRate;
+ * collisions — промахи, при которых корзина занята другими позициями
+ * (таблице тесно); replacements — вытеснения чужих позиций.
+ * Настоящие 64-битные коллизии хеша не обнаружимы — их вероятность
+ * ≈ n² / 2⁶⁵ на n различных позиций.
+ */
+public final class TranspositionTable {
+
+    /** Ответ {@link #get} на промах; как значение не хранится. */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final AtomicLongArray slots;      // [2i] = key ^ w, [2i + 1] = w = value ^ MISSING; w == 0 — пусто
+    private final int             mask;       // записей - 1
+
+    private final LongAdder  hits         = new LongAdder();
+    private final LongAdder  misses       = new LongAdder();
+    private final LongAdder  collisions   = new LongAdder();
+    private final LongAdder  stores       = new LongAdder();
+    private final LongAdder  replacements = new LongAdder();
+
+    public TranspositionTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** Не меньше {@code capacity} записей (округляется вверх до степени двойки, минимум 2). */
+    public TranspositionTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 29) throw new IllegalArgumentException("capacity " + capacity);
+        int n = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        slots = new AtomicLongArray(2 * n);
+        mask  = n - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /* ------------------------------------------------------------------  доступ */
+
+    /** Значение позиции {@code hash} или {@link #MISSING}. */
+    public long get(long hash) {
+        int b = bucket(hash);
+        boolean crowded = true;
+        for (int e = b; e < b + 2; e++) {
+            long w = slots.get(2 * e + 1);
+            if (w == 0) crowded = false;
+            else if ((slots.get(2 * e) ^ w) == hash) {
+                hits.increment();
+                return w ^ MISSING;
+            }
+        }
+        misses.increment();
+        if (crowded) collisions.increment();
+        return MISSING;
+    }
+
+    /** Запоминает {@code value} для позиции {@code hash}. */
+    public void put(long hash, long value) {
+        if (value == MISSING) throw new IllegalArgumentException("MISSING is reserved");
+        int b = bucket(hash), target = -1;
+        for (int e = b; e < b + 2 && target < 0; e++) {
+            long w = slots.get(2 * e + 1);
+            if (w != 0 && (slots.get(2 * e) ^ w) == hash) target = e;
+        }
+        for (int e = b; e < b + 2 && target < 0; e++) {
+            if (slots.get(2 * e + 1) == 0) target = e;
+        }
+        if (target < 0) {
+            target = b + (int) ((hash >>> 40) & 1);
+            replacements.increment();
+        }
+        long w = value ^ MISSING;
+        slots.set(2 * target + 1, w);
+        slots.set(2 * target, hash ^ w);
+        stores.increment();
+    }
+
+    /** Оценка позиции или NaN. */
+    public double score(long hash) {
+        long v = get(hash);
+        return v == MISSING ? Double.NaN : Double.longBitsToDouble(v);
+    }
+
+    /** Запоминает оценку; -0.0 хранится как 0.0 (его биты — {@link #MISSING}). */
+    public void putScore(long hash, double score) {
+        put(hash, Double.doubleToLongBits(score == 0.0 ? 0.0 : score));
+    }
+
+    /** Очищает все записи; статистика сохраняется. */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) slots.set(i, 0L);
+    }
+
+    /** Первая запись корзины: младшие биты хеша после перемешивания, чётные. */
+    private int bucket(long hash) {
+        return (int) ZobristHash.mix(hash) & mask & ~1;
+    }
+
+    /* ------------------------------------------------------------------  статистика */
+
+    public long hits()         { return hits.sum(); }
+    public long misses()       { return misses.sum(); }
+    /** Промахи при полной корзине — признак тесной таблицы. */
+    public long collisions()   { return collisions.sum(); }
+    public long stores()       { return stores.sum(); }
+    /** Вытеснения другой позиции из полной корзины. */
+    public long replacements() { return replacements.sum(); }
+
+    /** Доля попаданий среди запросов; 0, если запросов не было. */
+    public double hitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Занятых записей — O(capacity), для отчётов. */
+    public int occupied() {
+        int n = 0;
+        for (int e = 0; e <= mask; e++) if (slots.get(2 * e + 1) != 0) n++;
+        return n;
+    }
+}
@@ -9,12 +9,28 @@ import java.util.*;
 /**
  * Поиск кратчайшего пути юнит-к-цели по клеточному полю.
  *
- * Размер поля фиксирован движком: X принадлежит [0..26], Y принадлежит [0..20] (27*21).
+ * Размер поля по умолчанию — как у движка: X принадлежит [0..26],
+ *   Y принадлежит [0..20] (27*21); для своих сценариев его можно задать
+ *   в конструкторе (например, 500×500).  Юниты вне поля не мешают,
+ *   старт или цель вне поля — пути нет.
  * Двигаться можно в 8 направлениях
  * Клетка считается непроходимой, если на ней живой юнит,
  *   КРОМЕ стартовой и целевой клетки (на них стоять разрешено).
  * Алгоритм — стандартный BFS.  Благодаря малому размеру поля
  *   время ≈ O(27*21) ≈ 600 операций, память ≈ тех же порядков.
+ * Рабочие массивы плоские (cell = x*height + y) и переиспользуются
+ *   между вызовами через {@link PathSearchWorkspace}: вызов выделяет
+ *   только итоговый список Edge.  Память масштабируется с полем:
+ *   занятость и посещённость — битовые карты, предшественник — номер
+ *   направления (byte), т.е. ≈ 5.3 байта на клетку вместе с очередью
+ *   (4 + 1 + 2 бита); путь собирается прямо в список по направлениям.
+ *   Порядок обхода прежний, поэтому и пути на 27×21 — те же.
+ *
+ * Для длинных путей на больших полях, где BFS заливает всё поле,
+ * есть иерархический {@link HierarchicalPathFinder}.
+ *
+ * С включёнными {@link BattleMetrics} пишутся время поиска и число
+ * клеток, снятых с очереди BFS.
  *
  * Результат — список Edge, идущий от старта к цели (без стартовой
  * клетки, но с клеткой цели).  Пустой список = пути нет.
@@ -22,18 +38,46 @@ import java.util.*;
 public class UnitTargetPathFinderImpl implements UnitTargetPathFinder {
 
     /* ------------------------------------------------------------------  конфигурация поля */
-    private static final int WIDTH  = 27;   // X: 0..26
-    private static final int HEIGHT = 21;   // Y: 0..20
+    static final int DEFAULT_WIDTH  = 27;   // X: 0..26
+    static final int DEFAULT_HEIGHT = 21;   // Y: 0..20
 
     /* 8 направлений (dx,dy) — порядок неважен, лишь бы покрывали окружение */
     private static final int[] DX = {-1,-1,-1, 0, 0, 1, 1, 1};
     private static final int[] DY = {-1, 0, 1,-1, 1,-1, 0, 1};
 
+    private final int width;
+    private final int height;
+
+    /** Поле движка 27×21. */
+    public UnitTargetPathFinderImpl() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /** Поле {@code width}×{@code height}; число клеток должно помещаться в int. */
+    public UnitTargetPathFinderImpl(int width, int height) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("board " + width + "x" + height);
+        Math.multiplyExact(width, height);
+        this.width  = width;
+        this.height = height;
+    }
+
+    public int getWidth()  { return width; }
+    public int getHeight() { return height; }
+
     /* ------------------------------------------------------------------  публичный API */
     @Override
     public List<Edge> getTargetPath(Unit attacker,
                                     Unit target,
                                     List<Unit> allUnits) {
+        if (!BattleMetrics.isEnabled()) return findPath(attacker, target, allUnits);
+
+        long t0 = System.nanoTime();
+        List<Edge> path = findPath(attacker, target, allUnits);
+        BattleMetrics.global().recordPathSearch(System.nanoTime() - t0);
+        return path;
+    }
+
+    private List<Edge> findPath(Unit attacker, Unit target, List<Unit> allUnits) {
 
         /* -------- валидация входа -------- */
         if (attacker == null || target == null) return Collections.emptyList();
@@ -47,80 +91,103 @@ public class UnitTargetPathFinderImpl implements UnitTargetPathFinder {
         if (sx == tx && sy == ty)                   return Collections.emptyList(); // уже на месте
 
         /* --------------------------------------------------------------------------
-           1. строим «карту занятости» blocked[x][y] = true, если там стоит живой юнит
-              (кроме стартовой и целевой клетки)
+           1. «карта занятости» — бит на клетку, где стоит живой юнит (кроме
+              стартовой и целевой клетки).  Буферы берём из рабочего
+              пространства потока — в куче ничего не выделяется.  Во время
+              боя занятость копируется из OccupancyIndex, без обхода allUnits.
          -------------------------------------------------------------------------- */
-        boolean[][] blocked = new boolean[WIDTH][HEIGHT];
-        if (allUnits != null) {
-            for (Unit u : allUnits) {
-                if (u == null || !u.isAlive()) continue;
-                int x = u.getxCoordinate();
-                int y = u.getyCoordinate();
-                if (!inBounds(x, y)) continue;
-                if ((x == sx && y == sy) || (x == tx && y == ty)) continue; // старт / цель проходимы
-                blocked[x][y] = true;
-            }
-        }
+        PathSearchWorkspace ws = PathSearchWorkspace.acquireBits(width * height);
+        int start = cell(sx, sy);
+        int goal  = cell(tx, ty);
+
+        ws.markBlockedBits(allUnits, attacker, width, height, start, goal);
 
         /* --------------------------------------------------------------------------
-           2. BFS от старта, запоминая «откуда пришли» в prevX/prevY
+           2. BFS от старта, запоминая направление прихода в dir[cell]
          -------------------------------------------------------------------------- */
-        int[][] prevX = new int[WIDTH][HEIGHT];
-        int[][] prevY = new int[WIDTH][HEIGHT];
-        for (int[] row : prevX) Arrays.fill(row, -1);   // -1 → клетка ещё не посещена
-        for (int[] row : prevY) Arrays.fill(row, -1);
+        boolean reached = search(ws, ws.blockedBits, width, height, start, goal);
 
-        ArrayDeque<int[]> queue = new ArrayDeque<>();
-        queue.add(new int[]{sx, sy});
-        prevX[sx][sy] = sx;  // любое ненегативное значение помечает «посещено»
-        prevY[sx][sy] = sy;
+        if (BattleMetrics.isEnabled()) BattleMetrics.global().recordCellsExpanded(ws.expanded);
+
+        /* --------------------------------------------------------------------------
+           3. если цели недостигнуты — пути нет
+         -------------------------------------------------------------------------- */
+        if (!reached) return Collections.emptyList();
+
+        /* --------------------------------------------------------------------------
+           4. восстанавливаем путь «от цели к старту» по направлениям прихода
+              (шаг назад — против направления): первый проход считает длину,
+              второй заполняет массив с конца — одна аллокация, без разворота
+              и без промежуточного int-буфера на всё поле
+         -------------------------------------------------------------------------- */
+        final byte[] dir = ws.dir;
+        int len = 0;
+        for (int c = goal; c != start; c -= DX[dir[c]] * height + DY[dir[c]]) len++;   // стартовая клетка в путь не входит
+
+        Edge[] path = new Edge[len];
+        for (int c = goal, i = len - 1; c != start; c -= DX[dir[c]] * height + DY[dir[c]], i--)
+            path[i] = new Edge(c / height, c % height);
+        return Arrays.asList(path);                                 // изменяемый (set), как и прежний список
+    }
+
+    /* ------------------------------------------------------------------  BFS */
+
+    /**
+     * BFS в 8 направлениях от {@code start} до {@code goal} на поле
+     * width×height; бит c в {@code blocked} — клетка непроходима, но
+     * старт и цель проходимы при любом бите.  Буферы — из {@code ws}
+     * ({@link PathSearchWorkspace#acquireBits}): dir[cell] — направление
+     * прихода, queue[0..ws.expanded) — клетки, снятые с очереди.
+     * Тот же поиск проверяет путь в {@link CompactBattleSimulator}.
+     *
+     * @return true, если цель достигнута
+     */
+    static boolean search(PathSearchWorkspace ws, long[] blocked, int width, int height, int start, int goal) {
+        final long[] seen  = ws.seenBits;
+        final byte[] dir   = ws.dir;
+        final int[]  queue = ws.queue;
+
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        seen[start >>> 6] |= 1L << start;
 
         boolean reached = false;
 
-        while (!queue.isEmpty() && !reached) {
-            int[] cur = queue.pollFirst();
-            int cx = cur[0], cy = cur[1];
+        while (head < tail && !reached) {
+            int cur = queue[head++];
+            int cx = cur / height, cy = cur % height;
 
             for (int d = 0; d < 8; d++) {
                 int nx = cx + DX[d];
                 int ny = cy + DY[d];
-                if (!inBounds(nx, ny))          continue; // за пределами поля
-                if (blocked[nx][ny])            continue; // занята
-                if (prevX[nx][ny] != -1)        continue; // уже посещали
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue; // за пределами поля
+                int  n   = nx * height + ny;
+                int  w   = n >>> 6;
+                long bit = 1L << n;
+                if ((seen[w] & bit) != 0)                     continue; // уже посещали
+                if (n != goal && (blocked[w] & bit) != 0)     continue; // занята
 
-                prevX[nx][ny] = cx;
-                prevY[nx][ny] = cy;
+                seen[w] |= bit;
+                dir[n]   = (byte) d;
 
-                if (nx == tx && ny == ty) {
+                if (n == goal) {
                     reached = true;
                     break; // выход из цикла направлений
                 }
-                queue.addLast(new int[]{nx, ny});
+                queue[tail++] = n;
             }
         }
+        ws.expanded = head;
+        return reached;
+    }
 
-        /* --------------------------------------------------------------------------
-           3. если цели недостигнуты — пути нет
-         -------------------------------------------------------------------------- */
-        if (!reached) return Collections.emptyList();
-
-        /* --------------------------------------------------------------------------
-           4. восстанавливаем путь «от цели к старту», затем реверс
-         -------------------------------------------------------------------------- */
-        List<Edge> path = new ArrayList<>();
-        for (int x = tx, y = ty; !(x == sx && y == sy); ) {
-            path.add(new Edge(x, y));          // стартовая клетка в список не входит
-            int px = prevX[x][y];
-            int py = prevY[x][y];
-            x = px;
-            y = py;
-        }
-        Collections.reverse(path);
-        return path;
+    /* индекс клетки в плоских массивах */
+    private int cell(int x, int y) {
+        return x * height + y;
     }
 
     /* true, если координаты внутри игрового поля */
-    private static boolean inBounds(int x, int y) {
-        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
     }
 }
@@ -0,0 +1,71 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+/**
+ * Zobrist-хеш позиции боя: сумма (mod 2⁶⁴) вкладов живых юнитов.
+ *
+ * Вклад юнита зависит только от (армия, тип, клетка, hp) — не от id и
+ * не от порядка ходов, поэтому одна и та же расстановка, пришедшая
+ * разными путями, даёт один хеш, а два одинаковых юнита, поменявшиеся
+ * местами, — ту же позицию.  Погибший юнит вклада не даёт.
+ *
+ * Сумма, а не классический XOR: одинаковые юниты одной армии в одной
+ * клетке с одним hp (стопка — допустимый вход симулятора) дают равные
+ * вклады, и XOR их бы взаимно уничтожил — позиция совпала бы с той,
+ * где их нет.  Сумма даёт k·вклад и так же не зависит от порядка.
+ *
+ * Обновление инкрементальное: при ходе, уроне или смерти юнита
+ * {@code hash += new - old} — O(1).  Так делают {@link BattleState}
+ * (после каждого sync) и {@link BattleSnapshot} (на каждую запись).
+ *
+ * Ключи: классическая таблица случайных чисел здесь не годится — hp
+ * не ограничено, типов — любые строки.  Поэтому ключ (армия, тип,
+ * клетка, hp) — это SplitMix64 от их упаковки, где тип — 64-битный
+ * FNV-1a его названия ({@link #typeKey}).  Ключи детерминированы
+ * между запусками и JVM, хеши можно хранить.
+ */
+public final class ZobristHash {
+
+    private ZobristHash() {}
+
+    /** 64-битный ключ типа юнита (FNV-1a по символам, затем перемешивание). */
+    public static long typeKey(String unitType) {
+        long h = 0xCBF29CE484222325L;
+        if (unitType != null) {
+            for (int i = 0; i < unitType.length(); i++) {
+                h ^= unitType.charAt(i);
+                h *= 0x100000001B3L;
+            }
+        }
+        return mix(h);
+    }
+
+    /** Вклад живого юнита армии {@code side} типа {@code typeKey} в клетке (x, y) с {@code hp}. */
+    public static long unit(long typeKey, int side, int x, int y, int hp) {
+        long packed = ((long) BattleRecorder.packXY(x, y) << 32) | (hp & 0xFFFFFFFFL);
+        return mix(typeKey ^ mix(packed + (side == BattleState.PLAYER ? 0x9E3779B97F4A7C15L : 0x632BE59BD9B4E019L)));
+    }
+
+    /** Вклад юнита с учётом жизни: погибший — 0. */
+    static long unit(long typeKey, int side, Unit u) {
+        return u.isAlive() ? unit(typeKey, side, u.getxCoordinate(), u.getyCoordinate(), u.getHealth()) : 0L;
+    }
+
+    /** Хеш позиции «с нуля» — O(N); совпадает с инкрементальным. */
+    public static long of(Army player, Army computer) {
+        BattleState s = BattleState.of(player, computer);
+        long h = 0;
+        for (int id = 0; id < s.size(); id++)
+            h += unit(typeKey(s.units[id].getUnitType()), s.side[id], s.units[id]);
+        return h;
+    }
+
+    /** Финализатор SplitMix64. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,142 @@
+package programs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Отчёт стресс-прогона: точки (компонент, серия, n) → время, память.
+ *
+ * Серия — один компонент при фиксированных остальных параметрах
+ * (плотность, бюджет); внутри серии меняется только n.  Для серии
+ * считается показатель роста k в t ≈ c·nᵏ:
+ *
+ *   по шагам  — log(t₂/t₁) / log(n₂/n₁) между соседними точками;
+ *   итоговый  — наклон МНК по log n / log t на точках не короче
+ *               {@link #MIN_FIT_NANOS} (на микросекундах шум
+ *               таймера и JIT больше самого сигнала).
+ *
+ * Серия помечается «СВЕРХЛИНЕЙНО», если итоговый k больше ожидаемого
+ * для компонента (или серии) на {@link #TOLERANCE}: O(n log n) на этой сетке даёт
+ * k ≈ 1.1, O(n²) — 2, так что допуск ловит квадратичный рост, но не
+ * логарифмический множитель.
+ *
+ * Выход — CSV (одна строка на точку, для графиков и сравнения
+ * запусков) и текст (таблицы по сериям с k и пометками).
+ */
+final class ScalingReport {
+
+    /** Допуск итогового показателя над ожидаемым. */
+    static final double TOLERANCE = 0.4;
+
+    /** Точки короче не участвуют в итоговом наклоне. */
+    static final long MIN_FIT_NANOS = 50_000;
+
+    /** Одна точка прогона; время, аллокации и пик кучи — на один вызов (лучший из reps). */
+    record Point(String component, String series, int n, long cells, int reps,
+                 long wallNanos, long allocatedBytes, long peakHeapBytes) {}
+
+    private final Map<String, List<Point>> series   = new LinkedHashMap<>();
+    private final Map<String, Double>      expected = new LinkedHashMap<>();
+
+    /**
+     * Ожидаемый показатель роста (1 — линейно) для компонента
+     * ({@code "path"}) или отдельной его серии ({@code "simulate library"}).
+     */
+    void expect(String key, double exponent) {
+        expected.put(key, exponent);
+    }
+
+    void add(Point p) {
+        series.computeIfAbsent(p.component() + " " + p.series(), k -> new ArrayList<>()).add(p);
+    }
+
+    /* ------------------------------------------------------------------  показатели */
+
+    /** Итоговый показатель серии или NaN, если точек для наклона меньше двух. */
+    static double exponent(List<Point> points) {
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        int m = 0;
+        for (Point p : points) {
+            if (p.wallNanos() < MIN_FIT_NANOS) continue;
+            double x = Math.log(p.n()), y = Math.log(p.wallNanos());
+            sx += x; sy += y; sxx += x * x; sxy += x * y;
+            m++;
+        }
+        if (m < 2) return Double.NaN;
+        double d = m * sxx - sx * sx;
+        return d == 0 ? Double.NaN : (m * sxy - sx * sy) / d;
+    }
+
+    private static double step(Point a, Point b) {
+        return Math.log((double) Math.max(1, b.wallNanos()) / Math.max(1, a.wallNanos()))
+             / Math.log((double) b.n() / a.n());
+    }
+
+    /** Серии, растущие быстрее ожидаемого: «компонент серия». */
+    List<String> superlinear() {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, List<Point>> e : series.entrySet()) {
+            double k = exponent(e.getValue());
+            if (k > expected(e.getValue().get(0)) + TOLERANCE) out.add(e.getKey());
+        }
+        return out;
+    }
+
+    private double expected(Point p) {
+        Double k = expected.get(p.component() + " " + p.series());
+        return k != null ? k : expected.getOrDefault(p.component(), 1.0);
+    }
+
+    /* ------------------------------------------------------------------  вывод */
+
+    void writeCsv(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder(
+                "component,series,n,cells,reps,wall_ns,allocated_bytes,peak_heap_bytes,ns_per_unit\n");
+        for (List<Point> points : series.values()) {
+            for (Point p : points) {
+                sb.append(p.component()).append(',').append(p.series()).append(',')
+                  .append(p.n()).append(',').append(p.cells()).append(',').append(p.reps()).append(',')
+                  .append(p.wallNanos()).append(',').append(p.allocatedBytes()).append(',')
+                  .append(p.peakHeapBytes()).append(',')
+                  .append(String.format(Locale.ROOT, "%.1f", (double) p.wallNanos() / p.n())).append('\n');
+            }
+        }
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+    }
+
+    String text() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<Point>> e : series.entrySet()) {
+            List<Point> points = e.getValue();
+            double want = expected(points.get(0)), k = exponent(points);
+            sb.append(e.getKey()).append(String.format(Locale.ROOT, "   (ожидается n^%.1f)%n", want));
+            sb.append(String.format(Locale.ROOT, "%9s %11s %11s %12s %10s %10s %6s%n",
+                    "n", "cells", "wall, ms", "alloc, KB", "heap, MB", "ns/unit", "k"));
+            for (int i = 0; i < points.size(); i++) {
+                Point p = points.get(i);
+                String local = i == 0 ? "" : String.format(Locale.ROOT, "%.2f", step(points.get(i - 1), p));
+                sb.append(String.format(Locale.ROOT, "%9d %11d %11.3f %12d %10.1f %10.1f %6s%n",
+                        p.n(), p.cells(), p.wallNanos() / 1e6, p.allocatedBytes() >> 10,
+                        p.peakHeapBytes() / (double) (1 << 20), (double) p.wallNanos() / p.n(), local));
+            }
+            if (Double.isNaN(k)) sb.append("  наклон: мало точек дольше ").append(MIN_FIT_NANOS / 1000).append(" мкс\n\n");
+            else sb.append(String.format(Locale.ROOT, "  наклон n^%.2f%s%n%n", k,
+                    k > want + TOLERANCE ? "   <-- СВЕРХЛИНЕЙНО" : ""));
+        }
+        List<String> bad = superlinear();
+        sb.append(bad.isEmpty() ? "Сверхлинейных серий нет.\n"
+                                : "Сверхлинейные серии: " + String.join("; ", bad) + "\n");
+        return sb.toString();
+    }
+
+    void writeText(Path file) throws IOException {
+        Files.writeString(file, text(), StandardCharsets.UTF_8);
+    }
+}
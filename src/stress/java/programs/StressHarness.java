@@ -0,0 +1,312 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Program;
+import com.battle.heroes.util.GameSpeedUtil;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Стресс-прогон: как растут время и память компонентов, когда входы
+ * далеко за пределами игры (до 10 000 юнитов, поля до сотен клеток
+ * в стороне).  Оценки сложности в README сделаны для ≤ 44 кандидатов
+ * и поля 27×21 — здесь они проверяются.
+ *
+ * Сетка n = 10, 30, 100 … 10 000 (до {@code --max-n}); серии:
+ *
+ *   generate  budget=f     GeneratePresetImpl: n кандидатов (⌈n/11⌉ типов
+ *                          по 11 копий), бюджет — доля f цены всех;
+ *   suitable  density=d    getSuitableUnits: n юнитов в трёх колонках,
+ *                          клетка занята с вероятностью d, обе стороны;
+ *   path      density=d    getTargetPath: n препятствий на квадратном поле
+ *                          плотности d, 16 фиксированных пар за вызов;
+ *   simulate  stub         полный бой SimulateBattleImpl, программы-заглушки
+ *                          (бьют первого живого врага, общий курсор);
+ *   simulate  library      полный бой с программами игры на поле 27×21
+ *                          (n ≤ 126, до 1000 раундов); допускается до n²:
+ *                          каждый ход программа смотрит всю армию врага.
+ *                          Перед замером бой проверяется: ближний бой
+ *                          должен попадать, иначе прогон падает.
+ *
+ * Замер точки: подготовка входа — вне замера; прогоны повторяются,
+ * пока не наберётся {@code --reps} или не кончится ~1 с; в отчёт идёт
+ * лучшее время и наименьшие аллокации потока (ThreadMXBean).  Пик кучи —
+ * отдельным прогоном: System.gc(), сброс пиков пулов кучи, вызов, сумма
+ * пиков пулов (вход живой и входит в пик; сумма пиков пулов — оценка
+ * сверху).
+ *
+ * Выход: {@code scaling.csv} и {@code scaling.txt} в {@code --out}
+ * (по умолчанию build/reports/stress).  С {@code --fail-on-superlinear}
+ * процесс завершается с кодом 1, если есть сверхлинейные серии
+ * ({@link ScalingReport}).
+ *
+ *   gradle stress
+ *   gradle stress -PstressArgs='--max-n 1000 --only path'
+ */
+public final class StressHarness {
+
+    static final int[] SIZES = {10, 30, 100, 300, 1_000, 3_000, 10_000};
+
+    /** Вход одной точки: готовит то, что будет замерено. */
+    @FunctionalInterface
+    interface Setup {
+        Workload prepare() throws Exception;
+    }
+
+    /** Замеряемый вызов. */
+    @FunctionalInterface
+    interface Workload {
+        Object run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Результаты вызовов — чтобы JIT их не выбросил. */
+    static volatile int sink;
+
+    private final SyntheticBattleGenerator gen;
+    private final ScalingReport            report = new ScalingReport();
+    private final int                      maxN;
+    private final int                      reps;
+    private final String                   only;
+
+    StressHarness(long seed, int maxN, int reps, String only) {
+        this.gen  = new SyntheticBattleGenerator(seed);
+        this.maxN = maxN;
+        this.reps = reps;
+        this.only = only;
+        report.expect("generate", 1.0);
+        report.expect("suitable", 1.0);
+        report.expect("path",     1.0);
+        report.expect("simulate", 1.0);
+        // верхняя оценка: программа игры на каждом ходу перебирает всю армию врага — ход O(n), раунд O(n²)
+        report.expect("simulate library", 2.0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seed = 1;
+        int maxN = 10_000, reps = 20;
+        String only = null;
+        Path out = Path.of("build", "reports", "stress");
+        boolean failOnSuperlinear = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed"                -> seed = Long.parseLong(args[++i]);
+                case "--max-n"               -> maxN = Integer.parseInt(args[++i]);
+                case "--reps"                -> reps = Integer.parseInt(args[++i]);
+                case "--only"                -> only = args[++i];
+                case "--out"                 -> out = Path.of(args[++i]);
+                case "--fail-on-superlinear" -> failOnSuperlinear = true;
+                default -> throw new IllegalArgumentException("unknown argument " + args[i]
+                        + " (--seed S --max-n N --reps R --only COMPONENT --out DIR --fail-on-superlinear)");
+            }
+        }
+
+        StressHarness h = new StressHarness(seed, maxN, reps, only);
+        h.run();
+
+        Files.createDirectories(out);
+        h.report.writeCsv(out.resolve("scaling.csv"));
+        h.report.writeText(out.resolve("scaling.txt"));
+        System.out.print(h.report.text());
+        System.out.println("Отчёт: " + out.resolve("scaling.csv") + ", " + out.resolve("scaling.txt"));
+        if (failOnSuperlinear && !h.report.superlinear().isEmpty()) System.exit(1);
+    }
+
+    void run() throws Exception {
+        if (enabled("generate")) for (double f : new double[] {0.1, 0.5, 1.0}) generate(f);
+        if (enabled("suitable")) for (double d : new double[] {0.2, 0.5, 0.9}) suitable(d);
+        if (enabled("path"))     for (double d : new double[] {0.05, 0.2, 0.4}) path(d);
+        if (enabled("simulate")) {
+            simulateStub();
+            simulateLibrary();
+        }
+    }
+
+    private boolean enabled(String component) {
+        return only == null || only.equals(component);
+    }
+
+    private IntStream sizes() {
+        return IntStream.of(SIZES).filter(n -> n <= maxN);
+    }
+
+    /* ------------------------------------------------------------------  серии */
+
+    private void generate(double fraction) throws Exception {
+        for (int n : sizes().toArray()) {
+            int types = (n + GeneratePresetImpl.MAX_PER_TYPE - 1) / GeneratePresetImpl.MAX_PER_TYPE;
+            List<Unit> prototypes = gen.prototypes(types);
+            long total = 0;
+            for (Unit p : prototypes) total += (long) p.getCost() * GeneratePresetImpl.MAX_PER_TYPE;
+            int budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(total * fraction)));
+            GeneratePresetImpl preset = new GeneratePresetImpl();
+            measure("generate", series("budget", fraction), n, types,
+                    () -> () -> preset.generate(prototypes, budget));
+        }
+    }
+
+    private void suitable(double density) throws Exception {
+        for (int n : sizes().toArray()) {
+            List<List<Unit>> columns = gen.columns(n, density);
+            int height = SyntheticBattleGenerator.height(columns);
+            SuitableForAttackUnitsFinderImpl finder = new SuitableForAttackUnitsFinderImpl(3, height);
+            measure("suitable", series("density", density), n, 3L * height,
+                    () -> () -> finder.getSuitableUnits(columns, true).size()
+                              + finder.getSuitableUnits(columns, false).size());
+        }
+    }
+
+    private void path(double density) throws Exception {
+        for (int n : sizes().toArray()) {
+            if (n < 2) continue;
+            int side = SyntheticBattleGenerator.side(n, density);
+            List<Unit> obstacles = gen.obstacles(side, side, n);
+            Random r = new Random(n);
+            Unit[][] pairs = new Unit[16][];
+            for (int i = 0; i < pairs.length; i++)
+                pairs[i] = new Unit[] {obstacles.get(r.nextInt(n)), obstacles.get(r.nextInt(n))};
+            UnitTargetPathFinderImpl finder = new UnitTargetPathFinderImpl(side, side);
+            measure("path", series("density", density), n, (long) side * side, () -> () -> {
+                int steps = 0;
+                for (Unit[] p : pairs) steps += finder.getTargetPath(p[0], p[1], obstacles).size();
+                return steps;
+            });
+        }
+    }
+
+    private void simulateStub() throws Exception {
+        GameSpeedUtil noDelay = new GameSpeedUtil(0);
+        for (int n : sizes().toArray()) {
+            int side = SyntheticBattleGenerator.side(n, 0.2);
+            measure("simulate", "stub", n, (long) side * side, () -> {
+                Army[] a = gen.armies(n, 0.2);
+                int[] playerCursor = {0}, computerCursor = {0};
+                for (Unit u : a[0].getUnits()) u.setProgram(new FirstAliveEnemy(u, a[0], a[1], computerCursor, noDelay));
+                for (Unit u : a[1].getUnits()) u.setProgram(new FirstAliveEnemy(u, a[1], a[0], playerCursor, noDelay));
+                SimulateBattleImpl sim = new SimulateBattleImpl();
+                return () -> sim.run(a[0], a[1], BatchBattleRunner.DEFAULT_MAX_ROUNDS);
+            });
+        }
+    }
+
+    private void simulateLibrary() throws Exception {
+        GameSpeedUtil noDelay = new GameSpeedUtil(0);
+        int[] sizes = IntStream.concat(sizes().filter(n -> n <= 100), IntStream.of(126))
+                               .filter(n -> n <= maxN).toArray();
+        for (int n : sizes) {
+            requireMeleeHits(gameBattle(n, noDelay), n);
+            measure("simulate", "library", n, (long) OccupancyIndex.CELLS, () -> {
+                Army[] a = gameBattle(n, noDelay);
+                SimulateBattleImpl sim = new SimulateBattleImpl();
+                return () -> sim.run(a[0], a[1], BatchBattleRunner.DEFAULT_MAX_ROUNDS);
+            });
+        }
+    }
+
+    /** Армии {@link SyntheticBattleGenerator#gameArmies} с программами игры. */
+    private Army[] gameBattle(int n, GameSpeedUtil speed) {
+        Army[] a = gen.gameArmies(n);
+        ArmyCopier.arm(a[0], a[1], ProgramFactory.user(),     speed);
+        ArmyCopier.arm(a[1], a[0], ProgramFactory.computer(), speed);
+        return a;
+    }
+
+    /**
+     * Серия должна мерить ближний бой, а не одних лучников: хоть один ход
+     * не-лучника обязан попасть в цель (иначе поиск целей и пути на этом
+     * входе не работает — например, армии стоят не на своих сторонах).
+     */
+    private static void requireMeleeHits(Army[] a, int n) throws InterruptedException {
+        int[] hits = {0};
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        sim.setPrintBattleLog((attacker, target) -> {
+            if (target != null && !CompactBattleSimulator.RANGED_TYPE.equals(attacker.getUnitType())) hits[0]++;
+        });
+        sim.run(a[0], a[1], BatchBattleRunner.DEFAULT_MAX_ROUNDS);
+        if (hits[0] == 0) throw new IllegalStateException("simulate library n=" + n + ": no melee turn hit a target");
+    }
+
+    private static String series(String name, double value) {
+        return name + "=" + value;
+    }
+
+    /* ------------------------------------------------------------------  замер */
+
+    private void measure(String component, String series, int n, long cells, Setup setup) throws Exception {
+        // прогрев: JIT и буферы потока — ~0.3 с, но не меньше трёх вызовов
+        long warmEnd = System.nanoTime() + 300_000_000L;
+        for (int i = 0; i < 3 || System.nanoTime() < warmEnd; i++) consume(setup.prepare().run());
+
+        long bestWall = Long.MAX_VALUE, bestAlloc = Long.MAX_VALUE;
+        long end = System.nanoTime() + 1_000_000_000L;
+        int done = 0;
+        while (done < reps && (done < 3 || System.nanoTime() < end)) {
+            Workload w = setup.prepare();
+            long a0 = THREADS.getCurrentThreadAllocatedBytes(), t0 = System.nanoTime();
+            Object res = w.run();
+            long t1 = System.nanoTime(), a1 = THREADS.getCurrentThreadAllocatedBytes();
+            consume(res);
+            bestWall  = Math.min(bestWall,  t1 - t0);
+            bestAlloc = Math.min(bestAlloc, a1 - a0);
+            done++;
+        }
+
+        Workload w = setup.prepare();
+        List<MemoryPoolMXBean> heap = heapPools();
+        System.gc();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        consume(w.run());
+        long peak = 0;
+        for (MemoryPoolMXBean p : heap) peak += p.getPeakUsage().getUsed();
+
+        report.add(new ScalingReport.Point(component, series, n, cells, done, bestWall, bestAlloc, peak));
+        System.err.printf("%-9s %-13s n=%-6d %10.3f ms%n", component, series, n, bestWall / 1e6);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> out = new ArrayList<>();
+        for (MemoryPoolMXBean p : ManagementFactory.getMemoryPoolMXBeans())
+            if (p.getType() == MemoryType.HEAP && p.isValid()) out.add(p);
+        return out;
+    }
+
+    private static void consume(Object o) {
+        sink += o == null ? 0 : o.hashCode();
+    }
+
+    /**
+     * Бьёт первого живого врага.  Курсор общий на армию-цель и только
+     * растёт (погибшие не воскресают) — выбор цели амортизированно O(1),
+     * и время боя зависит только от симулятора.
+     */
+    private static final class FirstAliveEnemy extends Program {
+        private final int[] cursor;
+
+        FirstAliveEnemy(Unit unit, Army ally, Army enemy, int[] cursor, GameSpeedUtil speed) {
+            super(unit, ally, enemy, speed);
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Unit attack() {
+            List<Unit> enemies = enemyArmy.getUnits();
+            while (cursor[0] < enemies.size() && !enemies.get(cursor[0]).isAlive()) cursor[0]++;
+            if (cursor[0] == enemies.size()) return null;
+            Unit e = enemies.get(cursor[0]);
+            e.setHealth(e.getHealth() - unit.getBaseAttack());
+            if (e.getHealth() <= 0) e.setAlive(false);
+            return e;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Синтетические входы для стресс-прогона: прототипы, армии, препятствия.
+ *
+ * Всё детерминировано seed'ом: один и тот же (seed, параметры) даёт
+ * те же юниты в том же порядке — точки отчёта сравнимы между запусками.
+ *
+ *   prototypes(T)         — T типов; первые четыре — типы игры
+ *                           (их расставляет {@link PresetLayout}), дальше —
+ *                           «Archer-5», «Knight-8»… со случайными hp/атакой/ценой;
+ *   obstacles(w, h, n)    — n юнитов в различных случайных клетках поля w×h;
+ *   columns(n, d)         — армия из трёх колонок, занятых с плотностью d
+ *                           (вход getSuitableUnits);
+ *   armies(n, d)          — две армии по n/2 юнитов у левого и правого краёв
+ *                           квадратного поля плотности d;
+ *   gameArmies(n)         — то же на поле игры 27×21 (n ≤ 126): игрок
+ *                           в колонках 24..26, компьютер — 0..2 (там их
+ *                           ищут программы библиотеки), для программ игры.
+ */
+final class SyntheticBattleGenerator {
+
+    static final String[] GAME_TYPES = {"Archer", "Swordsman", "Pikeman", "Knight"};
+
+    private final long seed;
+
+    SyntheticBattleGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Генератор для отдельной точки прогона — не зависит от порядка точек. */
+    private Random random(long salt) {
+        return new Random(ZobristHash.mix(seed ^ ZobristHash.mix(salt)));
+    }
+
+    /* ------------------------------------------------------------------  прототипы */
+
+    /** {@code types} прототипов с различными типами. */
+    List<Unit> prototypes(int types) {
+        Random r = random(1L << 40 | types);
+        List<Unit> out = new ArrayList<>(types);
+        for (int t = 0; t < types; t++) {
+            String base = GAME_TYPES[t % GAME_TYPES.length];
+            String type = t < GAME_TYPES.length ? base : base + "-" + t;
+            out.add(unit(type, type, 0, 0, 20 + r.nextInt(100), 5 + r.nextInt(30), 10 + r.nextInt(60)));
+        }
+        return out;
+    }
+
+    /* ------------------------------------------------------------------  поле */
+
+    /** Сторона квадратного поля, на котором {@code units} юнитов занимают долю {@code density}. */
+    static int side(int units, double density) {
+        return Math.max(3, (int) Math.ceil(Math.sqrt(units / density)));
+    }
+
+    /** {@code n} юнитов в различных случайных клетках поля w×h (n ≤ w·h). */
+    List<Unit> obstacles(int width, int height, int n) {
+        return obstacles(width, height, n, 0);
+    }
+
+    /** То же с отдельным потоком случайных чисел на каждый {@code stream}. */
+    private List<Unit> obstacles(int width, int height, int n, long stream) {
+        if ((long) width * height < n) throw new IllegalArgumentException(n + " units on " + width + "x" + height);
+        Random r = random(2L << 40 ^ (long) width << 20 ^ height ^ (long) n << 44 ^ ZobristHash.mix(stream));
+        boolean[] taken = new boolean[width * height];
+        List<Unit> out = new ArrayList<>(n);
+        while (out.size() < n) {
+            int cell = r.nextInt(width * height);
+            if (taken[cell]) continue;
+            taken[cell] = true;
+            out.add(unit("o" + out.size(), "Knight", cell / height, cell % height, 10, 1, 1));
+        }
+        return out;
+    }
+
+    /**
+     * Армия из трёх колонок x = 0..2: {@code n} юнитов, каждая клетка
+     * колонки занята с вероятностью {@code density}.  Высота колонки —
+     * сколько нужно, чтобы уместить n.
+     */
+    List<List<Unit>> columns(int n, double density) {
+        Random r = random(3L << 40 ^ n ^ Double.doubleToLongBits(density));
+        List<List<Unit>> out = new ArrayList<>(3);
+        for (int x = 0; x < 3; x++) out.add(new ArrayList<>());
+        for (int y = 0, placed = 0; placed < n; y++) {
+            for (int x = 0; x < 3 && placed < n; x++) {
+                if (r.nextDouble() >= density) continue;
+                out.get(x).add(unit("u" + placed++, "Knight", x, y, 10, 1, 1));
+            }
+        }
+        return out;
+    }
+
+    /** Высота колонок {@link #columns}: наибольший y + 1. */
+    static int height(List<List<Unit>> columns) {
+        int h = 1;
+        for (List<Unit> c : columns) for (Unit u : c) h = Math.max(h, u.getyCoordinate() + 1);
+        return h;
+    }
+
+    /**
+     * Игрок и компьютер по {@code n / 2} юнитов: колонками у левого и
+     * правого края поля {@link #side}(n, density), типы игры по кругу.
+     */
+    Army[] armies(int n, double density) {
+        Random r = random(4L << 40 ^ n ^ Double.doubleToLongBits(density));
+        int side = side(n, density);
+        Army[] out = {new Army(new ArrayList<>()), new Army(new ArrayList<>())};
+        for (int a = 0; a < 2; a++) {
+            for (int i = 0; i < n / 2; i++) {
+                int column = i / side, x = a == 0 ? column : side - 1 - column;
+                String type = GAME_TYPES[i % GAME_TYPES.length];
+                out[a].getUnits().add(unit((a == 0 ? "P" : "C") + i, type, x, i % side,
+                        20 + r.nextInt(60), 3 + r.nextInt(12), 1));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Игрок и компьютер по {@code n / 2} юнитов в случайных клетках своих
+     * трёх колонок поля игры: игрок — X W-3..W-1, компьютер — X 0..2.
+     * Программы игрока бьют колонки 0..2, компьютера — W-3..W-1, как в
+     * {@link CompactBattleSimulator}; на зеркальных сторонах ближний бой
+     * не находит ни одной цели.  Клетки и характеристики у сторон —
+     * из разных потоков: строи не зеркальные копии друг друга.
+     */
+    Army[] gameArmies(int n) {
+        int perSide = n / 2, rows = OccupancyIndex.HEIGHT;
+        if (perSide > 3 * rows) throw new IllegalArgumentException(n + " units do not fit the game board");
+        Army[] out = new Army[2];
+        for (int a = 0; a < 2; a++) {
+            Random r = random(5L << 40 ^ n ^ (long) a << 32);
+            List<Unit> cells = obstacles(3, rows, perSide, 5L << 40 ^ a);
+            List<Unit> units = new ArrayList<>(perSide);
+            for (int i = 0; i < perSide; i++) {
+                Unit c = cells.get(i);
+                int x = a == 0 ? OccupancyIndex.WIDTH - 1 - c.getxCoordinate() : c.getxCoordinate();
+                units.add(unit((a == 0 ? "P" : "C") + i, GAME_TYPES[i % GAME_TYPES.length], x, c.getyCoordinate(),
+                        20 + r.nextInt(60), 3 + r.nextInt(12), 1));
+            }
+            out[a] = new Army(units);
+        }
+        return out;
+    }
+
+    static Unit unit(String name, String type, int x, int y, int hp, int atk, int cost) {
+        Map<String, Double> none = new HashMap<>();
+        return new Unit(name, type, hp, atk, cost, "melee", none, none, x, y);
+    }
+}
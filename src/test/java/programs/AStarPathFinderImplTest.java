@@ -0,0 +1,69 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AStarPathFinderImplTest {
+
+    private final UnitTargetPathFinder bfs   = PathFinderEngine.BFS.create();
+    private final UnitTargetPathFinder astar = PathFinderEngine.ASTAR.create();
+    private final UnitTargetPathFinder jps   = PathFinderEngine.JPS.create();
+
+    @Test
+    void pathLengthMatchesBfsOnRandomBoards() {
+        Random rnd = new Random(42);
+        for (int it = 0; it < 2_000; it++) {
+            List<Unit> all = new ArrayList<>();
+            int walls = rnd.nextInt(300);
+            for (int i = 0; i < walls; i++)
+                all.add(TestHelpers.newUnit("W" + i, "W", rnd.nextInt(27), rnd.nextInt(21), 1, 0, 0));
+            Unit a = TestHelpers.newUnit("A", "S", rnd.nextInt(27), rnd.nextInt(21), 10, 1, 1);
+            Unit t = TestHelpers.newUnit("T", "S", rnd.nextInt(27), rnd.nextInt(21), 10, 1, 1);
+            all.add(a);
+            all.add(t);
+
+            int expected = bfs.getTargetPath(a, t, all).size();
+            assertPath(astar.getTargetPath(a, t, all), expected, a, t);
+            assertPath(jps.getTargetPath(a, t, all),   expected, a, t);
+        }
+    }
+
+    @Test
+    void noPathWhenCompletelyBlocked() {
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit t = TestHelpers.newUnit("T","S",5,5,10,1,1);
+        List<Unit> all = new ArrayList<>(List.of(
+                TestHelpers.newUnit("W1","W",0,1,1,0,0),
+                TestHelpers.newUnit("W2","W",1,0,1,0,0),
+                TestHelpers.newUnit("W3","W",1,1,1,0,0)
+        ));
+        all.add(a);
+        all.add(t);
+
+        assertTrue(astar.getTargetPath(a, t, all).isEmpty());
+        assertTrue(jps.getTargetPath(a, t, all).isEmpty());
+    }
+
+    /** Путь нужной длины, шаги по 1 клетке, заканчивается в цели. */
+    private static void assertPath(List<Edge> path, int expectedLen, Unit from, Unit to) {
+        assertEquals(expectedLen, path.size());
+        int x = from.getxCoordinate(), y = from.getyCoordinate();
+        for (Edge e : path) {
+            assertEquals(1, Math.max(Math.abs(e.getX() - x), Math.abs(e.getY() - y)));
+            x = e.getX();
+            y = e.getY();
+        }
+        if (expectedLen > 0) {
+            assertEquals(to.getxCoordinate(), x);
+            assertEquals(to.getyCoordinate(), y);
+        }
+    }
+}
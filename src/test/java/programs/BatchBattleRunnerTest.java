@@ -0,0 +1,37 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchBattleRunnerTest {
+
+    @Test
+    void strongArmyWinsEveryRunAndTemplatesStayUntouched() throws InterruptedException {
+        List<Unit> strong = new ArrayList<>();
+        for (int y = 0; y < 3; y++) strong.add(TestHelpers.newUnit("A" + y, "Archer", 0, y, 100, 100, 1));
+        Army player   = new Army(strong);
+        Army computer = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("E", "Archer", 26, 0, 10, 1, 1))));
+
+        try (BatchBattleRunner runner = new BatchBattleRunner(4)) {
+            BatchBattleRunner.Result r = runner.run(
+                    new BatchBattleRunner.Matchup("archers", () -> player, () -> computer), 200);
+
+            assertEquals(200, r.battles());
+            assertEquals(1.0, r.playerWinRate());
+            assertEquals(1.0, r.meanRounds());
+            assertEquals(300.0, r.meanPlayerHp());
+            assertEquals(0.0, r.meanComputerHp());
+        }
+
+        // каждый прогон работал на копиях
+        assertTrue(computer.getUnits().get(0).isAlive());
+        assertEquals(10, computer.getUnits().get(0).getHealth());
+    }
+}
@@ -0,0 +1,88 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleLogPipelineTest {
+
+    @Test
+    void sinkSeesEventsInOrderWithStateAtTimeOfAttack() throws InterruptedException {
+        Unit a = TestHelpers.newUnit("A", "Knight", 1, 2, 50, 10, 1);
+        Unit t = TestHelpers.newUnit("T", "Archer", 3, 4, 30, 5, 1);
+        List<String> seen = new ArrayList<>();
+
+        // ёмкость 2 при 100 событиях — писатель упирается в BLOCK и ждёт
+        try (BattleLogPipeline log = new BattleLogPipeline(
+                (x, y) -> seen.add(x.getName() + x.getxCoordinate() + ":" + y.getHealth() + y.isAlive()),
+                2, 1, BattleLogPipeline.Overflow.BLOCK)) {
+            for (int i = 0; i < 100; i++) {
+                t.setHealth(30 - i);
+                t.setAlive(30 - i > 0);
+                a.setxCoordinate(i);
+                log.printBattleLog(a, t);
+            }
+            log.flush();
+            assertEquals(100, log.published());
+            assertEquals(0, log.dropped());
+            assertEquals(0, log.pending());
+        }
+
+        assertEquals(100, seen.size());
+        assertEquals("A0:30true", seen.get(0));
+        assertEquals("A29:1true", seen.get(29));
+        assertEquals("A30:0false", seen.get(30));
+    }
+
+    @Test
+    void dropPolicyCountsEventsThatDidNotFit() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> seen = new ArrayList<>();
+        Unit a = TestHelpers.newUnit("A", "Knight", 0, 0, 50, 10, 1);
+
+        try (BattleLogPipeline log = new BattleLogPipeline((x, y) -> {
+            try { release.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+            seen.add(x.getName());
+        }, 4, 4, BattleLogPipeline.Overflow.DROP)) {
+            for (int i = 0; i < 20; i++) log.printBattleLog(a, null);
+            release.countDown();
+            log.flush();
+            // потребитель держит пачку из 4 слотов, пока лог не отпустят — остальное не влезло
+            assertEquals(4, log.published());
+            assertEquals(16, log.dropped());
+        }
+        assertEquals(4, seen.size());
+    }
+
+    @Test
+    void idleConsumerParksUntilWriterWakesIt() throws InterruptedException {
+        Set<Thread> before = Thread.getAllStackTraces().keySet();
+        AtomicInteger seen = new AtomicInteger();
+        Unit a = TestHelpers.newUnit("A", "Knight", 0, 0, 50, 10, 1);
+
+        try (BattleLogPipeline log = new BattleLogPipeline((x, y) -> seen.incrementAndGet())) {
+            Thread consumer = Thread.getAllStackTraces().keySet().stream()
+                    .filter(th -> th.getName().equals("battle-log") && !before.contains(th))
+                    .findFirst().orElseThrow();
+            for (int round = 0; round < 50; round++) {
+                // пустое кольцо — потребитель спит без таймаута, а не опрашивает
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (consumer.getState() != Thread.State.WAITING) {
+                    assertTrue(System.nanoTime() < deadline, "потребитель не уснул: " + consumer.getState());
+                    Thread.sleep(1);
+                }
+                log.printBattleLog(a, null);                // будит — событие не теряется
+                log.flush();
+                assertEquals(round + 1, seen.get());
+            }
+        }
+    }
+}
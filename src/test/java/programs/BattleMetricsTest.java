@@ -0,0 +1,53 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleMetricsTest {
+
+    @Test
+    void histogramQuantilesStayWithinBucketError() {
+        LogHistogram h = new LogHistogram();
+        for (int v = 1; v <= 100_000; v++) h.record(v);
+
+        LogHistogram.Snapshot s = h.snapshot();
+        assertEquals(100_000, s.count());
+        assertEquals(1, s.min());
+        assertEquals(100_000, s.max());
+        assertEquals(50_000.5, s.mean(), 1e-9);
+        assertEquals(50_000, s.p50(), 50_000 / 32.0);
+        assertEquals(99_000, s.p99(), 99_000 / 32.0);
+        assertTrue(s.p999() <= s.max());
+
+        h.reset();
+        assertEquals(0, h.snapshot().count());
+    }
+
+    @Test
+    void battleIsRecordedOnlyWhenEnabled() throws InterruptedException {
+        BattleMetrics m = BattleMetrics.global();
+        m.reset();
+        try {
+            runBattle();
+            assertEquals(0, m.snapshot().roundsPerBattle().count());    // выключено — ничего
+
+            BattleMetrics.setEnabled(true);
+            runBattle();
+            BattleMetrics.Snapshot s = m.snapshot();
+            assertEquals(1, s.roundsPerBattle().count());
+            assertEquals(2, s.roundsPerBattle().max());
+            assertEquals(3, s.attackNanos().count());                    // как в логе боя
+            assertEquals(2, s.attacksPerRound().count());
+        } finally {
+            BattleMetrics.setEnabled(false);
+            m.reset();
+        }
+    }
+
+    private static void runBattle() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        new SimulateBattleImpl().simulate(a[0], a[1]);
+    }
+}
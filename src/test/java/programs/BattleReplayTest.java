@@ -0,0 +1,188 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleReplayTest {
+
+    private static Army[] armies() {
+        List<Unit> p = new ArrayList<>(), c = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            p.add(TestHelpers.newUnit("P" + i, i % 2 == 0 ? "Archer" : "Knight", 25, 2 + 3 * i, 40, 15, 1));
+            c.add(TestHelpers.newUnit("C" + i, i % 2 == 0 ? "Knight" : "Archer", 1,  3 + 3 * i, 35, 12, 1));
+        }
+        return TestHelpers.armed(new Army(p), new Army(c));
+    }
+
+    @Test
+    void replayRebuildsStartAndEndOfRecordedBattles() throws Exception {
+        Path file = Files.createTempFile("battles", ".hbr");
+        try {
+            Army[] first = armies(), second = armies();
+            SimulateBattleImpl sim = new SimulateBattleImpl();
+            try (BattleRecorder recorder = BattleRecorder.create(file)) {
+                sim.setRecorder(recorder);
+                sim.run(first[0], first[1], 50);
+                sim.run(second[0], second[1], 50);
+                assertEquals(2, recorder.battles());
+            }
+
+            try (BattleReplay replay = BattleReplay.open(file)) {
+                assertEquals(2, replay.battles());
+                BattleReplay.Battle b = replay.battle(0);
+                assertEquals(8, b.units());
+                assertTrue(b.turns() > 0);
+
+                BattleReplay.Frame start = b.stateAt(0);
+                assertEquals(4, start.aliveCount(BattleState.PLAYER));
+                assertEquals(4, start.aliveCount(BattleState.COMPUTER));
+                assertEquals(40, start.hp(0));
+                assertEquals("C0", start.name(4));
+
+                // конец записи = состояние живых юнитов после боя
+                BattleReplay.Frame end = b.finalState();
+                List<Unit> live = new ArrayList<>(first[0].getUnits());
+                live.addAll(first[1].getUnits());
+                for (int id = 0; id < live.size(); id++) {
+                    Unit u = live.get(id);
+                    assertEquals(u.getHealth(),      end.hp(id),      "hp of " + u.getName());
+                    assertEquals(u.isAlive(),        end.isAlive(id), "alive of " + u.getName());
+                    assertEquals(u.getxCoordinate(), end.x(id));
+                    assertEquals(u.getyCoordinate(), end.y(id));
+                }
+                assertEquals(b.rounds(), end.round());
+
+                Army rebuilt = end.army(BattleState.COMPUTER);
+                assertEquals(4, rebuilt.getUnits().size());
+                assertEquals(first[1].getUnits().get(0).getHealth(), rebuilt.getUnits().get(0).getHealth());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void intermediateTurnsAreMonotone() throws Exception {
+        Path file = Files.createTempFile("battle", ".hbr");
+        try {
+            Army[] a = armies();
+            SimulateBattleImpl sim = new SimulateBattleImpl();
+            try (BattleRecorder recorder = BattleRecorder.create(file)) {
+                sim.setRecorder(recorder);
+                sim.run(a[0], a[1], 50);
+            }
+            try (BattleReplay replay = BattleReplay.open(file)) {
+                BattleReplay.Battle b = replay.battle(0);
+                int prevAlive = Integer.MAX_VALUE;
+                for (int t = 0; t <= b.turns(); t++) {
+                    BattleReplay.Frame f = b.stateAt(t);
+                    int alive = f.aliveCount(BattleState.PLAYER) + f.aliveCount(BattleState.COMPUTER);
+                    assertTrue(alive <= prevAlive, "units revived at turn " + t);
+                    prevAlive = alive;
+                    for (int id = 0; id < f.size(); id++) assertTrue(f.hp(id) <= b.stateAt(0).hp(id));
+                }
+                assertEquals(BattleRecorder.ROUND,  b.eventKind(0));
+                assertEquals(1, b.eventTurn(0));                       // ROUND 1 — с первым ходом
+                assertEquals(BattleRecorder.ATTACK, b.eventKind(1));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void framesReportTheRoundOfTheirTurn() throws Exception {
+        Path file = Files.createTempFile("battle", ".hbr");
+        try {
+            Army[] a = armies();
+            SimulateBattleImpl sim = new SimulateBattleImpl();
+            List<Integer> roundOfTurn = new ArrayList<>();
+            roundOfTurn.add(0);
+            try (BattleRecorder recorder = BattleRecorder.create(file)) {
+                sim.setRecorder(recorder);
+                try (BattleStepper s = sim.stepper(a[0], a[1], 50)) {
+                    while (s.hasNext()) roundOfTurn.add(s.step().round());
+                }
+            }
+            try (BattleReplay replay = BattleReplay.open(file)) {
+                BattleReplay.Battle b = replay.battle(0);
+                assertEquals(roundOfTurn.size() - 1, b.turns());
+                assertEquals(0, b.stateAt(0).round());
+                boolean boundary = false;
+                for (int t = 1; t <= b.turns(); t++) {
+                    assertEquals((int) roundOfTurn.get(t), b.stateAt(t).round(), "round of turn " + t);
+                    boundary |= t < b.turns() && roundOfTurn.get(t + 1) > roundOfTurn.get(t);
+                }
+                assertTrue(boundary, "battle should span several rounds");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void closedBattlesCountOnlyRoundsWithTurns() throws Exception {
+        Path file = Files.createTempFile("battles", ".hbr");
+        try {
+            SimulateBattleImpl sim = new SimulateBattleImpl();
+            try (BattleRecorder recorder = BattleRecorder.create(file)) {
+                sim.setRecorder(recorder);
+                Army[] a = TestHelpers.armedArcherDuel();
+                try (BattleStepper s = sim.stepper(a[0], a[1], Integer.MAX_VALUE)) {
+                    s.stepRound();                                     // раунд сыгран, следующий не начат
+                }
+                a = TestHelpers.armedArcherDuel();
+                try (BattleStepper s = sim.stepper(a[0], a[1], Integer.MAX_VALUE)) {
+                    assertTrue(s.runUntil(BattleStepper.decisiveLead(0.5)));   // раунд 1 открыт, ходов нет
+                }
+            }
+            try (BattleReplay replay = BattleReplay.open(file)) {
+                BattleReplay.Battle one = replay.battle(0), none = replay.battle(1);
+                assertEquals(1, one.rounds());
+                assertEquals(one.rounds(), one.finalState().round());
+                assertEquals(0, none.rounds());
+                assertEquals(0, none.turns());
+                assertEquals(none.rounds(), none.finalState().round());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void battlesAreSlicesOfSharedWindows() throws Exception {
+        Path file = Files.createTempFile("battles", ".hbr");
+        try {
+            SimulateBattleImpl sim = new SimulateBattleImpl();
+            try (BattleRecorder recorder = BattleRecorder.create(file)) {
+                sim.setRecorder(recorder);
+                for (int i = 0; i < 5; i++) {
+                    Army[] a = armies();
+                    sim.run(a[0], a[1], 50);
+                }
+            }
+            long size = Files.size(file);
+            try (BattleReplay whole = BattleReplay.open(file);
+                 BattleReplay split = BattleReplay.open(file, size / 2)) {
+                assertEquals(1, whole.windows());
+                assertTrue(split.windows() >= 2 && split.windows() < 5);
+                for (int i = 0; i < 5; i++) {
+                    BattleReplay.Frame x = whole.battle(i).finalState(), y = split.battle(i).finalState();
+                    assertEquals(whole.battle(i).events(), split.battle(i).events());
+                    for (int id = 0; id < x.size(); id++) assertEquals(x.hp(id), y.hp(id));
+                }
+            }
+            assertThrows(java.io.IOException.class, () -> BattleReplay.open(file, 64).close());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
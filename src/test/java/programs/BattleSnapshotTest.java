@@ -0,0 +1,77 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleSnapshotTest {
+
+    @Test
+    void forksAreIndependentAndShareUntilWritten() {
+        Army[] a = TestHelpers.armedArcherDuel();
+        BattleSnapshot root = BattleSnapshot.of(a[0], a[1]);
+        assertEquals(3, root.size());
+        assertEquals(0, root.changed());
+
+        BattleSnapshot f1 = root.fork();
+        f1.damage(1, 4);
+        f1.moveTo(0, 3, 5);
+        BattleSnapshot f2 = f1.fork();
+        f2.kill(2);
+
+        assertEquals(10, root.hp(1));
+        assertEquals(6,  f1.hp(1));
+        assertEquals(6,  f2.hp(1));
+        assertTrue(f1.isAlive(2));
+        assertFalse(f2.isAlive(2));
+        assertEquals(2, f1.aliveCount(BattleSnapshot.COMPUTER));
+        assertEquals(1, f2.aliveCount(BattleSnapshot.COMPUTER));
+        assertEquals(3, f2.x(0));
+        assertEquals(5, f2.y(0));
+        assertEquals(2, f1.changed());
+        assertEquals(3, f2.changed());
+
+        f1.damage(1, 100);                   // f2 уже скопировал дельту — не видит
+        assertFalse(f1.isAlive(1));
+        assertTrue(f2.isAlive(1));
+        assertSame(a[1].getUnits().get(0), f2.unit(1));
+    }
+
+    @Test
+    void deltaGrowsPastInitialCapacity() {
+        List<Unit> many = new ArrayList<>();
+        for (int i = 0; i < 40; i++) many.add(TestHelpers.newUnit("C" + i, "Knight", 1, i % 21, 30, 5, 1));
+        BattleSnapshot s = BattleSnapshot.of(new Army(new ArrayList<>()), new Army(many));
+        for (int id = 0; id < 40; id++) s.damage(id, id);
+        for (int id = 0; id < 40; id++) assertEquals(30 - id, s.hp(id));
+        assertEquals(40, s.changed());
+        assertEquals(30, s.aliveCount(BattleSnapshot.COMPUTER));   // hp 30 - id ≤ 0 с id 30
+    }
+
+    @Test
+    void captureAndApplyRoundTripRealUnits() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        BattleSnapshot root = BattleSnapshot.of(a[0], a[1]);
+
+        sim.run(a[0], a[1], Integer.MAX_VALUE);         // настоящий бой меняет юнитов
+        BattleSnapshot end = root.fork();
+        end.capture();
+        assertEquals(0, end.aliveCount(BattleSnapshot.COMPUTER));
+        assertEquals(99, end.hp(0));
+
+        root.applyTo();                                 // откат к корню
+        assertEquals(100, a[0].getUnits().get(0).getHealth());
+        assertTrue(a[1].getUnits().get(0).isAlive());
+        assertEquals(10, a[1].getUnits().get(1).getHealth());
+
+        end.applyTo();                                  // форк становится реальностью
+        assertFalse(a[1].getUnits().get(0).isAlive());
+        assertEquals(99, a[0].getUnits().get(0).getHealth());
+    }
+}
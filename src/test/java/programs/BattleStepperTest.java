@@ -0,0 +1,95 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleStepperTest {
+
+    @Test
+    void stepsFollowTheSimulatorQueue() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        try (BattleStepper s = new SimulateBattleImpl().stepper(a[0], a[1], Integer.MAX_VALUE)) {
+            assertEquals(ZobristHash.of(a[0], a[1]), s.hash());       // до первого хода
+            assertEquals(BattleSnapshot.of(a[0], a[1]).hash(), s.hash());
+            BattleStepper.Turn t1 = s.step();
+            assertEquals("P", t1.attacker().getName());
+            assertTrue(t1.killed());
+            assertEquals(1, t1.round());
+
+            BattleStepper.Turn t2 = s.step();
+            assertNotEquals("P", t2.attacker().getName());
+            assertEquals(99, t2.targetHp());
+
+            BattleStepper.Turn t3 = s.step();
+            assertEquals("P", t3.attacker().getName());
+            assertEquals(2, t3.round());
+
+            assertFalse(s.hasNext());
+            assertTrue(s.isFinished());
+            assertEquals(0, s.aliveCount(BattleStepper.COMPUTER));
+            assertEquals(2, s.rounds());
+            assertEquals(ZobristHash.of(a[0], a[1]), s.hash());   // инкрементальный хеш = пересчёт
+        }
+    }
+
+    @Test
+    void stepRoundPlaysWholeRounds() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        try (BattleStepper s = new SimulateBattleImpl().stepper(a[0], a[1], Integer.MAX_VALUE)) {
+            assertEquals(2, s.stepRound());
+            assertEquals(1, s.rounds());
+            assertFalse(s.isFinished());
+            assertEquals(1, s.stepRound());
+            assertEquals(2, s.rounds());
+            assertTrue(s.isFinished());                          // решённый бой закрыт сразу
+            assertEquals(0, s.stepRound());
+            assertEquals(2, s.rounds());
+        }
+    }
+
+    @Test
+    void stepRoundThenCloseDoesNotOpenTheNextRound() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        BattleStepper s = new SimulateBattleImpl().stepper(a[0], a[1], Integer.MAX_VALUE);
+        assertEquals(2, s.stepRound());
+        assertTrue(BattleStepper.decisiveLead(0.5).test(s));     // 99 против 10 — хватит
+        s.close();
+        assertEquals(1, s.rounds());
+        assertTrue(s.isFinished());
+        assertEquals(1, a[1].getUnits().stream().filter(u -> u.isAlive()).count());
+    }
+
+    @Test
+    void runUntilStopsBeforeAnyAttackWhenOutcomeIsClear() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        List<String> log = new ArrayList<>();
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        sim.setPrintBattleLog((x, t) -> log.add(x.getName()));
+        try (BattleStepper s = sim.stepper(a[0], a[1], Integer.MAX_VALUE)) {
+            assertEquals(BattleStepper.PLAYER, s.leader());
+            assertTrue(s.runUntil(BattleStepper.decisiveLead(0.5)));   // 100 против 20
+            assertTrue(s.isFinished());
+            assertFalse(s.hasNext());
+        }
+        assertTrue(log.isEmpty());
+        assertEquals(10, a[1].getUnits().get(0).getHealth());
+    }
+
+    @Test
+    void streamIsLazy() throws InterruptedException {
+        Army[] a = TestHelpers.armedArcherDuel();
+        try (BattleStepper s = new SimulateBattleImpl().stepper(a[0], a[1], Integer.MAX_VALUE)) {
+            List<String> first = s.stream().limit(1).map(t -> t.attacker().getName()).collect(Collectors.toList());
+            assertEquals(List.of("P"), first);
+            // второй ход ещё не сделан: выживший лучник компьютера не стрелял
+            assertEquals(100, a[0].getUnits().get(0).getHealth());
+            assertTrue(s.hasNext());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingGeneratePresetTest {
+
+    private static List<Unit> prototypes(int archerAttack) {
+        return List.of(
+                TestHelpers.newUnit("Archer", "Archer", 0, 0, 20, archerAttack, 20),
+                TestHelpers.newUnit("Sword", "Swordsman", 0, 0, 30, 9, 40),
+                TestHelpers.newUnit("Pike", "Pikeman", 0, 0, 30, 8, 30),
+                TestHelpers.newUnit("Knight", "Knight", 0, 0, 50, 11, 50));
+    }
+
+    @Test
+    void hitRebuildsSameArmyFromFreshUnits() {
+        CachingGeneratePreset cache = new CachingGeneratePreset();
+        Army first  = cache.generate(prototypes(7), 1500);
+        Army second = cache.generate(prototypes(7), 1500);   // новые объекты, те же характеристики
+
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(first.getPoints(), second.getPoints());
+        assertEquals(first.getUnits().size(), second.getUnits().size());
+        for (int i = 0; i < first.getUnits().size(); i++) {
+            Unit a = first.getUnits().get(i), b = second.getUnits().get(i);
+            assertNotSame(a, b);
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getxCoordinate(), b.getxCoordinate());
+            assertEquals(a.getyCoordinate(), b.getyCoordinate());
+            assertEquals(a.getHealth(), b.getHealth());
+        }
+
+        // изменения выданной армии не попадают в кэш
+        second.getUnits().get(0).setHealth(1);
+        assertEquals(20, cache.generate(prototypes(7), 1500).getUnits().get(0).getHealth());
+    }
+
+    @Test
+    void differentStatsOrBudgetMissAndLruEvicts() {
+        CachingGeneratePreset cache = new CachingGeneratePreset(new GeneratePresetImpl(), 2);
+        cache.generate(prototypes(7), 1000);
+        cache.generate(prototypes(8), 1000);                 // другая атака — другой ключ
+        cache.generate(prototypes(7), 1000);                 // попадание, (7,1000) — свежая
+        cache.generate(prototypes(7), 900);                  // вытесняет (8,1000)
+
+        assertEquals(3, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+
+        cache.generate(prototypes(7), 1000);
+        assertEquals(2, cache.hits());
+        cache.generate(prototypes(8), 1000);
+        assertEquals(4, cache.misses());
+    }
+}
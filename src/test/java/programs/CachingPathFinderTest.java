@@ -0,0 +1,127 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingPathFinderTest {
+
+    /** Делегат, считающий реальные поиски. */
+    private static final class Counting implements UnitTargetPathFinder {
+        final UnitTargetPathFinderImpl bfs = new UnitTargetPathFinderImpl();
+        int calls;
+
+        @Override
+        public List<Edge> getTargetPath(Unit a, Unit t, List<Unit> all) {
+            calls++;
+            return bfs.getTargetPath(a, t, all);
+        }
+    }
+
+    private final Unit attacker = TestHelpers.newUnit("A", "Knight", 25, 10, 10, 1, 1);
+    private final Unit near     = TestHelpers.newUnit("N", "Knight", 24, 11, 10, 1, 1);
+    private final Unit target   = TestHelpers.newUnit("T", "Knight", 1, 10, 10, 1, 1);
+    private final Unit far      = TestHelpers.newUnit("F", "Knight", 2, 0, 10, 1, 1);
+    private final Army player   = new Army(new ArrayList<>(List.of(attacker, near)));
+    private final Army computer = new Army(new ArrayList<>(List.of(target, far)));
+    private final List<Unit> all = List.of(attacker, near, target, far);
+
+    @AfterEach
+    void clearContext() {
+        OccupancyIndex.setCurrent(null);
+    }
+
+    @Test
+    void sameOccupancyVersionIsAHit() {
+        Counting bfs = new Counting();
+        CachingPathFinder cache = new CachingPathFinder(bfs, 16, CachingPathFinder.Invalidation.STRICT);
+        OccupancyIndex idx = OccupancyIndex.of(player, computer);
+        OccupancyIndex.setCurrent(idx);
+
+        List<Edge> first  = cache.getTargetPath(attacker, target, all);
+        List<Edge> second = cache.getTargetPath(attacker, target, all);
+        assertEquals(1, bfs.calls);
+        assertEquals(cells(first), cells(second));
+        assertFalse(first.get(0) == second.get(0), "попадание отдаёт свежие Edge");
+        assertEquals(0.5, cache.hitRate());
+
+        // смерть юнита меняет версию — STRICT ищет заново
+        far.setAlive(false);
+        idx.sync(far);
+        cache.getTargetPath(attacker, target, all);
+        assertEquals(2, bfs.calls);
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void otherBoardsBypassTheCache() {
+        // индекс боя 27×21 установлен и ведёт обоих, но делегат ищет на 40×30
+        UnitTargetPathFinderImpl wide = new UnitTargetPathFinderImpl(40, 30);
+        CachingPathFinder cache = new CachingPathFinder(wide, 16, CachingPathFinder.Invalidation.STRICT);
+        OccupancyIndex.setCurrent(OccupancyIndex.of(player, computer));
+
+        assertEquals(cells(wide.getTargetPath(attacker, target, all)), cells(cache.getTargetPath(attacker, target, all)));
+        cache.getTargetPath(attacker, target, all);
+        assertEquals(2, cache.bypasses());
+        assertEquals(0, cache.hits() + cache.misses());
+
+        CachingPathFinder game = new CachingPathFinder(new AStarPathFinderImpl(), 16, CachingPathFinder.Invalidation.STRICT);
+        game.getTargetPath(attacker, target, all);
+        assertEquals(0, game.bypasses());
+    }
+
+    @Test
+    void repairKeepsPathsThatChangeDoesNotTouch() {
+        Counting bfs = new Counting();
+        CachingPathFinder cache = new CachingPathFinder(bfs, 16, CachingPathFinder.Invalidation.REPAIR);
+        OccupancyIndex idx = OccupancyIndex.of(player, computer);
+        OccupancyIndex.setCurrent(idx);
+        List<Edge> path = cache.getTargetPath(attacker, target, all);
+
+        far.setAlive(false);                         // (2,0) — вдали от пути по y = 10
+        idx.sync(far);
+        assertEquals(cells(path), cells(cache.getTargetPath(attacker, target, all)));
+        assertEquals(1, bfs.calls);
+        assertEquals(1, cache.repairs());
+
+        near.setAlive(false);                        // (24,11) — рядом со стартом
+        idx.sync(near);
+        cache.getTargetPath(attacker, target, all);
+        assertEquals(2, bfs.calls);
+    }
+
+    @Test
+    void outsideBattleGoesToDelegate() {
+        Counting bfs = new Counting();
+        CachingPathFinder cache = new CachingPathFinder(bfs, 16, CachingPathFinder.Invalidation.STRICT);
+        cache.getTargetPath(attacker, target, all);
+        cache.getTargetPath(attacker, target, all);
+        assertEquals(2, bfs.calls);
+        assertEquals(2, cache.bypasses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void lruEvictsOldestPair() {
+        CachingPathFinder cache = new CachingPathFinder(new Counting(), 1, CachingPathFinder.Invalidation.STRICT);
+        OccupancyIndex.setCurrent(OccupancyIndex.of(player, computer));
+        cache.getTargetPath(attacker, target, all);
+        cache.getTargetPath(attacker, far, all);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+
+    private static List<String> cells(List<Edge> path) {
+        List<String> out = new ArrayList<>();
+        for (Edge e : path) out.add(e.getX() + ":" + e.getY());
+        return out;
+    }
+}
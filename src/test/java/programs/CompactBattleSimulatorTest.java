@@ -0,0 +1,150 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBattleSimulatorTest {
+
+    @Test
+    void archerBattleMatchesUnitSimulator() {
+        // тот же бой, что в SimulateBattleImplTest: модели разные, но здесь выбор цели
+        // на исход не влияет: у C1 и C2 один враг, а P убивает любого из них одним ударом
+        Army[] armies = TestHelpers.archerDuel();
+        Army player = armies[0], computer = armies[1];
+
+        List<String> log = new ArrayList<>();
+        CompactBattleSimulator sim = new CompactBattleSimulator(7);
+        sim.setPrintBattleLog((a, t) -> log.add(a.getName() + ">" + t.getName() + ":" + t.getHealth()));
+
+        assertEquals(2, sim.simulate(player, computer, Integer.MAX_VALUE));
+        assertEquals(3, log.size());
+        assertTrue(log.get(0).startsWith("P>"));
+        assertTrue(log.get(1).endsWith(">P:99"), "событие лога видит уже обновлённый Unit");
+        assertEquals(99, player.getUnits().get(0).getHealth());
+        assertFalse(computer.getUnits().get(0).isAlive());
+        assertFalse(computer.getUnits().get(1).isAlive());
+    }
+
+    @Test
+    void meleeNeedsTargetInFrontColumnsAndPath() {
+        // враг стоит вне колонок 0..2 — программы ближнего боя его не видят
+        Army player   = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("P", "Knight", 25, 5, 50, 10, 1))));
+        Army computer = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("C", "Knight", 10, 5, 50, 0, 1))));
+        assertEquals(5, new CompactBattleSimulator(1).simulate(player, computer, 5));
+        assertEquals(50, computer.getUnits().get(0).getHealth());
+
+        // в колонке 2, путь свободен — бой идёт до конца (C урона не наносит)
+        computer.getUnits().get(0).setxCoordinate(2);
+        new CompactBattleSimulator(1).simulate(player, computer, 100);
+        assertFalse(computer.getUnits().get(0).isAlive());
+        assertEquals(50, player.getUnits().get(0).getHealth());
+    }
+
+    @Test
+    void sameSeedSameBattle() {
+        for (long seed = 0; seed < 5; seed++) {
+            assertEquals(outcome(seed), outcome(seed));
+        }
+    }
+
+    @Test
+    void parallelPlanningPlaysTheSameBattle() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (long seed = 0; seed < 4; seed++) {
+                for (int batch : new int[] {1, 7, 64}) {
+                    CompactBattleSimulator sim = new CompactBattleSimulator(seed).withParallelPlanning(pool, batch);
+                    assertEquals(outcome(seed, new CompactBattleSimulator(seed)), outcome(seed, sim));
+                    assertTrue(sim.plannedTurns() > 0);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelPlanningPlaysTheSameBattleBehindWalls() {
+        // плотный строй и стены с проходами: многим ближним пути нет, смерти
+        // их открывают — план «пути нет» то переиспользуется, то пересчитывается
+        ForkJoinPool pool = new ForkJoinPool(3);
+        long replanned = 0, idle = 0;
+        try {
+            for (long seed = 0; seed < 6; seed++) {
+                for (int batch : new int[] {1, 5, 32}) {
+                    CompactBattleSimulator sim = new CompactBattleSimulator(seed).withParallelPlanning(pool, batch);
+                    String expected = walledOutcome(seed, new CompactBattleSimulator(seed));
+                    assertEquals(expected, walledOutcome(seed, sim));
+                    replanned += sim.replannedTurns();
+                    idle      += expected.split(">-", -1).length - 1;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(replanned > 0, "смерти рядом с BFS должны заставлять пересчитывать план");
+        assertTrue(idle > 0, "часть ходов должна остаться без цели");
+    }
+
+    private static String outcome(long seed) {
+        return outcome(seed, new CompactBattleSimulator(seed));
+    }
+
+    private static String outcome(long seed, CompactBattleSimulator sim) {
+        Army player = new Army(new ArrayList<>()), computer = new Army(new ArrayList<>());
+        String[] types = {"Archer", "Knight", "Pikeman", "Swordsman"};
+        for (int i = 0; i < 40; i++) {
+            String t = types[i % 4];
+            player.getUnits().add(TestHelpers.newUnit("P" + i, t, 24 + i % 3, i % 21, 30 + i, 5 + i % 7, 1));
+            computer.getUnits().add(TestHelpers.newUnit("C" + i, t, i % 3, (i * 5) % 21, 30 + i, 5 + i % 5, 1));
+        }
+        return play(sim, player, computer, CompactBattle.of(player, computer), 1000);
+    }
+
+    /**
+     * Поле 60×40: у каждой армии три плотно занятые крайние колонки,
+     * у компьютера ещё две стены (x = 20 и 40) со случайными проходами —
+     * юниты с нулевой атакой и большим hp.
+     */
+    private static String walledOutcome(long seed, CompactBattleSimulator sim) {
+        int w = 60, h = 40;
+        Random r = new Random(seed);
+        Army player = new Army(new ArrayList<>()), computer = new Army(new ArrayList<>());
+        String[] types = {"Archer", "Knight", "Pikeman", "Swordsman"};
+        for (int y = 0; y < h; y++) {
+            for (int c = 0; c < 3; c++) {
+                if (r.nextInt(10) == 0) continue;
+                player.getUnits().add(TestHelpers.newUnit("P" + y + "_" + c, types[r.nextInt(4)],
+                        w - 1 - c, y, 20 + r.nextInt(40), 3 + r.nextInt(10), 1));
+                computer.getUnits().add(TestHelpers.newUnit("C" + y + "_" + c, types[r.nextInt(4)],
+                        c, y, 20 + r.nextInt(40), 3 + r.nextInt(10), 1));
+            }
+            for (int wx : new int[] {20, 40}) {
+                if (r.nextInt(8) == 0) continue;                       // проход
+                computer.getUnits().add(TestHelpers.newUnit("W" + wx + "_" + y, "Wall", wx, y, 1000, 0, 1));
+            }
+        }
+        return play(sim, player, computer, CompactBattle.of(player, computer, w, h), 60);
+    }
+
+    /** Исход боя: раунды, лог (нет цели — «-») и hp всех юнитов. */
+    private static String play(CompactBattleSimulator sim, Army player, Army computer, CompactBattle b, int maxRounds) {
+        List<String> log = new ArrayList<>();
+        sim.setPrintBattleLog((a, t) -> log.add(a.getName() + ">" + (t == null ? "-" : t.getName())));
+        int rounds = sim.run(b, maxRounds);
+        StringBuilder sb = new StringBuilder().append(rounds).append(log);
+        for (Unit u : player.getUnits())   sb.append(',').append(u.getHealth());
+        for (Unit u : computer.getUnits()) sb.append(',').append(u.getHealth());
+        return sb.toString();
+    }
+}
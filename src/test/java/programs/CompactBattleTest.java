@@ -0,0 +1,53 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactBattleTest {
+
+    @Test
+    void buildsArraysAndSyncsBack() {
+        Unit p = TestHelpers.newUnit("P", "Knight", 25, 3, 40, 12, 1);
+        Unit c = TestHelpers.newUnit("C", "Archer", 1, 4, 15, 6, 1);
+        p.getAttackBonuses().put("Archer", 1.5);
+        c.getDefenceBonuses().put("Knight", 2.0);
+        CompactBattle b = CompactBattle.of(new Army(new ArrayList<>(List.of(p))),
+                                           new Army(new ArrayList<>(List.of(c))));
+
+        assertEquals(2, b.size());
+        assertEquals(CompactBattle.PLAYER,   b.sideOf(0));
+        assertEquals(CompactBattle.COMPUTER, b.sideOf(1));
+        int knight = b.typeOrdinal("Knight"), archer = b.typeOrdinal("Archer");
+        assertEquals(1.5, b.bonuses.attackBonus (knight, archer));
+        assertEquals(1.0, b.bonuses.attackBonus (archer, knight));
+        assertEquals(2.0, b.bonuses.defenceBonus(archer, knight));
+        assertTrue(b.occupied(b.cell(1, 4)));
+        int cell = b.cell(1, 4);
+        assertNotEquals(0L, b.occupiedBits[cell >>> 6] & 1L << cell);
+
+        // до syncBack Unit не меняется; после смерти клетка свободна
+        b.damage(1, 15);
+        assertTrue(c.isAlive());
+        assertEquals(0, b.aliveCount(CompactBattle.COMPUTER));
+        assertFalse(b.occupied(b.cell(1, 4)));
+        assertEquals(0L, b.occupiedBits[cell >>> 6] & 1L << cell, "карта BFS освобождает клетку вместе со счётчиками");
+        b.syncBack();
+        assertFalse(c.isAlive());
+        assertEquals(0, c.getHealth());
+    }
+
+    @Test
+    void customBoardKeepsOutsideUnitsOffTheGrid() {
+        Unit far = TestHelpers.newUnit("F", "Knight", 400, 300, 10, 1, 1);
+        CompactBattle b = CompactBattle.of(new Army(new ArrayList<>(List.of(far))), new Army(), 500, 500);
+        assertTrue(b.occupied(b.cell(400, 300)));
+        CompactBattle small = CompactBattle.of(new Army(new ArrayList<>(List.of(far))), new Army());
+        assertEquals(1, small.aliveCount(CompactBattle.PLAYER));
+    }
+}
@@ -0,0 +1,104 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DamageMatrixTest {
+
+    private static final String[] TYPES = {"Knight", "Archer", "Pikeman", "Swordsman"};
+
+    @Test
+    void matrixDamageEqualsMapDamage() {
+        Random rnd = new Random(22);
+        List<Unit> protos = new ArrayList<>();
+        for (String t : TYPES) {
+            Unit u = TestHelpers.newUnit(t, t, 0, 0, 50, 1 + rnd.nextInt(40), 1);
+            for (String o : TYPES) {
+                if (rnd.nextBoolean()) u.getAttackBonuses().put(o, 0.5 + rnd.nextInt(8) * 0.25);
+                if (rnd.nextBoolean()) u.getDefenceBonuses().put(o, 0.5 + rnd.nextInt(8) * 0.25);
+            }
+            protos.add(u);
+        }
+        DamageMatrix m = DamageMatrix.of(protos);
+        assertEquals(4, m.types());
+        assertEquals(-1, m.ordinal("Dragon"));
+        for (Unit a : protos) {
+            for (Unit t : protos) {
+                int ai = m.ordinal(a.getUnitType()), ti = m.ordinal(t.getUnitType());
+                for (int base = 1; base <= 60; base++) {
+                    a.setBaseAttack(base);
+                    assertEquals(DamageMatrix.mapDamage(a, t), m.damage(base, ai, ti),
+                            a.getUnitType() + " -> " + t.getUnitType() + " @" + base);
+                }
+            }
+        }
+    }
+
+    @Test
+    void sharedMatrixIsReusedAcrossBattlesAndRejectsUnknownTypes() {
+        Unit k = TestHelpers.newUnit("K", "Knight", 25, 1, 40, 10, 1);
+        Unit a = TestHelpers.newUnit("A", "Archer", 1, 1, 40, 10, 1);
+        DamageMatrix m = DamageMatrix.of(List.of(k, a));
+
+        CompactBattle b = CompactBattle.of(new Army(new ArrayList<>(List.of(k))), new Army(new ArrayList<>(List.of(a))),
+                OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT, m);
+        assertSame(m, b.bonuses);
+        assertEquals(m.ordinal("Archer"), b.typeOrdinal("Archer"));
+
+        Unit p = TestHelpers.newUnit("P", "Pikeman", 1, 2, 40, 10, 1);
+        assertThrows(IllegalArgumentException.class, () -> CompactBattle.of(
+                new Army(new ArrayList<>(List.of(k))), new Army(new ArrayList<>(List.of(p))),
+                OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT, m));
+    }
+
+    @Test
+    void unitsOfOneTypeMustCarryTheSameBonuses() {
+        Unit k1 = TestHelpers.newUnit("K1", "Knight", 25, 1, 40, 10, 1);
+        Unit k2 = TestHelpers.newUnit("K2", "Knight", 25, 2, 40, 10, 1);
+        Unit a  = TestHelpers.newUnit("A",  "Archer", 1, 1, 40, 10, 1);
+        k1.getAttackBonuses().put("Archer", 1.5);
+        k2.getAttackBonuses().put("Archer", 1.5);          // другие карты, те же числа
+        k2.getAttackBonuses().put("Dragon", 3.0);          // типа нет в бою — не важен
+        DamageMatrix m = DamageMatrix.of(List.of(k1, k2, a));
+
+        // иначе k2 получил бы урон первого рыцаря, а не mapDamage
+        k2.getAttackBonuses().put("Archer", 2.0);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DamageMatrix.of(List.of(k1, k2, a)));
+        assertTrue(e.getMessage().contains("K2"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CompactBattle.of(
+                new Army(new ArrayList<>(List.of(k2))), new Army(new ArrayList<>(List.of(a))),
+                OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT, m));
+
+        a.getDefenceBonuses().put("Knight", 2.0);
+        assertThrows(IllegalArgumentException.class, () -> CompactBattle.of(
+                new Army(new ArrayList<>(List.of(k1))), new Army(new ArrayList<>(List.of(a))),
+                OccupancyIndex.WIDTH, OccupancyIndex.HEIGHT, m));
+    }
+
+    @Test
+    void presetClonesShareBonusMaps() {
+        List<Unit> protos = new ArrayList<>();
+        for (String t : TYPES) protos.add(TestHelpers.newUnit(t, t, 0, 0, 50, 10, 10));
+        Army army = new GeneratePresetImpl().generate(protos, 400);
+        Unit first = null;
+        for (Unit u : army.getUnits()) {
+            if (!u.getUnitType().equals("Knight")) continue;
+            if (first == null) first = u;
+            else assertSame(first.getAttackBonuses(), u.getAttackBonuses());
+        }
+        assertNotNull(first);
+        // карты — не карты прототипа и не меняются через юнит
+        assertNotSame(protos.get(0).getAttackBonuses(), first.getAttackBonuses());
+        Map<String, Double> bonuses = first.getAttackBonuses();
+        assertThrows(UnsupportedOperationException.class, () -> bonuses.put("Archer", 2.0));
+    }
+}
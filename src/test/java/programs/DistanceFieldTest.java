@@ -0,0 +1,57 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceFieldTest {
+
+    private final UnitTargetPathFinderImpl pf = new UnitTargetPathFinderImpl();
+
+    @Test
+    void pathsToEveryEnemyMatchSingleTargetBfs() {
+        Random rnd = new Random(7);
+        DistanceField field = new DistanceField();
+
+        for (int it = 0; it < 300; it++) {
+            List<Unit> all = new ArrayList<>();
+            for (int i = 0, n = rnd.nextInt(250); i < n; i++)
+                all.add(TestHelpers.newUnit("U" + i, "S", rnd.nextInt(27), rnd.nextInt(21), 10, 1, 1));
+            Unit a = TestHelpers.newUnit("A", "S", rnd.nextInt(27), rnd.nextInt(21), 10, 1, 1);
+            all.add(a);
+
+            field.compute(a, all);
+            for (Unit t : all) {
+                List<Edge> expected = pf.getTargetPath(a, t, all);
+                List<Edge> actual   = field.pathTo(t);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getX(), actual.get(i).getX());
+                    assertEquals(expected.get(i).getY(), actual.get(i).getY());
+                }
+                if (!expected.isEmpty()) assertEquals(expected.size(), field.distanceTo(t));
+            }
+        }
+    }
+
+    @Test
+    void unreachableTargetHasNoDistance() {
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit t = TestHelpers.newUnit("T","S",2,2,10,1,1);
+        List<Unit> all = List.of(a, t,
+                TestHelpers.newUnit("W1","W",0,1,1,0,0),
+                TestHelpers.newUnit("W2","W",1,0,1,0,0),
+                TestHelpers.newUnit("W3","W",1,1,1,0,0));
+
+        DistanceField field = DistanceField.from(a, all);
+        assertEquals(DistanceField.UNREACHABLE, field.distanceTo(t));
+        assertTrue(field.pathTo(t).isEmpty());
+        assertEquals(1, field.distanceTo(1, 1)); // соседняя занятая клетка — конечная точка
+    }
+}
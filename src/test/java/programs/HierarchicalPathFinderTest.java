@@ -0,0 +1,126 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalPathFinderTest {
+
+    @Test
+    void findsPathWheneverBfsDoesAndPathIsValid() {
+        compareWithBfs(90, 70, 10, 25, 3, 300, true);
+    }
+
+    @Test
+    void smallClustersMatchBfsReachability() {
+        // плотное поле и мелкие кластеры: блоки старта и цели пересекаются без переходов между ними;
+        // обходы здесь бывают вдвое длиннее кратчайшего, поэтому проверяется только достижимость
+        compareWithBfs(27, 21, 4,  60, 3,  400, false);
+        compareWithBfs(27, 21, 5,  60, 11, 400, false);
+        compareWithBfs(33, 17, 5,  60, 1,  400, false);
+        compareWithBfs(33, 17, 16, 60, 2,  400, false);
+    }
+
+    @Test
+    void joinsStartAndGoalThroughOverlappingBlocks() {
+        // 27×21, кластеры 16: свободны только (15,14) и (14,15) — мимо переходов,
+        // через клетки, которые достигают оба блока
+        int w = 27, h = 21;
+        Unit a = TestHelpers.newUnit("A", "S", 16, 13, 10, 1, 1);
+        Unit t = TestHelpers.newUnit("T", "S", 13, 16, 10, 1, 1);
+        List<Unit> all = new ArrayList<>(List.of(a, t));
+        for (int x = 0; x < w; x++)
+            for (int y = 0; y < h; y++) {
+                boolean keep = (x == 16 && y == 13) || (x == 13 && y == 16)
+                        || (x == 15 && y == 14) || (x == 14 && y == 15);
+                if (!keep) all.add(TestHelpers.newUnit("W", "W", x, y, 1, 0, 0));
+            }
+
+        assertEquals(3, new UnitTargetPathFinderImpl(w, h).getTargetPath(a, t, all).size());
+        List<Edge> path = new HierarchicalPathFinder(w, h).getTargetPath(a, t, all);
+        assertEquals(3, path.size());
+        assertValid(path, a, t, all);
+    }
+
+    @Test
+    void wallRemovalOpensPath() {
+        int w = 60, h = 40;
+        Unit a = TestHelpers.newUnit("A", "S", 2, 20, 10, 1, 1);
+        Unit t = TestHelpers.newUnit("T", "S", 57, 20, 10, 1, 1);
+        List<Unit> all = new ArrayList<>(List.of(a, t));
+        List<Unit> wall = new ArrayList<>();
+        for (int y = 0; y < h; y++) wall.add(TestHelpers.newUnit("W", "W", 30, y, 1, 0, 0));
+        all.addAll(wall);
+
+        HierarchicalPathFinder hpa = new HierarchicalPathFinder(w, h);
+        assertTrue(hpa.getTargetPath(a, t, all).isEmpty());
+
+        wall.get(7).setAlive(false);
+        List<Edge> path = hpa.getTargetPath(a, t, all);
+        assertValid(path, a, t, all);
+        assertTrue(path.stream().anyMatch(e -> e.getX() == 30 && e.getY() == 7));
+    }
+
+    @Test
+    void shortHopInsideOneCluster() {
+        Unit a = TestHelpers.newUnit("A", "S", 3, 3, 10, 1, 1);
+        Unit t = TestHelpers.newUnit("T", "S", 5, 4, 10, 1, 1);
+        List<Edge> path = new HierarchicalPathFinder(200, 200).getTargetPath(a, t, List.of(a, t));
+        assertEquals(2, path.size());
+        assertValid(path, a, t, List.of(a, t));
+    }
+
+    /**
+     * Случайные запросы при движущихся юнитах: путь есть тогда же, когда у BFS, и корректен;
+     * {@code bounded} — ещё и не длиннее 1.5× кратчайшего.
+     */
+    private static void compareWithBfs(int w, int h, int clusterSize, int unitsPercent, long seed, int queries,
+                                       boolean bounded) {
+        Random r = new Random(seed);
+        List<Unit> all = new ArrayList<>();
+        for (int i = 0; i < w * h * unitsPercent / 100; i++) all.add(TestHelpers.newUnit("u", "S", r.nextInt(w), r.nextInt(h), 1, 0, 0));
+
+        UnitTargetPathFinderImpl bfs = new UnitTargetPathFinderImpl(w, h);
+        HierarchicalPathFinder   hpa = new HierarchicalPathFinder(w, h, clusterSize);
+        for (int it = 0; it < queries; it++) {
+            // занятость меняется между запросами — граф перестраивается по кускам
+            Unit moved = all.get(r.nextInt(all.size()));
+            moved.setxCoordinate(r.nextInt(w));
+            moved.setyCoordinate(r.nextInt(h));
+
+            Unit s = all.get(r.nextInt(all.size())), t = all.get(r.nextInt(all.size()));
+            String where = w + "x" + h + " cs=" + clusterSize + " запрос " + it;
+            List<Edge> shortest = bfs.getTargetPath(s, t, all);
+            List<Edge> path     = hpa.getTargetPath(s, t, all);
+            assertEquals(shortest.isEmpty(), path.isEmpty(), where);
+            if (path.isEmpty()) continue;
+            assertValid(path, s, t, all);
+            assertTrue(path.size() >= shortest.size(), where);
+            if (bounded) assertTrue(path.size() <= shortest.size() * 3 / 2 + 2, where + ": " + path.size() + " vs " + shortest.size());
+        }
+    }
+
+    /** Шаги по соседним клеткам, без занятых (кроме цели), последний — в цель. */
+    private static void assertValid(List<Edge> path, Unit from, Unit to, List<Unit> all) {
+        Set<Long> busy = new HashSet<>();
+        for (Unit u : all) if (u.isAlive()) busy.add(((long) u.getxCoordinate() << 32) | u.getyCoordinate());
+        int x = from.getxCoordinate(), y = from.getyCoordinate();
+        for (int i = 0; i < path.size(); i++) {
+            Edge e = path.get(i);
+            assertEquals(1, Math.max(Math.abs(e.getX() - x), Math.abs(e.getY() - y)), "шаг " + i);
+            if (i < path.size() - 1) assertFalse(busy.contains(((long) e.getX() << 32) | e.getY()), "занято на шаге " + i);
+            x = e.getX();
+            y = e.getY();
+        }
+        assertEquals(to.getxCoordinate(), x);
+        assertEquals(to.getyCoordinate(), y);
+    }
+}
@@ -0,0 +1,101 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnapsackPresetImplTest {
+
+    private final KnapsackPresetImpl gen = new KnapsackPresetImpl();
+
+    @Test
+    void usesBudgetThatGreedyLeavesOver() {
+        // жадный по Attack/Cost берёт лучника (60 очков, атака 30), на 40 остатка — ничего;
+        // оптимум — 2 рыцаря (100 очков, атака 48)
+        List<Unit> proto = List.of(
+                TestHelpers.newUnit("Archer", "Archer", 0, 0, 20, 30, 60),
+                TestHelpers.newUnit("Knight", "Knight", 0, 0, 50, 24, 50));
+
+        Army greedy = new GeneratePresetImpl().generate(proto, 100);
+        Army exact  = gen.generate(proto, 100);
+
+        assertEquals(100, exact.getPoints());
+        assertEquals(48, totalAttack(exact));
+        assertEquals(30, totalAttack(greedy));
+        for (Unit u : exact.getUnits()) assertEquals(2, u.getxCoordinate());   // рыцари — фронт
+    }
+
+    @Test
+    void matchesBruteForceOverAllCounts() {
+        Random r = new Random(42);
+        String[] types = {"Archer", "Swordsman", "Pikeman", "Knight"};
+        for (int iter = 0; iter < 200; iter++) {
+            Unit[] p = new Unit[4];
+            for (int t = 0; t < 4; t++)
+                p[t] = TestHelpers.newUnit(types[t], types[t], 0, 0,
+                        1 + r.nextInt(60), 1 + r.nextInt(15), 1 + r.nextInt(60));
+            int budget = 1 + r.nextInt(1200);
+
+            long bestAtk = -1, bestHp = -1;
+            for (int a = 0; a <= 11; a++) for (int b = 0; b <= 11; b++)
+                for (int c = 0; c <= 11; c++) for (int d = 0; d <= 11; d++) {
+                    int[] k = {a, b, c, d};
+                    long cost = 0, atk = 0, hp = 0;
+                    for (int t = 0; t < 4; t++) {
+                        cost += (long) k[t] * p[t].getCost();
+                        atk  += (long) k[t] * p[t].getBaseAttack();
+                        hp   += (long) k[t] * p[t].getHealth();
+                    }
+                    if (cost > budget) continue;
+                    if (atk > bestAtk || (atk == bestAtk && hp > bestHp)) { bestAtk = atk; bestHp = hp; }
+                }
+
+            Army army = gen.generate(List.of(p), budget);
+            assertTrue(army.getPoints() <= budget);
+            assertEquals(bestAtk, totalAttack(army), "iter " + iter);
+            long hp = 0;
+            for (Unit u : army.getUnits()) hp += u.getHealth();
+            assertEquals(bestHp, hp, "iter " + iter);
+        }
+    }
+
+    @Test
+    void tieBreakOfAnyMagnitudeNeverOutweighsValue() {
+        // ценность 1 против 0 — при любом tie-break, даже ±(2^31-1) и его сумме по 11 копиям
+        Unit low  = TestHelpers.newUnit("Archer", "Archer", 0, 0, 10, 1, 10);
+        Unit high = TestHelpers.newUnit("Knight", "Knight", 0, 0, 10, 0, 10);
+        KnapsackPresetImpl extreme = new KnapsackPresetImpl(
+                Unit::getBaseAttack,
+                u -> u.getUnitType().equals("Archer") ? -Integer.MAX_VALUE : Integer.MAX_VALUE);
+
+        Army one = extreme.generate(List.of(low, high), 10);
+        assertEquals(1, one.getUnits().size());
+        assertEquals("Archer", one.getUnits().get(0).getUnitType());
+
+        Army many = extreme.generate(List.of(low, high), 110);
+        assertEquals(11, many.getUnits().size());
+        for (Unit u : many.getUnits()) assertEquals("Archer", u.getUnitType());
+    }
+
+    @Test
+    void negativeTieBreakPrefersSmallerSum() {
+        // равная атака за равную цену — решает tie-break: меньше здоровья лучше
+        List<Unit> proto = List.of(
+                TestHelpers.newUnit("Knight", "Knight", 0, 0, 90, 10, 30),
+                TestHelpers.newUnit("Archer", "Archer", 0, 0, 15, 10, 30));
+        Army army = new KnapsackPresetImpl(Unit::getBaseAttack, u -> -u.getHealth()).generate(proto, 60);
+        assertEquals(2, army.getUnits().size());
+        for (Unit u : army.getUnits()) assertEquals("Archer", u.getUnitType());
+    }
+
+    private static long totalAttack(Army a) {
+        long s = 0;
+        for (Unit u : a.getUnits()) s += u.getBaseAttack();
+        return s;
+    }
+}
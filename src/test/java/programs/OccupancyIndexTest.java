@@ -0,0 +1,100 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyIndexTest {
+
+    @Test
+    void tracksMovesAndDeathsPerArmy() {
+        Unit p = TestHelpers.newUnit("P","S",1,1,10,1,1);
+        Unit c = TestHelpers.newUnit("C","S",5,5,10,1,1);
+        OccupancyIndex idx = OccupancyIndex.of(new Army(List.of(p)), new Army(List.of(c)));
+
+        assertTrue(idx.isOccupied(OccupancyIndex.PLAYER, 1, 1));
+        assertFalse(idx.isOccupied(OccupancyIndex.COMPUTER, 1, 1));
+        assertTrue(idx.isOccupied(5, 5));
+
+        p.setxCoordinate(2);
+        idx.sync(p);
+        assertFalse(idx.isOccupied(1, 1));
+        assertTrue(idx.isOccupied(OccupancyIndex.PLAYER, 2, 1));
+
+        c.setAlive(false);
+        idx.sync(c);
+        assertFalse(idx.isOccupied(5, 5));
+        assertEquals(OccupancyIndex.COMPUTER, idx.sideOf(c));
+    }
+
+    @Test
+    void findersReadInstalledIndex() {
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit w = TestHelpers.newUnit("W","S",1,0,10,1,1);
+        Unit t = TestHelpers.newUnit("T","S",2,0,10,1,1);
+        OccupancyIndex idx = OccupancyIndex.of(new Army(List.of(a, w)), new Army(List.of(t)));
+
+        OccupancyIndex.setCurrent(idx);
+        try {
+            // в списке только старт и цель, но индекс знает про W на (1,0)
+            List<Edge> path = new UnitTargetPathFinderImpl().getTargetPath(a, t, List.of(a, t));
+            assertEquals(2, path.size());
+            assertNotEquals(0, path.get(0).getY());
+
+            // шаг dy = +1: клетки (0,1) и (1,1) свободны — готовы оба
+            List<Unit> ready = new SuitableForAttackUnitsFinderImpl()
+                    .getSuitableUnits(List.of(List.of(a), List.of(w)), false);
+            assertEquals(List.of(a, w), ready);
+        } finally {
+            OccupancyIndex.setCurrent(null);
+        }
+    }
+
+    @Test
+    void foreignAttackerUsesItsOwnList() {
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit w = TestHelpers.newUnit("W","S",1,0,10,1,1);
+        Unit t = TestHelpers.newUnit("T","S",2,0,10,1,1);
+        OccupancyIndex idx = OccupancyIndex.of(new Army(List.of(a, w)), new Army(List.of(t)));
+        // копия A на той же клетке: индекс её не ведёт, хоть старт и занят
+        Unit copy = TestHelpers.newUnit("A'","S",0,0,10,1,1);
+
+        OccupancyIndex.setCurrent(idx);
+        try {
+            List<Edge> bfs = new UnitTargetPathFinderImpl().getTargetPath(copy, t, List.of(copy, t));
+            assertEquals(List.of(1, 2), bfs.stream().map(Edge::getX).toList());
+            assertEquals(0, bfs.get(0).getY(), "W не в списке — клетка (1,0) свободна");
+
+            List<Edge> astar = new AStarPathFinderImpl().getTargetPath(copy, t, List.of(copy, t));
+            assertEquals(0, astar.get(0).getY());
+        } finally {
+            OccupancyIndex.setCurrent(null);
+        }
+    }
+
+    @Test
+    void versionCountsOccupancyChanges() {
+        Unit p = TestHelpers.newUnit("P","S",1,1,10,1,1);
+        Unit c = TestHelpers.newUnit("C","S",5,5,10,1,1);
+        OccupancyIndex idx = OccupancyIndex.of(new Army(new ArrayList<>(List.of(p))),
+                                               new Army(new ArrayList<>(List.of(c))));
+        long v0 = idx.version();
+
+        idx.sync(p);                                  // ничего не изменилось
+        assertEquals(v0, idx.version());
+
+        p.setxCoordinate(2);                          // переезд: освободилась (1,1), занята (2,1)
+        idx.sync(p);
+        assertEquals(v0 + 2, idx.version());
+        assertEquals(OccupancyIndex.cell(1, 1), idx.changedCell(v0 + 1));
+        assertEquals(OccupancyIndex.cell(2, 1), idx.changedCell(v0 + 2));
+        assertTrue(idx.canReplay(v0));
+        assertNotEquals(idx.id(), OccupancyIndex.of(new Army(), new Army()).id());
+    }
+}
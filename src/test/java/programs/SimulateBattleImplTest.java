@@ -1,9 +1,14 @@
 package programs;
 
 import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class SimulateBattleImplTest {
 
@@ -17,4 +22,84 @@ class SimulateBattleImplTest {
                 sim.simulate(emptyLeft, emptyRight)
         );
     }
+
+    @Test
+    void battleStopsAsSoonAsEnemiesAreGone() throws InterruptedException {
+        Army[] armies = TestHelpers.armedArcherDuel();
+        Army player = armies[0], computer = armies[1];
+
+        List<String> log = new ArrayList<>();
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        sim.setPrintBattleLog((a, t) -> log.add(a.getName()));
+
+        // раунд 1: P убивает одного, выживший бьёт P; раунд 2: P добивает второго
+        assertEquals(2, sim.run(player, computer, Integer.MAX_VALUE));
+        assertEquals(3, log.size());
+        assertEquals("P", log.get(0));
+        assertEquals("P", log.get(2));
+        assertEquals(99, player.getUnits().get(0).getHealth());
+    }
+
+    @Test
+    void tiedAttackKeepsArmyAndListOrder() throws InterruptedException {
+        // равные атаки в обеих армиях: при равенстве — игрок раньше компьютера, внутри армии — по списку
+        Army player = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("P1", "Archer", 0, 0, 1000, 5, 1),
+                TestHelpers.newUnit("P2", "Archer", 0, 1, 1000, 7, 1),
+                TestHelpers.newUnit("P3", "Archer", 0, 2, 1000, 5, 1))));
+        Army computer = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("C1", "Archer", 26, 0, 1000, 7, 1),
+                TestHelpers.newUnit("C2", "Archer", 26, 1, 1000, 5, 1),
+                TestHelpers.newUnit("C3", "Archer", 26, 2, 1000, 9, 1))));
+        TestHelpers.armed(player, computer);
+
+        List<String> log = new ArrayList<>();
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        sim.setPrintBattleLog((a, t) -> log.add(a.getName()));
+        assertEquals(1, sim.run(player, computer, 1));
+        assertEquals(List.of("C3", "P2", "C1", "P1", "P3", "C2"), log);
+    }
+
+    @Test
+    void turnOrderMatchesPerRoundStableSortAcrossDeaths() throws InterruptedException {
+        // бой до конца с потерями; цели лучники выбирают случайно, поэтому очередь
+        // сверяется по ходу боя: в начале каждого раунда — прежняя сборка (живые игрока,
+        // затем компьютера, устойчивая сортировка по атаке), пропускаются только погибшие
+        int[] attack = {12, 30, 12, 30, 12, 7};
+        List<Unit> p = new ArrayList<>(), c = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            p.add(TestHelpers.newUnit("P" + i, "Archer", 0,  3 * i, 40, attack[i],     1));
+            c.add(TestHelpers.newUnit("C" + i, "Archer", 26, 3 * i, 40, attack[3 + i], 1));
+        }
+        Army[] armies = TestHelpers.armed(new Army(p), new Army(c));
+
+        List<Unit> queue = new ArrayList<>();
+        int[] pos = {0}, rounds = {0}, turns = {0};
+        SimulateBattleImpl sim = new SimulateBattleImpl();
+        sim.setPrintBattleLog((attacker, target) -> {
+            while (pos[0] < queue.size() && queue.get(pos[0]) != attacker) {
+                assertFalse(queue.get(pos[0]).isAlive(), "пропущен живой " + queue.get(pos[0]).getName());
+                pos[0]++;
+            }
+            if (pos[0] == queue.size()) {
+                // новый раунд; цель этого удара была жива в его начале
+                queue.clear();
+                for (Unit u : p) if (u.isAlive() || u == target) queue.add(u);
+                for (Unit u : c) if (u.isAlive() || u == target) queue.add(u);
+                queue.sort(Comparator.comparingInt(Unit::getBaseAttack).reversed());
+                pos[0] = 0;
+                rounds[0]++;
+                while (queue.get(pos[0]) != attacker) {
+                    assertFalse(queue.get(pos[0]).isAlive(), "раунд начат не с того: " + attacker.getName());
+                    pos[0]++;
+                }
+            }
+            pos[0]++;
+            turns[0]++;
+        });
+        int played = sim.run(armies[0], armies[1], 200);
+
+        assertTrue(turns[0] > 6 && played > 1);
+        assertEquals(played, rounds[0]);
+    }
 }
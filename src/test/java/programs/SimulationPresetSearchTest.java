@@ -0,0 +1,57 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationPresetSearchTest {
+
+    @Test
+    void findsWinningPresetWithinBudgetAndLayout() throws InterruptedException {
+        List<Unit> proto = List.of(
+                TestHelpers.newUnit("Archer", "Archer", 0, 0, 40, 30, 20),
+                TestHelpers.newUnit("Knight", "Knight", 0, 0, 50, 5, 50));
+        // пресет компьютера — на левом краю, как его ставит генератор
+        Army enemy = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("E", "Knight", 2, 10, 60, 10, 10))));
+
+        try (BatchBattleRunner runner = new BatchBattleRunner(2)) {
+            SimulationPresetSearch search = new SimulationPresetSearch(runner, () -> enemy, 4, 1L);
+            // предел — число кандидатов, время с запасом: результат не зависит от машины
+            SimulationPresetSearch.Found found = search.search(proto, 200, Duration.ofMinutes(10), 40);
+
+            assertTrue(found.candidates() >= 1 && found.candidates() <= 40);
+            assertEquals(1.0, found.winRate());
+            assertTrue(found.preset().getPoints() <= 200);
+            assertFalse(found.preset().getUnits().isEmpty());
+            for (Unit u : found.preset().getUnits()) {
+                assertTrue(u.getxCoordinate() >= 0 && u.getxCoordinate() <= 2);
+                assertTrue(u.getyCoordinate() >= 0 && u.getyCoordinate() < 21);
+            }
+        }
+        assertTrue(enemy.getUnits().get(0).isAlive());               // бои шли на копиях
+    }
+
+    @Test
+    void stopsEarlyWhenSpaceIsExhausted() throws InterruptedException {
+        // 0 или 1 лучник × 6 раскладок — 12 геномов; бюджет времени огромный
+        List<Unit> proto = List.of(TestHelpers.newUnit("Archer", "Archer", 0, 0, 40, 30, 100));
+        Army enemy = new Army(new ArrayList<>(List.of(
+                TestHelpers.newUnit("E", "Knight", 2, 10, 60, 10, 10))));
+
+        try (BatchBattleRunner runner = new BatchBattleRunner(1)) {
+            SimulationPresetSearch search = new SimulationPresetSearch(runner, () -> enemy, 1, 1L);
+            // лимит кандидатов выше размера пространства — остановить может только исчерпание
+            SimulationPresetSearch.Found found = search.search(proto, 100, Duration.ofMinutes(10), 1_000);
+            assertTrue(found.candidates() <= 12);
+            assertEquals(1, search.search(proto, 100, Duration.ofMinutes(10), 1).candidates());   // только жадный старт
+            assertTrue(search.search(List.of(), 100, Duration.ofMinutes(10), 1_000).preset().getUnits().isEmpty());
+        }
+    }
+}
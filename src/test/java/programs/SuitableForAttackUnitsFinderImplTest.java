@@ -26,4 +26,30 @@ class SuitableForAttackUnitsFinderImplTest {
         assertEquals(1, res.size());
         assertTrue(res.contains(u1));
     }
+
+    @Test
+    void bitboardShiftDoesNotWrapBetweenColumns() {
+        // (0,20) шагает на (0,21) — за край поля, это свободно;
+        // соседний бит принадлежит (1,0), но это другая колонка.
+        Unit edge  = TestHelpers.newUnit("e","S",0,20,10,1,1);
+        Unit next  = TestHelpers.newUnit("n","S",1,0,10,1,1);
+        Unit front = TestHelpers.newUnit("f","S",1,1,10,1,1);
+
+        List<Unit> res = finder.getSuitableUnits(
+                List.of(List.of(edge), List.of(next, front)), /*isLeftTarget=*/false);
+        assertEquals(List.of(edge, front), res);
+    }
+
+    @Test
+    void customBoardMatchesHashSetAnswer() {
+        // колонка высотой 300: цепочка из 300 юнитов, свободен только верхний (dy = -1)
+        SuitableForAttackUnitsFinderImpl tall = new SuitableForAttackUnitsFinderImpl(40, 300);
+        List<Unit> column = new java.util.ArrayList<>();
+        for (int y = 0; y < 300; y++) column.add(TestHelpers.newUnit("c" + y, "S", 39, y, 10, 1, 1));
+
+        List<Unit> res = tall.getSuitableUnits(List.of(column), /*isLeftTarget=*/true);
+        assertEquals(List.of(column.get(0)), res);
+        // то же на поле по умолчанию — юниты вне 27×21, путь через HashSet
+        assertEquals(res, finder.getSuitableUnits(List.of(column), true));
+    }
 }
@@ -1,8 +1,12 @@
 package programs;
 
+import com.battle.heroes.army.Army;
 import com.battle.heroes.army.Unit;
+import com.battle.heroes.util.GameSpeedUtil;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 final class TestHelpers {
     private TestHelpers() {}
@@ -18,4 +22,32 @@ final class TestHelpers {
                 x, y
         );
     }
+
+    /**
+     * Лучник игрока P (атака 100) против двух лучников компьютера C1, C2
+     * по 10 hp: раунд 1 — P убивает одного, выживший бьёт P на 1;
+     * раунд 2 — P добивает второго.  Без программ.
+     */
+    static Army[] archerDuel() {
+        Army player   = new Army(new ArrayList<>(List.of(
+                newUnit("P", "Archer", 0, 0, 100, 100, 1))));
+        Army computer = new Army(new ArrayList<>(List.of(
+                newUnit("C1", "Archer", 26, 0, 10, 1, 1),
+                newUnit("C2", "Archer", 26, 1, 10, 1, 1))));
+        return new Army[] { player, computer };
+    }
+
+    /** {@link #archerDuel()} с программами игры. */
+    static Army[] armedArcherDuel() {
+        Army[] a = archerDuel();
+        return armed(a[0], a[1]);
+    }
+
+    /** Раздаёт программы игры без задержек: игроку — user, компьютеру — computer. */
+    static Army[] armed(Army player, Army computer) {
+        GameSpeedUtil noDelay = new GameSpeedUtil(0);
+        ArmyCopier.arm(player,   computer, ProgramFactory.user(),     noDelay);
+        ArmyCopier.arm(computer, player,   ProgramFactory.computer(), noDelay);
+        return new Army[] { player, computer };
+    }
 }
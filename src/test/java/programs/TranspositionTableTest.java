@@ -0,0 +1,131 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void storesAndFindsValues() {
+        TranspositionTable tt = new TranspositionTable(100);
+        assertEquals(128, tt.capacity());
+        assertEquals(TranspositionTable.MISSING, tt.get(42L));
+        tt.put(42L, 7L);
+        tt.putScore(43L, -0.0);
+        assertEquals(7L, tt.get(42L));
+        assertEquals(0.0, tt.score(43L));
+        assertTrue(Double.isNaN(tt.score(44L)));
+        assertEquals(2, tt.hits());
+        assertEquals(2, tt.misses());
+        assertEquals(0.5, tt.hitRate());
+        assertEquals(2, tt.occupied());
+    }
+
+    @Test
+    void fullTableReplacesAndCountsCollisions() {
+        TranspositionTable tt = new TranspositionTable(4);
+        for (long h = 1; h <= 64; h++) tt.put(h * 0x9E3779B97F4A7C15L, h);
+        assertTrue(tt.replacements() >= 60);
+        int found = 0;
+        for (long h = 1; h <= 64; h++) {
+            long v = tt.get(h * 0x9E3779B97F4A7C15L);
+            if (v != TranspositionTable.MISSING) {
+                assertEquals(h, v);          // чужое значение не возвращается никогда
+                found++;
+            }
+        }
+        assertTrue(found <= 4);
+        assertEquals(64 - found, tt.collisions());
+    }
+
+    @Test
+    void zeroHashWithZeroValueIsAnOrdinaryEntry() {
+        // хеш пустого поля — 0, оценка 0: запись не должна выглядеть пустой
+        TranspositionTable tt = new TranspositionTable(2);     // одна корзина на всё
+        tt.putScore(0L, 0.0);
+        assertEquals(0.0, tt.score(0L));
+        assertEquals(1, tt.occupied());
+
+        tt.put(5L, 7L);                                          // свободная запись корзины, не эта
+        assertEquals(0L, tt.get(0L));
+        assertEquals(7L, tt.get(5L));
+        assertEquals(0, tt.replacements());
+        assertEquals(2, tt.occupied());
+    }
+
+    @Test
+    void concurrentWritersNeverMixEntries() throws Exception {
+        TranspositionTable tt = new TranspositionTable(256);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> bad = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            bad.add(pool.submit(() -> {
+                int wrong = 0;
+                for (long i = 1; i <= 200_000; i++) {
+                    long h = ZobristHash.mix(i % 1000 + 1);
+                    tt.put(h, h * 31);
+                    long v = tt.get(ZobristHash.mix((i * 7) % 1000 + 1));
+                    if (v != TranspositionTable.MISSING && v != ZobristHash.mix((i * 7) % 1000 + 1) * 31) wrong++;
+                }
+                return wrong;
+            }));
+        }
+        for (Future<Integer> f : bad) assertEquals(0, (int) f.get());
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void zobristHashIgnoresMoveOrderAndTracksIncrementally() throws InterruptedException {
+        List<Unit> c = new ArrayList<>();
+        c.add(TestHelpers.newUnit("A", "Knight", 1, 1, 30, 5, 1));
+        c.add(TestHelpers.newUnit("B", "Knight", 1, 2, 30, 5, 1));
+        BattleSnapshot root = BattleSnapshot.of(new Army(new ArrayList<>()), new Army(c));
+        assertEquals(ZobristHash.of(new Army(new ArrayList<>()), new Army(c)), root.hash());
+
+        BattleSnapshot ab = root.fork(), ba = root.fork();
+        ab.damage(0, 10); ab.moveTo(1, 2, 2);
+        ba.moveTo(1, 2, 2); ba.damage(0, 10);
+        assertEquals(ab.hash(), ba.hash());
+        assertNotEquals(root.hash(), ab.hash());
+
+        // два одинаковых юнита, поменявшиеся местами, — та же позиция
+        BattleSnapshot swap = root.fork();
+        swap.moveTo(0, 1, 2); swap.moveTo(1, 1, 1);
+        assertEquals(root.hash(), swap.hash());
+
+        ab.kill(1);
+        ab.applyTo();
+        assertEquals(ZobristHash.of(new Army(new ArrayList<>()), new Army(c)), ab.hash());
+    }
+
+    @Test
+    void stackedIdenticalUnitsDoNotCancel() {
+        // два одинаковых юнита одной армии в одной клетке с одним hp — не то же, что ни одного
+        Unit lone = TestHelpers.newUnit("L", "Archer", 5, 5, 20, 5, 1);
+        List<Unit> c = new ArrayList<>(List.of(lone));
+        long one = ZobristHash.of(new Army(new ArrayList<>()), new Army(c));
+
+        c.add(TestHelpers.newUnit("A", "Knight", 3, 3, 30, 5, 1));
+        c.add(TestHelpers.newUnit("B", "Knight", 3, 3, 30, 5, 1));
+        long stacked = ZobristHash.of(new Army(new ArrayList<>()), new Army(c));
+        assertNotEquals(one, stacked);
+
+        BattleSnapshot s = BattleSnapshot.of(new Army(new ArrayList<>()), new Army(c));
+        assertEquals(stacked, s.hash());
+        s.kill(2);
+        assertNotEquals(one, s.hash());                              // один из стопки ещё жив
+        s.kill(1);
+        assertEquals(one, s.hash());
+    }
+}
@@ -48,6 +48,38 @@ class UnitTargetPathFinderImplTest {
         assertTrue(path.isEmpty(), "Пути не должно существовать");
     }
 
+    @Test
+    void largeBoardFromConstructor() {
+        UnitTargetPathFinderImpl big = new UnitTargetPathFinderImpl(500, 500);
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit b = TestHelpers.newUnit("B","S",499,300,10,1,1);
+
+        List<Edge> path = big.getTargetPath(a, b, List.of(a, b));
+        assertEquals(499, path.size());             // Чебышёв: max(499, 300)
+        assertEquals(499, path.get(498).getX());
+        assertEquals(300, path.get(498).getY());
+        // на поле по умолчанию та же цель — вне поля
+        assertTrue(pf.getTargetPath(a, b, List.of(a, b)).isEmpty());
+    }
+
+    @Test
+    void reusedBuffersDoNotLeakObstaclesBetweenCalls() {
+        Unit a = TestHelpers.newUnit("A","S",0,0,10,1,1);
+        Unit t = TestHelpers.newUnit("T","S",2,0,10,1,1);
+        Unit w = TestHelpers.newUnit("W","W",1,0,1,0,0);
+
+        // первый вызов: клетка (1,0) занята — путь в обход, 2 шага
+        List<Edge> around = pf.getTargetPath(a, t, concat(a, t, List.of(w)));
+        assertEquals(2, around.size());
+        assertNotEquals(0, around.get(0).getY());
+
+        // второй вызов без препятствия: прямой путь через (1,0)
+        List<Edge> straight = pf.getTargetPath(a, t, List.of(a, t));
+        assertEquals(2, straight.size());
+        assertEquals(1, straight.get(0).getX());
+        assertEquals(0, straight.get(0).getY());
+    }
+
     private static List<Unit> concat(Unit a, Unit b, List<Unit> others) {
         List<Unit> all = new java.util.ArrayList<>(others);
         all.add(a);